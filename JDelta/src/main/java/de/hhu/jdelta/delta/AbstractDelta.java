@@ -18,16 +18,18 @@
 
 package de.hhu.jdelta.delta;
 
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
 
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.progress.ProgressListener.Phase;
 import de.hhu.jdelta.tree.ClassNode;
 import de.hhu.jdelta.tree.FieldNode;
+import de.hhu.jdelta.tree.MemberTable;
 import de.hhu.jdelta.tree.MethodNode;
 
 /**
@@ -48,6 +50,7 @@ public abstract class AbstractDelta<T> implements IDelta {
 	private boolean changed = false;
 	private boolean added = false;
 	private boolean deleted = false;
+	private boolean modified = false;
 
 	AbstractDelta(T from, T to) {
 
@@ -71,7 +74,7 @@ public abstract class AbstractDelta<T> implements IDelta {
 
 	BooleanDelta createDelta(boolean from, boolean to) {
 
-		BooleanDelta delta = new BooleanDelta(from, to);
+		BooleanDelta delta = BooleanDelta.valueOf(from, to);
 
 		if (delta.isChanged())
 			changed = true;
@@ -88,6 +91,9 @@ public abstract class AbstractDelta<T> implements IDelta {
 		if (delta.isChanged())
 			changed = true;
 
+		if (!delta.isDeepUnchanged())
+			modified = true;
+
 		return delta;
 
 	}
@@ -120,34 +126,59 @@ public abstract class AbstractDelta<T> implements IDelta {
 			ImmutableSortedSet<V> from, ImmutableSortedSet<V> to,
 			DeltaFactory<V, D> factory) {
 
-		SortedSet<V> both = new TreeSet<V>();
-		both.addAll(from);
-		both.addAll(to);
+		if (from.isEmpty() && to.isEmpty())
+			return ImmutableSortedMap.of();
+
+		// both sets are sorted, so they are merged without a TreeMap
+		Comparator<? super V> comparator = from.comparator();
+		ImmutableSortedMap.Builder<V, D> builder =
+				new ImmutableSortedMap.Builder<V, D>(comparator);
 
-		SortedMap<V, D> map = new TreeMap<V, D>();
+		Iterator<V> fromValues = from.iterator();
+		Iterator<V> toValues = to.iterator();
+		V fromValue = fromValues.hasNext() ? fromValues.next() : null;
+		V toValue = toValues.hasNext() ? toValues.next() : null;
 
-		for (V value : both) {
+		while (fromValue != null || toValue != null) {
 
-			V fromValue = from.contains(value) ? value : null;
-			V toValue = to.contains(value) ? value : null;
+			int c =
+					fromValue == null ? 1 : toValue == null ? -1 : comparator
+							.compare(fromValue, toValue);
 
-			D delta = factory.createDelta(fromValue, toValue);
+			D delta =
+					factory.createDelta(c <= 0 ? fromValue : null, c >= 0
+							? toValue : null);
 
-			map.put(value, delta);
+			builder.put(c <= 0 ? fromValue : toValue, delta);
 
 			if (delta.isChanged())
 				changed = true;
 
+			if (!delta.isDeepUnchanged())
+				modified = true;
+
+			if (c <= 0)
+				fromValue = fromValues.hasNext() ? fromValues.next() : null;
+
+			if (c >= 0)
+				toValue = toValues.hasNext() ? toValues.next() : null;
+
 		}
 
-		return ImmutableSortedMap.copyOf(map);
+		return builder.build();
 
 	}
 
 	<V> ImmutableSortedMap<V, ShallowDelta<V>> createDeltaMap(
 			ImmutableSortedSet<V> from, ImmutableSortedSet<V> to, Class<V> clazz) {
 
-		return createDeltaMap(from, to, ShallowDelta.Factory.getInstance(clazz));
+		ShallowDelta.Factory<V> factory = ShallowDelta.Factory.getInstance(clazz);
+
+		// equal sets only yield unchanged deltas, which the factory may share
+		if (!from.isEmpty() && from.equals(to))
+			return factory.createUnchangedMap(from);
+
+		return createDeltaMap(from, to, factory);
 
 	}
 
@@ -155,24 +186,89 @@ public abstract class AbstractDelta<T> implements IDelta {
 			ImmutableSortedMap<K, V> from, ImmutableSortedMap<K, V> to,
 			DeltaFactory<V, D> factory) {
 
-		SortedSet<K> both = new TreeSet<K>();
-		both.addAll(from.keySet());
-		both.addAll(to.keySet());
+		return createDeltaMap(from, to, factory, null, null, -1);
+
+	}
+
+	/**
+	 * Merges two maps into a map of deltas. If a listener is given, the
+	 * progress is reported against the total number of keys, see
+	 * {@link #countKeys(ImmutableSortedMap, ImmutableSortedMap)}.
+	 */
+	private <K, V, D extends AbstractDelta<V>> ImmutableSortedMap<K, D> createDeltaMap(
+			ImmutableSortedMap<K, V> from, ImmutableSortedMap<K, V> to,
+			DeltaFactory<V, D> factory, ImmutableSortedMap<K, D> previous,
+			ProgressListener listener, int total) {
+
+		if (from.isEmpty() && to.isEmpty())
+			return ImmutableSortedMap.of();
+
+		// both maps are sorted, so they are merged without a TreeMap
+		Comparator<? super K> comparator = from.comparator();
+		ImmutableSortedMap.Builder<K, D> builder =
+				new ImmutableSortedMap.Builder<K, D>(comparator);
+
+		int done = 0;
+
+		Iterator<Map.Entry<K, V>> fromEntries = from.entrySet().iterator();
+		Iterator<Map.Entry<K, V>> toEntries = to.entrySet().iterator();
+		Map.Entry<K, V> fromEntry =
+				fromEntries.hasNext() ? fromEntries.next() : null;
+		Map.Entry<K, V> toEntry = toEntries.hasNext() ? toEntries.next() : null;
+
+		while (fromEntry != null || toEntry != null) {
 
-		SortedMap<K, D> map = new TreeMap<K, D>();
+			int c =
+					fromEntry == null ? 1 : toEntry == null ? -1 : comparator
+							.compare(fromEntry.getKey(), toEntry.getKey());
 
-		for (K key : both) {
+			K key = c <= 0 ? fromEntry.getKey() : toEntry.getKey();
+			V fromValue = c <= 0 ? fromEntry.getValue() : null;
+			V toValue = c >= 0 ? toEntry.getValue() : null;
 
-			D delta = factory.createDelta(from.get(key), to.get(key));
+			D delta = previous != null ? previous.get(key) : null;
 
-			map.put(key, delta);
+			if (delta == null || delta.getFrom() != fromValue
+					|| delta.getTo() != toValue)
+				delta = factory.createDelta(fromValue, toValue);
+
+			builder.put(key, delta);
 
 			if (delta.isChanged())
 				changed = true;
 
+			if (!delta.isDeepUnchanged())
+				modified = true;
+
+			if (listener != null)
+				listener.progress(Phase.DIFFING, ++done, total);
+
+			if (c <= 0)
+				fromEntry = fromEntries.hasNext() ? fromEntries.next() : null;
+
+			if (c >= 0)
+				toEntry = toEntries.hasNext() ? toEntries.next() : null;
+
 		}
 
-		return ImmutableSortedMap.copyOf(map);
+		return builder.build();
+
+	}
+
+	/**
+	 * Returns the number of keys in the union of two maps, i.e. the number of
+	 * deltas between them.
+	 */
+	static <K> int countKeys(ImmutableSortedMap<K, ?> from,
+			ImmutableSortedMap<K, ?> to) {
+
+		int count = from.size();
+
+		for (K key : to.keySet())
+			if (!from.containsKey(key))
+				count++;
+
+		return count;
 
 	}
 
@@ -184,19 +280,96 @@ public abstract class AbstractDelta<T> implements IDelta {
 
 	}
 
-	ImmutableSortedMap<String, MethodDelta> createMethodDeltaMap(
-			ImmutableSortedMap<String, MethodNode> from,
-			ImmutableSortedMap<String, MethodNode> to) {
+	ImmutableSortedMap<String, ClassDelta> createClassDeltaMap(
+			ImmutableSortedMap<String, ClassNode> from,
+			ImmutableSortedMap<String, ClassNode> to,
+			ProgressListener listener, int total) {
+
+		return createDeltaMap(from, to, ClassDelta.Factory.getInstance(),
+				null, listener, total);
+
+	}
+
+	ImmutableSortedMap<String, ClassDelta> updateClassDeltaMap(
+			ImmutableSortedMap<String, ClassNode> from,
+			ImmutableSortedMap<String, ClassNode> to,
+			ImmutableSortedMap<String, ClassDelta> previous,
+			ProgressListener listener, int total) {
+
+		return createDeltaMap(from, to, ClassDelta.Factory.getInstance(),
+				previous, listener, total);
+
+	}
+
+	private <V, D extends AbstractDelta<V>> MemberTable<D> createDeltaTable(
+			MemberTable<V> from, MemberTable<V> to, DeltaFactory<V, D> factory) {
+
+		if (from.isEmpty() && to.isEmpty())
+			return MemberTable.of();
+
+		MemberTable.Builder<D> builder = new MemberTable.Builder<D>();
+
+		// a table yields only unchanged deltas to itself
+		if (from == to) {
+
+			for (int i = 0; i < from.size(); i++)
+				builder.put(from.getKey(i), factory.createDelta(from.get(i),
+						from.get(i)));
+
+			return builder.build();
+
+		}
+
+		int i = 0, j = 0;
+
+		while (i < from.size() || j < to.size()) {
+
+			int c;
+
+			if (i == from.size())
+				c = 1;
+			else if (j == to.size())
+				c = -1;
+			else if (from.getKey(i).equals(to.getKey(j)))
+				c = 0;
+			else
+				c = from.getKey(i).compareTo(to.getKey(j));
+
+			D delta =
+					factory.createDelta(c <= 0 ? from.get(i) : null,
+							c >= 0 ? to.get(j) : null);
+
+			builder.put(c <= 0 ? from.getKey(i) : to.getKey(j), delta);
+
+			if (delta.isChanged())
+				changed = true;
+
+			if (!delta.isDeepUnchanged())
+				modified = true;
+
+			if (c <= 0)
+				i++;
+
+			if (c >= 0)
+				j++;
 
-		return createDeltaMap(from, to, MethodDelta.Factory.getInstance());
+		}
+
+		return builder.build();
 
 	}
 
-	ImmutableSortedMap<String, FieldDelta> createFieldDeltaMap(
-			ImmutableSortedMap<String, FieldNode> from,
-			ImmutableSortedMap<String, FieldNode> to) {
+	MemberTable<MethodDelta> createMethodDeltaTable(MemberTable<MethodNode> from,
+			MemberTable<MethodNode> to) {
 
-		return createDeltaMap(from, to, FieldDelta.Factory.getInstance());
+		return createDeltaTable(from, to, MethodDelta.Factory.getInstance());
+
+	}
+
+	MemberTable<FieldDelta> createFieldDeltaTable(MemberTable<FieldNode> from,
+			MemberTable<FieldNode> to) {
+
+		return createDeltaTable(from, to, FieldDelta.Factory.getInstance());
 
 	}
 
@@ -229,6 +402,22 @@ public abstract class AbstractDelta<T> implements IDelta {
 
 	}
 
+	/**
+	 * Returns true if neither the object nor any of its child deltas is
+	 * changed, added or deleted.
+	 * 
+	 * Unlike {@link #isUnchanged()} this also covers added and deleted child
+	 * deltas like an added signature or exception, which do not mark their
+	 * parent as changed.
+	 * 
+	 * @return the deep unchanged flag
+	 */
+	public boolean isDeepUnchanged() {
+
+		return isUnchanged() && !modified;
+
+	}
+
 	@Override
 	public boolean isChanged() {
 		return changed;
@@ -21,19 +21,47 @@ package de.hhu.jdelta.delta;
 /**
  * A boolean delta.
  * 
+ * There are only four boolean deltas, see {@link #valueOf(boolean, boolean)}.
+ * 
  * @author Gian Perrone
  * 
  */
 public class BooleanDelta implements IDelta {
 
-	private boolean from;
-	private boolean to;
+	private static final BooleanDelta FALSE_FALSE = new BooleanDelta(false,
+			false);
+	private static final BooleanDelta FALSE_TRUE = new BooleanDelta(false,
+			true);
+	private static final BooleanDelta TRUE_FALSE = new BooleanDelta(true,
+			false);
+	private static final BooleanDelta TRUE_TRUE = new BooleanDelta(true, true);
+
+	private final boolean from;
+	private final boolean to;
+
+	private final boolean changed;
+	private final boolean added;
+	private final boolean deleted;
 
-	private boolean changed;
-	private boolean added;
-	private boolean deleted;
+	/**
+	 * Returns the shared delta between two booleans.
+	 * 
+	 * @param from
+	 *            the from
+	 * @param to
+	 *            the to
+	 * @return the delta
+	 */
+	public static BooleanDelta valueOf(boolean from, boolean to) {
+
+		if (from)
+			return to ? TRUE_TRUE : TRUE_FALSE;
+		else
+			return to ? FALSE_TRUE : FALSE_FALSE;
+
+	}
 
-	BooleanDelta(boolean from, boolean to) {
+	private BooleanDelta(boolean from, boolean to) {
 
 		this.from = from;
 		this.to = to;
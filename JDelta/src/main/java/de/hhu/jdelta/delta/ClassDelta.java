@@ -20,9 +20,11 @@ package de.hhu.jdelta.delta;
 
 import com.google.common.collect.ImmutableSortedMap;
 
+import de.hhu.jdelta.jfr.ClassDeltaEvent;
 import de.hhu.jdelta.tree.ClassNode;
 import de.hhu.jdelta.tree.Visibility;
 import de.hhu.jdelta.tree.ClassNode.ClassType;
+import de.hhu.jdelta.tree.MemberTable;
 
 /**
  * A class delta.
@@ -32,8 +34,8 @@ import de.hhu.jdelta.tree.ClassNode.ClassType;
  */
 public class ClassDelta extends EntityDelta<ClassNode> {
 
-	private ImmutableSortedMap<String, FieldDelta> fieldDeltas;
-	private ImmutableSortedMap<String, MethodDelta> methodDeltas;
+	private MemberTable<FieldDelta> fieldDeltas;
+	private MemberTable<MethodDelta> methodDeltas;
 	// private SortedMap<String, Boolean> innerClassesDelta;
 
 	private ImmutableSortedMap<String, ShallowDelta<String>> interfaceDeltas;
@@ -60,6 +62,9 @@ public class ClassDelta extends EntityDelta<ClassNode> {
 
 		super(from, to);
 
+		ClassDeltaEvent event = new ClassDeltaEvent();
+		event.begin();
+
 		if (from == null)
 			from = ClassNode.EMPTY_CLASS_NODE;
 
@@ -67,9 +72,10 @@ public class ClassDelta extends EntityDelta<ClassNode> {
 			to = ClassNode.EMPTY_CLASS_NODE;
 
 		this.fieldDeltas =
-				createFieldDeltaMap(from.getFields(), to.getFields());
+				createFieldDeltaTable(from.getFieldTable(), to.getFieldTable());
 		this.methodDeltas =
-				createMethodDeltaMap(from.getMethods(), to.getMethods());
+				createMethodDeltaTable(from.getMethodTable(), to
+						.getMethodTable());
 		// this.innerClassesDelta =
 		// changedMap(from.getInnerClasses(), to.getInnerClasses());
 
@@ -98,9 +104,17 @@ public class ClassDelta extends EntityDelta<ClassNode> {
 		this.finalDelta = createDelta(from.isFinal(), to.isFinal());
 		this.superDelta = createDelta(from.isSuper(), to.isSuper());
 
+		if (event.shouldCommit()) {
+			event.className = from != ClassNode.EMPTY_CLASS_NODE
+					? from.getName() : to.getName();
+			event.memberCount = fieldDeltas.size() + methodDeltas.size();
+			event.changed = !isUnchanged();
+			event.commit();
+		}
+
 	}
 
-	static class Factory extends DeltaFactory<ClassNode, ClassDelta> {
+	static class Factory extends EntityDeltaFactory<ClassNode, ClassDelta> {
 
 		private static Factory instance;
 
@@ -118,7 +132,7 @@ public class ClassDelta extends EntityDelta<ClassNode> {
 		}
 
 		@Override
-		ClassDelta createDelta(ClassNode from, ClassNode to) {
+		ClassDelta newDelta(ClassNode from, ClassNode to) {
 
 			return new ClassDelta(from, to);
 
@@ -134,33 +148,11 @@ public class ClassDelta extends EntityDelta<ClassNode> {
 	 */
 	public String getDeepDeclarationsDiff() {
 
-		StringBuilder str = new StringBuilder();
-
-		str.append(getDeclarationDiff()).append("\n");
-
-		if (isAdded() || isDeleted())
-			return str.toString();
-
-		for (FieldDelta fieldDelta : fieldDeltas.values()) {
+		DeclarationsDiffWriter writer = new DeclarationsDiffWriter();
 
-			str.append(" ")
-					.append(fieldDelta
-							.getDeclarationDiff()
-							.replace("\n", "\n "))
-					.append("\n");
-
-		}
-
-		for (MethodDelta methodDelta : methodDeltas.values()) {
-
-			str.append(" ")
-					.append(methodDelta.getDeclarationDiff().replace("\n",
-							"\n "))
-					.append("\n");
-
-		}
+		new DeltaDispatcher(writer).dispatch(this);
 
-		return str.toString();
+		return writer.toString();
 
 	}
 
@@ -170,6 +162,15 @@ public class ClassDelta extends EntityDelta<ClassNode> {
 	 * @return the field deltas
 	 */
 	public ImmutableSortedMap<String, FieldDelta> getFieldDeltas() {
+		return fieldDeltas.asMap();
+	}
+
+	/**
+	 * Returns the field deltas as a table sorted by member key.
+	 * 
+	 * @return the field deltas
+	 */
+	public MemberTable<FieldDelta> getFieldDeltaTable() {
 		return fieldDeltas;
 	}
 
@@ -179,6 +180,15 @@ public class ClassDelta extends EntityDelta<ClassNode> {
 	 * @return the method deltas
 	 */
 	public ImmutableSortedMap<String, MethodDelta> getMethodDeltas() {
+		return methodDeltas.asMap();
+	}
+
+	/**
+	 * Returns the method deltas as a table sorted by member key.
+	 * 
+	 * @return the method deltas
+	 */
+	public MemberTable<MethodDelta> getMethodDeltaTable() {
 		return methodDeltas;
 	}
 
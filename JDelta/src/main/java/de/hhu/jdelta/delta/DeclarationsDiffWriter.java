@@ -0,0 +1,114 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.delta;
+
+/**
+ * A DeltaVisitor which renders the declarations of the visited deltas, see
+ * {@link JarDelta#getDeepDeclarationsDiff()}.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+public class DeclarationsDiffWriter implements DeltaVisitor {
+
+	private final StringBuilder str;
+	private boolean jar = false;
+
+	/**
+	 * Creates a writer into a new StringBuilder.
+	 */
+	public DeclarationsDiffWriter() {
+
+		this(new StringBuilder());
+
+	}
+
+	/**
+	 * Creates a writer which appends to a StringBuilder.
+	 * 
+	 * @param str
+	 *            the string builder
+	 */
+	public DeclarationsDiffWriter(StringBuilder str) {
+
+		this.str = str;
+
+	}
+
+	@Override
+	public void visitJar(JarDelta delta) {
+
+		jar = true;
+
+	}
+
+	@Override
+	public boolean visitClass(ClassDelta delta) {
+
+		str.append(delta.getDeclarationDiff()).append("\n");
+
+		return !(delta.isAdded() || delta.isDeleted());
+
+	}
+
+	@Override
+	public void visitField(FieldDelta delta) {
+
+		appendMember(delta);
+
+	}
+
+	@Override
+	public void visitMethod(MethodDelta delta) {
+
+		appendMember(delta);
+
+	}
+
+	private void appendMember(EntityDelta<?> delta) {
+
+		str.append(" ")
+				.append(delta.getDeclarationDiff().replace("\n", "\n "))
+				.append("\n");
+
+	}
+
+	@Override
+	public void visitClassEnd(ClassDelta delta) {
+
+		if (jar)
+			str.append("\n");
+
+	}
+
+	@Override
+	public void visitJarEnd(JarDelta delta) {
+
+		jar = false;
+
+	}
+
+	@Override
+	public String toString() {
+
+		return str.toString();
+
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.delta;
+
+import com.google.common.collect.ImmutableList;
+
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.progress.ProgressListener.Phase;
+
+/**
+ * Runs several DeltaVisitors in a single traversal of a delta tree.
+ * 
+ * Each delta is handed to all visitors before the next one is visited, so
+ * the maps of the tree are iterated only once. The members of a class are
+ * only visited if one of the visitors asks for them and only handed to the
+ * visitors which asked.
+ * 
+ * A dispatcher is not thread-safe.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+public class DeltaDispatcher {
+
+	private final DeltaVisitor[] visitors;
+	private final boolean[] members;
+
+	/**
+	 * Creates a dispatcher for some visitors.
+	 * 
+	 * @param visitors
+	 *            the visitors in the order they are called
+	 */
+	public DeltaDispatcher(DeltaVisitor... visitors) {
+
+		this.visitors = visitors.clone();
+		this.members = new boolean[visitors.length];
+
+	}
+
+	/**
+	 * Visits a jar delta, its classes and their members.
+	 * 
+	 * @param delta
+	 *            the jar delta
+	 */
+	public void dispatch(JarDelta delta) {
+
+		dispatch(delta, ProgressListener.SILENT);
+
+	}
+
+	/**
+	 * Visits a jar delta, its classes and their members and reports the
+	 * visited classes to a listener.
+	 * 
+	 * @param delta
+	 *            the jar delta
+	 * @param listener
+	 *            the progress listener
+	 */
+	public void dispatch(JarDelta delta, ProgressListener listener) {
+
+		ImmutableList<ClassDelta> classDeltas =
+				delta.getClassDeltas().values().asList();
+		int total = classDeltas.size();
+
+		listener.phaseStarted(Phase.EXAMINING, null, total);
+
+		for (DeltaVisitor visitor : visitors)
+			visitor.visitJar(delta);
+
+		for (int i = 0; i < total; i++) {
+
+			dispatch(classDeltas.get(i));
+
+			listener.progress(Phase.EXAMINING, i + 1, total);
+
+		}
+
+		for (DeltaVisitor visitor : visitors)
+			visitor.visitJarEnd(delta);
+
+		listener.phaseFinished(Phase.EXAMINING);
+
+	}
+
+	/**
+	 * Visits a class delta and its members.
+	 * 
+	 * @param delta
+	 *            the class delta
+	 */
+	public void dispatch(ClassDelta delta) {
+
+		boolean any = false;
+
+		for (int i = 0; i < visitors.length; i++) {
+			members[i] = visitors[i].visitClass(delta);
+			any |= members[i];
+		}
+
+		if (any) {
+
+			for (FieldDelta fieldDelta : delta.getFieldDeltaTable())
+				for (int i = 0; i < visitors.length; i++)
+					if (members[i])
+						visitors[i].visitField(fieldDelta);
+
+			for (MethodDelta methodDelta : delta.getMethodDeltaTable())
+				for (int i = 0; i < visitors.length; i++)
+					if (members[i])
+						visitors[i].visitMethod(methodDelta);
+
+		}
+
+		for (DeltaVisitor visitor : visitors)
+			visitor.visitClassEnd(delta);
+
+	}
+
+}
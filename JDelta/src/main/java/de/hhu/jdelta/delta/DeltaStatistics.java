@@ -0,0 +1,181 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.delta;
+
+/**
+ * A DeltaVisitor which counts the added, deleted and changed classes, fields
+ * and methods.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+public class DeltaStatistics implements DeltaVisitor {
+
+	private static final int ADDED = 0;
+	private static final int DELETED = 1;
+	private static final int CHANGED = 2;
+
+	private final int[] classes = new int[3];
+	private final int[] fields = new int[3];
+	private final int[] methods = new int[3];
+
+	private static void count(int[] counts, IDelta delta) {
+
+		if (delta.isAdded())
+			counts[ADDED]++;
+		else if (delta.isDeleted())
+			counts[DELETED]++;
+		else if (delta.isChanged())
+			counts[CHANGED]++;
+
+	}
+
+	@Override
+	public void visitJar(JarDelta delta) {
+	}
+
+	@Override
+	public boolean visitClass(ClassDelta delta) {
+
+		count(classes, delta);
+
+		return delta.isChanged() && !delta.isAdded() && !delta.isDeleted();
+
+	}
+
+	@Override
+	public void visitField(FieldDelta delta) {
+
+		count(fields, delta);
+
+	}
+
+	@Override
+	public void visitMethod(MethodDelta delta) {
+
+		count(methods, delta);
+
+	}
+
+	@Override
+	public void visitClassEnd(ClassDelta delta) {
+	}
+
+	@Override
+	public void visitJarEnd(JarDelta delta) {
+	}
+
+	/**
+	 * Returns the number of added classes.
+	 * 
+	 * @return the number of added classes
+	 */
+	public int getAddedClasses() {
+		return classes[ADDED];
+	}
+
+	/**
+	 * Returns the number of deleted classes.
+	 * 
+	 * @return the number of deleted classes
+	 */
+	public int getDeletedClasses() {
+		return classes[DELETED];
+	}
+
+	/**
+	 * Returns the number of changed classes.
+	 * 
+	 * @return the number of changed classes
+	 */
+	public int getChangedClasses() {
+		return classes[CHANGED];
+	}
+
+	/**
+	 * Returns the number of added fields.
+	 * 
+	 * @return the number of added fields
+	 */
+	public int getAddedFields() {
+		return fields[ADDED];
+	}
+
+	/**
+	 * Returns the number of deleted fields.
+	 * 
+	 * @return the number of deleted fields
+	 */
+	public int getDeletedFields() {
+		return fields[DELETED];
+	}
+
+	/**
+	 * Returns the number of changed fields.
+	 * 
+	 * @return the number of changed fields
+	 */
+	public int getChangedFields() {
+		return fields[CHANGED];
+	}
+
+	/**
+	 * Returns the number of added methods.
+	 * 
+	 * @return the number of added methods
+	 */
+	public int getAddedMethods() {
+		return methods[ADDED];
+	}
+
+	/**
+	 * Returns the number of deleted methods.
+	 * 
+	 * @return the number of deleted methods
+	 */
+	public int getDeletedMethods() {
+		return methods[DELETED];
+	}
+
+	/**
+	 * Returns the number of changed methods.
+	 * 
+	 * @return the number of changed methods
+	 */
+	public int getChangedMethods() {
+		return methods[CHANGED];
+	}
+
+	/**
+	 * Returns a one-line summary of the counts.
+	 * 
+	 * @return the summary
+	 */
+	@Override
+	public String toString() {
+
+		return String.format("classes +%d -%d ~%d, fields +%d -%d ~%d, "
+				+ "methods +%d -%d ~%d", classes[ADDED], classes[DELETED],
+				classes[CHANGED], fields[ADDED], fields[DELETED],
+				fields[CHANGED], methods[ADDED], methods[DELETED],
+				methods[CHANGED]);
+
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.delta;
+
+/**
+ * A visitor of the deltas of a jar.
+ * 
+ * The deltas are visited in the order of the sorted maps of their parents,
+ * the fields of a class before its methods. Several visitors can share a
+ * single traversal, see {@link DeltaDispatcher}.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+public interface DeltaVisitor {
+
+	/**
+	 * Visits a jar delta before its classes.
+	 * 
+	 * @param delta
+	 *            the jar delta
+	 */
+	void visitJar(JarDelta delta);
+
+	/**
+	 * Visits a class delta before its fields and methods.
+	 * 
+	 * @param delta
+	 *            the class delta
+	 * @return true if the fields and methods should be visited
+	 */
+	boolean visitClass(ClassDelta delta);
+
+	/**
+	 * Visits a field delta.
+	 * 
+	 * @param delta
+	 *            the field delta
+	 */
+	void visitField(FieldDelta delta);
+
+	/**
+	 * Visits a method delta.
+	 * 
+	 * @param delta
+	 *            the method delta
+	 */
+	void visitMethod(MethodDelta delta);
+
+	/**
+	 * Visits a class delta after its fields and methods.
+	 * 
+	 * @param delta
+	 *            the class delta
+	 */
+	void visitClassEnd(ClassDelta delta);
+
+	/**
+	 * Visits a jar delta after its classes.
+	 * 
+	 * @param delta
+	 *            the jar delta
+	 */
+	void visitJarEnd(JarDelta delta);
+
+}
@@ -0,0 +1,54 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.delta;
+
+/**
+ * A DeltaVisitor which does nothing and visits all members.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+public abstract class DeltaVisitorAdapter implements DeltaVisitor {
+
+	@Override
+	public void visitJar(JarDelta delta) {
+	}
+
+	@Override
+	public boolean visitClass(ClassDelta delta) {
+		return true;
+	}
+
+	@Override
+	public void visitField(FieldDelta delta) {
+	}
+
+	@Override
+	public void visitMethod(MethodDelta delta) {
+	}
+
+	@Override
+	public void visitClassEnd(ClassDelta delta) {
+	}
+
+	@Override
+	public void visitJarEnd(JarDelta delta) {
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.delta;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * A factory of entity deltas which shares the delta of a node to itself while
+ * it is in use. Interned nodes of unchanged entities are the same object in
+ * both versions, so their deltas are computed once.
+ * 
+ * @author Gian Perrone
+ * 
+ * @param <V>
+ *            the type of the nodes
+ * @param <D>
+ *            the type of the deltas
+ */
+abstract class EntityDeltaFactory<V, D extends AbstractDelta<V>> extends
+		DeltaFactory<V, D> {
+
+	// the keys are compared by identity
+	private final ConcurrentMap<V, D> unchanged =
+			new MapMaker().weakKeys().weakValues().makeMap();
+
+	abstract D newDelta(V from, V to);
+
+	@Override
+	final D createDelta(V from, V to) {
+
+		if (from == null || from != to)
+			return newDelta(from, to);
+
+		D delta = unchanged.get(from);
+
+		if (delta == null) {
+
+			delta = newDelta(from, from);
+
+			D previous = unchanged.putIfAbsent(from, delta);
+
+			if (previous != null)
+				delta = previous;
+
+		}
+
+		return delta;
+
+	}
+
+}
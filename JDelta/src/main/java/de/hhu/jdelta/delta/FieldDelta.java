@@ -71,7 +71,7 @@ public class FieldDelta extends EntityDelta<FieldNode> {
 
 	}
 
-	static class Factory extends DeltaFactory<FieldNode, FieldDelta> {
+	static class Factory extends EntityDeltaFactory<FieldNode, FieldDelta> {
 
 		private static Factory instance;
 
@@ -89,7 +89,7 @@ public class FieldDelta extends EntityDelta<FieldNode> {
 		}
 
 		@Override
-		FieldDelta createDelta(FieldNode from, FieldNode to) {
+		FieldDelta newDelta(FieldNode from, FieldNode to) {
 
 			return new FieldDelta(from, to);
 
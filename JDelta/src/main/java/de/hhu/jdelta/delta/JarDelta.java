@@ -20,6 +20,9 @@ package de.hhu.jdelta.delta;
 
 import com.google.common.collect.ImmutableSortedMap;
 
+import de.hhu.jdelta.jfr.JarDeltaEvent;
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.progress.ProgressListener.Phase;
 import de.hhu.jdelta.tree.JarNode;
 
 /**
@@ -44,10 +47,89 @@ public class JarDelta extends AbstractDelta<JarNode> {
 	 */
 	public JarDelta(JarNode from, JarNode to) {
 
+		this(from, to, ProgressListener.SILENT);
+
+	}
+
+	/**
+	 * Generates a delta between two JarNodes and reports the diffed classes to
+	 * a listener.
+	 * 
+	 * @param from
+	 *            the from
+	 * @param to
+	 *            the to
+	 * @param listener
+	 *            the progress listener
+	 */
+	public JarDelta(JarNode from, JarNode to, ProgressListener listener) {
+
 		super(from, to);
 
+		JarDeltaEvent event = new JarDeltaEvent();
+		event.begin();
+
+		int total = countKeys(from.getClasses(), to.getClasses());
+
+		listener.phaseStarted(Phase.DIFFING, to.getName(), total);
+
+		this.classDeltas =
+				createClassDeltaMap(from.getClasses(), to.getClasses(),
+						listener, total);
+
+		listener.phaseFinished(Phase.DIFFING);
+
+		if (event.shouldCommit()) {
+			event.fromName = from.getName();
+			event.toName = to.getName();
+			event.classCount = classDeltas.size();
+			event.commit();
+		}
+
+	}
+
+	private JarDelta(JarDelta previous, JarNode to, ProgressListener listener) {
+
+		super(previous.getFrom(), to);
+
+		JarDeltaEvent event = new JarDeltaEvent();
+		event.begin();
+
+		int total =
+				countKeys(previous.getFrom().getClasses(), to.getClasses());
+
+		listener.phaseStarted(Phase.DIFFING, to.getName(), total);
+
 		this.classDeltas =
-				createClassDeltaMap(from.getClasses(), to.getClasses());
+				updateClassDeltaMap(previous.getFrom().getClasses(),
+						to.getClasses(), previous.classDeltas, listener, total);
+
+		listener.phaseFinished(Phase.DIFFING);
+
+		if (event.shouldCommit()) {
+			event.fromName = previous.getFrom().getName();
+			event.toName = to.getName();
+			event.classCount = classDeltas.size();
+			event.commit();
+		}
+
+	}
+
+	/**
+	 * Generates a delta between the from of this delta and a new version of
+	 * the to. The ClassDeltas of classes whose ClassNodes are shared with the
+	 * old to, see {@link JarNode#update(java.io.File, ProgressListener)}, are
+	 * reused, so only the changed classes are diffed again.
+	 * 
+	 * @param to
+	 *            the new to
+	 * @param listener
+	 *            the progress listener
+	 * @return the updated delta
+	 */
+	public JarDelta update(JarNode to, ProgressListener listener) {
+
+		return new JarDelta(this, to, listener);
 
 	}
 
@@ -59,15 +141,11 @@ public class JarDelta extends AbstractDelta<JarNode> {
 	 */
 	public String getDeepDeclarationsDiff() {
 
-		StringBuilder str = new StringBuilder();
-
-		for (ClassDelta classDelta : classDeltas.values()) {
+		DeclarationsDiffWriter writer = new DeclarationsDiffWriter();
 
-			str.append(classDelta.getDeepDeclarationsDiff()).append("\n");
-
-		}
+		new DeltaDispatcher(writer).dispatch(this);
 
-		return str.toString();
+		return writer.toString();
 
 	}
 
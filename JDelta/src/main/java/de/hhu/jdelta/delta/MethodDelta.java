@@ -79,7 +79,7 @@ public class MethodDelta extends EntityDelta<MethodNode> {
 
 	}
 
-	static class Factory extends DeltaFactory<MethodNode, MethodDelta> {
+	static class Factory extends EntityDeltaFactory<MethodNode, MethodDelta> {
 
 		private static Factory instance;
 
@@ -97,7 +97,7 @@ public class MethodDelta extends EntityDelta<MethodNode> {
 		}
 
 		@Override
-		MethodDelta createDelta(MethodNode from, MethodNode to) {
+		MethodDelta newDelta(MethodNode from, MethodNode to) {
 
 			return new MethodDelta(from, to);
 
@@ -18,9 +18,19 @@
 
 package de.hhu.jdelta.delta;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+
 /**
  * A shallow delta, e.g. of two Strings.
  * 
+ * Deltas are immutable. Unchanged deltas of absent values, enums, class file
+ * versions and strings are shared instances, as are the maps of unchanged
+ * deltas between equal sets of strings.
+ * 
  * @author Gian Perrone
  * 
  * @param <T>
@@ -31,10 +41,36 @@ public class ShallowDelta<T> extends AbstractDelta<T> {
 	static class Factory<T> extends DeltaFactory<T, ShallowDelta<T>> {
 
 		private static Factory<Object> instance;
-
+		private static Factory<Object> cachingInstance;
+		private static StringFactory stringInstance;
+
+		/**
+		 * Returns a factory for deltas of a class. The unchanged deltas of
+		 * enums and of Integers, which are only used for class file versions,
+		 * are shared, because these have few distinct values. The unchanged
+		 * deltas of Strings are shared while they are in use.
+		 */
 		@SuppressWarnings("unchecked")
 		static <T> Factory<T> getInstance(Class<T> clazz) {
 
+			if (clazz.isEnum() || clazz == Integer.class) {
+
+				if (cachingInstance == null)
+					cachingInstance = new CachingFactory<Object>();
+
+				return (Factory<T>) cachingInstance;
+
+			}
+
+			if (clazz == String.class) {
+
+				if (stringInstance == null)
+					stringInstance = new StringFactory();
+
+				return (Factory<T>) (Factory<?>) stringInstance;
+
+			}
+
 			if (instance == null)
 				instance = new ShallowDelta.Factory<Object>();
 
@@ -42,15 +78,135 @@ public class ShallowDelta<T> extends AbstractDelta<T> {
 
 		}
 
+		@SuppressWarnings("unchecked")
 		@Override
 		ShallowDelta<T> createDelta(T from, T to) {
 
+			if (from == null && to == null)
+				return (ShallowDelta<T>) NULL;
+
 			return new ShallowDelta<T>(from, to);
 
 		}
 
+		/**
+		 * Returns the map of the unchanged deltas between a set and an equal
+		 * set.
+		 */
+		ImmutableSortedMap<T, ShallowDelta<T>> createUnchangedMap(
+				ImmutableSortedSet<T> values) {
+
+			ImmutableSortedMap.Builder<T, ShallowDelta<T>> builder =
+					new ImmutableSortedMap.Builder<T, ShallowDelta<T>>(values
+							.comparator());
+
+			for (T value : values)
+				builder.put(value, createDelta(value, value));
+
+			return builder.build();
+
+		}
+
 	}
 
+	static class CachingFactory<T> extends Factory<T> {
+
+		private final ConcurrentMap<T, ShallowDelta<T>> unchanged =
+				new ConcurrentHashMap<T, ShallowDelta<T>>();
+
+		@Override
+		ShallowDelta<T> createDelta(T from, T to) {
+
+			if (from == null || !from.equals(to))
+				return super.createDelta(from, to);
+
+			ShallowDelta<T> delta = unchanged.get(from);
+
+			if (delta == null) {
+
+				delta = new ShallowDelta<T>(from, from);
+
+				ShallowDelta<T> previous = unchanged.putIfAbsent(from, delta);
+
+				if (previous != null)
+					delta = previous;
+
+			}
+
+			return delta;
+
+		}
+
+	}
+
+	/**
+	 * Shares the unchanged deltas of Strings and of sets of Strings like
+	 * interfaces, annotations and exceptions. The values are weakly
+	 * referenced, so only the deltas in use keep their strings alive.
+	 */
+	static class StringFactory extends Factory<String> {
+
+		private final WeakValueCache<String, ShallowDelta<String>> unchanged =
+				new WeakValueCache<String, ShallowDelta<String>>();
+		private final WeakValueCache<ImmutableSortedSet<String>, ImmutableSortedMap<String, ShallowDelta<String>>> unchangedMaps =
+				new WeakValueCache<ImmutableSortedSet<String>, ImmutableSortedMap<String, ShallowDelta<String>>>();
+
+		@Override
+		ShallowDelta<String> createDelta(String from, String to) {
+
+			if (from == null || !from.equals(to))
+				return super.createDelta(from, to);
+
+			ShallowDelta<String> delta = unchanged.get(from);
+
+			if (delta == null) {
+
+				delta = new ShallowDelta<String>(from, from);
+
+				ShallowDelta<String> previous =
+						unchanged.putIfAbsent(from, delta);
+
+				if (previous != null)
+					delta = previous;
+
+			}
+
+			return delta;
+
+		}
+
+		@Override
+		ImmutableSortedMap<String, ShallowDelta<String>> createUnchangedMap(
+				ImmutableSortedSet<String> values) {
+
+			ImmutableSortedMap<String, ShallowDelta<String>> map =
+					unchangedMaps.get(values);
+
+			if (map == null) {
+
+				map = super.createUnchangedMap(values);
+
+				ImmutableSortedMap<String, ShallowDelta<String>> previous =
+						unchangedMaps.putIfAbsent(values, map);
+
+				if (previous != null)
+					map = previous;
+
+			}
+
+			return map;
+
+		}
+
+	}
+
+	/**
+	 * The shared delta between two absent values, e.g. two missing
+	 * signatures.
+	 */
+	private static final ShallowDelta<Object> NULL = new ShallowDelta<Object>(
+			null, null);
+
 	ShallowDelta(T from, T to) {
 
 		super(from, to);
@@ -0,0 +1,115 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.delta;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent cache whose values are weakly referenced. The entries of
+ * collected values are removed on the next access.
+ * 
+ * @author Gian Perrone
+ * 
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+final class WeakValueCache<K, V> {
+
+	private static final class Ref<K, V> extends WeakReference<V> {
+
+		private final K key;
+
+		Ref(K key, V value, ReferenceQueue<V> queue) {
+
+			super(value, queue);
+
+			this.key = key;
+
+		}
+
+	}
+
+	private final ConcurrentMap<K, Ref<K, V>> map =
+			new ConcurrentHashMap<K, Ref<K, V>>();
+	private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+
+	/**
+	 * Returns the cached value of a key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the value or null if there is none
+	 */
+	V get(K key) {
+
+		Ref<K, V> ref = map.get(key);
+
+		return ref != null ? ref.get() : null;
+
+	}
+
+	/**
+	 * Caches a value unless the key already has one.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the value cached before or null if the given value was cached
+	 */
+	V putIfAbsent(K key, V value) {
+
+		purge();
+
+		Ref<K, V> ref = new Ref<K, V>(key, value, queue);
+
+		while (true) {
+
+			Ref<K, V> previous = map.putIfAbsent(key, ref);
+
+			if (previous == null)
+				return null;
+
+			V previousValue = previous.get();
+
+			if (previousValue != null)
+				return previousValue;
+
+			if (map.replace(key, previous, ref))
+				return null;
+
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private void purge() {
+
+		for (Reference<? extends V> ref; (ref = queue.poll()) != null;)
+			map.remove(((Ref<K, V>) ref).key, ref);
+
+	}
+
+}
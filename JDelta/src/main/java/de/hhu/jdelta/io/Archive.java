@@ -0,0 +1,339 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Inflater;
+
+/**
+ * A read-only collection of named entries, e.g. a zip archive, a directory
+ * or a class path. An archive opened from a file should be closed when its
+ * entries have been read, so the file is not held open or mapped.
+ * 
+ * @author Gian Perrone
+ */
+public abstract class Archive implements Closeable {
+
+	/**
+	 * An entry of an archive.
+	 * 
+	 * @author Gian Perrone
+	 */
+	public interface Entry {
+
+		/**
+		 * Returns the name. Directories are separated by slashes.
+		 * 
+		 * @return the name
+		 */
+		String getName();
+
+		/**
+		 * Returns the uncompressed size.
+		 * 
+		 * @return the size
+		 */
+		long getSize();
+
+		/**
+		 * Returns a value which changes whenever the content of the entry
+		 * changes: the CRC-32 for zip entries and the modification time for
+		 * files. It is compared together with the size.
+		 * 
+		 * @return the stamp
+		 */
+		long getStamp();
+
+	}
+
+	/**
+	 * Opens a zip archive, a directory or a class path. A path which does not
+	 * exist but contains the path separator is opened as a class path of zip
+	 * files and directories. Fat jars and WARs are opened as the class path
+	 * of their own classes and nested jars.
+	 * 
+	 * @param file
+	 *            the zip file, directory or class path
+	 * @return the archive
+	 * @throws IOException
+	 */
+	public static Archive open(File file) throws IOException {
+
+		if (file.isDirectory())
+			return new DirectoryArchive(file);
+
+		String path = file.getPath();
+
+		if (!file.exists() && path.contains(File.pathSeparator)) {
+
+			List<File> files = new ArrayList<File>();
+
+			for (String element : path.split(File.pathSeparator))
+				if (element.length() > 0)
+					files.add(new File(element));
+
+			return ClassPathArchive.open(files);
+
+		}
+
+		ZipArchive archive = ZipArchive.open(file);
+
+		if (!FatJarArchive.isFatJar(archive))
+			return archive;
+
+		try {
+			return FatJarArchive.open(archive);
+		} catch (IOException e) {
+			archive.close();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Returns the name of the archive.
+	 * 
+	 * @return the name
+	 */
+	public abstract String getName();
+
+	/**
+	 * Returns the length of the archive in bytes.
+	 * 
+	 * @return the length
+	 */
+	public abstract long length();
+
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		return getEntries().size();
+	}
+
+	/**
+	 * Returns the entries.
+	 * 
+	 * @return the entries
+	 */
+	public abstract List<? extends Entry> getEntries();
+
+	/**
+	 * Returns the entry with the given name.
+	 * 
+	 * @param entryName
+	 *            the name of the entry
+	 * @return the entry or null if there is none
+	 */
+	public abstract Entry getEntry(String entryName);
+
+	/**
+	 * Reads the data of an entry of this archive.
+	 * 
+	 * The data may be held in a buffer which is owned by the calling thread
+	 * and reused by its next call. The result must therefore be consumed
+	 * before the next entry is read on the same thread.
+	 * 
+	 * @param entry
+	 *            the entry
+	 * @return a buffer holding the data between its position and its limit
+	 * @throws IOException
+	 */
+	public abstract ByteBuffer read(Entry entry) throws IOException;
+
+	/**
+	 * Releases the file behind the archive. Entries must not be read after
+	 * the archive was closed, and buffers returned by
+	 * {@link #read(Entry)} must not be used any more. Closing an archive
+	 * twice has no effect.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+
+	}
+
+	/**
+	 * Runs tasks which open archives in parallel.
+	 * 
+	 * @param tasks
+	 *            the tasks
+	 * @return the results in the order of the tasks
+	 * @throws IOException
+	 *             if a task failed
+	 */
+	static <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+
+		List<T> results = new ArrayList<T>();
+
+		try {
+
+			for (Future<T> future : ForkJoinPool.commonPool().invokeAll(tasks))
+				results.add(future.get());
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while opening archives");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+
+		return results;
+
+	}
+
+	/**
+	 * Reads the rest of a stream into the buffer of the calling thread. The
+	 * stream is not closed.
+	 * 
+	 * @param in
+	 *            the stream
+	 * @param sizeHint
+	 *            the expected number of bytes or -1 if it is unknown
+	 * @return a buffer holding the data between its position and its limit
+	 * @throws IOException
+	 */
+	static ByteBuffer readFully(InputStream in, long sizeHint)
+			throws IOException {
+
+		if (sizeHint > Integer.MAX_VALUE)
+			throw new IOException("Stream is larger than 2 GB");
+
+		byte[] bytes = threadBuffer(sizeHint >= 0 ? (int) sizeHint + 1 : 0);
+		int length = 0;
+
+		for (int n; (n = in.read(bytes, length, bytes.length - length)) != -1;) {
+
+			length += n;
+
+			if (length == bytes.length)
+				bytes = growThreadBuffer(length);
+
+		}
+
+		return ByteBuffer.wrap(bytes, 0, length);
+
+	}
+
+	/**
+	 * Returns a buffer of at least the given size which is owned by the
+	 * calling thread.
+	 * 
+	 * @param size
+	 *            the minimum size
+	 * @return the buffer
+	 */
+	static byte[] threadBuffer(int size) {
+
+		byte[] buffer = BUFFERS.get();
+
+		if (buffer.length < size) {
+			buffer = new byte[Math.max(size, buffer.length * 2)];
+			BUFFERS.set(buffer);
+		}
+
+		return buffer;
+
+	}
+
+	/**
+	 * Doubles the buffer of the calling thread and keeps its first bytes.
+	 * 
+	 * @param length
+	 *            the number of bytes to keep
+	 * @return the new buffer
+	 */
+	static byte[] growThreadBuffer(int length) {
+
+		byte[] buffer = BUFFERS.get();
+		byte[] grown = new byte[buffer.length * 2];
+		System.arraycopy(buffer, 0, grown, 0, length);
+		BUFFERS.set(grown);
+
+		return grown;
+
+	}
+
+	/**
+	 * Returns an Inflater for raw deflate data from the pool of the calling
+	 * thread.
+	 * 
+	 * @return the inflater
+	 */
+	static Inflater acquireInflater() {
+
+		Inflater inflater = INFLATERS.get().poll();
+
+		return inflater != null ? inflater : new Inflater(true);
+
+	}
+
+	/**
+	 * Resets an Inflater and returns it to the pool of the calling thread.
+	 * 
+	 * @param inflater
+	 *            the inflater
+	 */
+	static void releaseInflater(Inflater inflater) {
+
+		inflater.reset();
+		INFLATERS.get().push(inflater);
+
+	}
+
+	private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+	private static final ThreadLocal<byte[]> BUFFERS =
+			new ThreadLocal<byte[]>() {
+
+				@Override
+				protected byte[] initialValue() {
+					return new byte[INITIAL_BUFFER_SIZE];
+				}
+
+			};
+
+	private static final ThreadLocal<Deque<Inflater>> INFLATERS =
+			new ThreadLocal<Deque<Inflater>>() {
+
+				@Override
+				protected Deque<Inflater> initialValue() {
+					return new ArrayDeque<Inflater>();
+				}
+
+			};
+
+}
@@ -0,0 +1,86 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream reading the remaining bytes of a ByteBuffer. The buffer
+ * itself is not modified.
+ * 
+ * @author Gian Perrone
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * Creates a stream reading from the position to the limit of a buffer.
+	 * 
+	 * @param buffer
+	 *            the buffer
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+
+		this.buffer = buffer.duplicate();
+
+	}
+
+	@Override
+	public int read() {
+
+		return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+
+		if (len == 0)
+			return 0;
+
+		if (!buffer.hasRemaining())
+			return -1;
+
+		len = Math.min(len, buffer.remaining());
+		buffer.get(b, off, len);
+
+		return len;
+
+	}
+
+	@Override
+	public long skip(long n) {
+
+		int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + skipped);
+
+		return skipped;
+
+	}
+
+	@Override
+	public int available() {
+
+		return buffer.remaining();
+
+	}
+
+}
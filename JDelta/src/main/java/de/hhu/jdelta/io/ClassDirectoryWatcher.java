@@ -0,0 +1,179 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory tree for changed class files.
+ * 
+ * Compilers write many class files in a burst, so the changes are collected
+ * until no further change arrives for a quiet period.
+ * 
+ * @author Gian Perrone
+ */
+public class ClassDirectoryWatcher implements Closeable {
+
+	private final Path root;
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+	private boolean overflow = false;
+
+	/**
+	 * Starts watching a directory and its subdirectories.
+	 * 
+	 * @param directory
+	 *            the directory
+	 * @throws IOException
+	 */
+	public ClassDirectoryWatcher(File directory) throws IOException {
+
+		this.root = directory.toPath();
+		this.watchService = FileSystems.getDefault().newWatchService();
+
+		register(root);
+
+	}
+
+	private void register(Path directory) throws IOException {
+
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir,
+					BasicFileAttributes attributes) throws IOException {
+
+				directories.put(dir.register(watchService,
+						StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY,
+						StandardWatchEventKinds.ENTRY_DELETE), dir);
+
+				return FileVisitResult.CONTINUE;
+
+			}
+
+		});
+
+	}
+
+	/**
+	 * Blocks until class files below the directory change and returns the
+	 * entry names of the changed class files once no further change arrived
+	 * for the quiet period. New subdirectories are watched as well.
+	 * 
+	 * If the file system dropped events, the returned names may be
+	 * incomplete, which is reported by {@link #isOverflow()}.
+	 * 
+	 * @param quietMillis
+	 *            the quiet period in milliseconds
+	 * @return the entry names of the changed class files
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public SortedSet<String> awaitChanges(long quietMillis) throws IOException,
+			InterruptedException {
+
+		SortedSet<String> changed = new TreeSet<String>();
+		overflow = false;
+
+		while (changed.isEmpty() && !overflow) {
+
+			collect(watchService.take(), changed);
+
+			for (WatchKey key; (key =
+					watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null;)
+				collect(key, changed);
+
+		}
+
+		return changed;
+
+	}
+
+	private void collect(WatchKey key, SortedSet<String> changed)
+			throws IOException {
+
+		Path directory = directories.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				overflow = true;
+				continue;
+			}
+
+			Path path = directory.resolve((Path) event.context());
+
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+					&& Files.isDirectory(path)) {
+
+				register(path);
+
+				// class files may have been written before the registration
+				overflow = true;
+
+			} else if (path.toString().endsWith(".class")) {
+
+				changed.add(DirectoryArchive.entryName(root, path));
+
+			}
+
+		}
+
+		if (!key.reset())
+			directories.remove(key);
+
+	}
+
+	/**
+	 * Returns true if the last changes returned by
+	 * {@link #awaitChanges(long)} may be incomplete.
+	 * 
+	 * @return the overflow flag
+	 */
+	public boolean isOverflow() {
+		return overflow;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		watchService.close();
+
+	}
+
+}
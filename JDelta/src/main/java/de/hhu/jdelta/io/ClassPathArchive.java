@@ -0,0 +1,252 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * An archive which combines the entries of an ordered list of archives like
+ * a class path: if several archives contain an entry with the same name, the
+ * entry of the first one shadows the others.
+ * 
+ * @author Gian Perrone
+ */
+public class ClassPathArchive extends Archive {
+
+	/**
+	 * An entry of one of the archives of a class path.
+	 * 
+	 * @author Gian Perrone
+	 */
+	public static final class Entry implements Archive.Entry {
+
+		private final int index;
+		private final Archive archive;
+		private final Archive.Entry entry;
+
+		Entry(int index, Archive archive, Archive.Entry entry) {
+
+			this.index = index;
+			this.archive = archive;
+			this.entry = entry;
+
+		}
+
+		@Override
+		public String getName() {
+			return entry.getName();
+		}
+
+		@Override
+		public long getSize() {
+			return entry.getSize();
+		}
+
+		/**
+		 * Returns the stamp of the shadowing entry combined with the position
+		 * of its archive in the class path.
+		 * 
+		 * @return the stamp
+		 */
+		@Override
+		public long getStamp() {
+			return entry.getStamp() * 31 + index;
+		}
+
+		/**
+		 * Returns the archive which contains the entry.
+		 * 
+		 * @return the archive
+		 */
+		public Archive getArchive() {
+			return archive;
+		}
+
+		@Override
+		public String toString() {
+			return entry.toString();
+		}
+
+	}
+
+	private final List<Archive> archives;
+	private final Map<String, Entry> entries;
+	private final List<Entry> entryList;
+
+	/**
+	 * Combines the given archives.
+	 * 
+	 * @param archives
+	 *            the archives in class path order
+	 */
+	public ClassPathArchive(List<? extends Archive> archives) {
+
+		this.archives =
+				Collections.unmodifiableList(new ArrayList<Archive>(archives));
+
+		Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+		for (int i = 0; i < archives.size(); i++) {
+
+			Archive archive = archives.get(i);
+
+			for (Archive.Entry entry : archive.getEntries())
+				if (!entries.containsKey(entry.getName()))
+					entries.put(entry.getName(), new Entry(i, archive, entry));
+
+		}
+
+		this.entries = entries;
+		this.entryList =
+				Collections.unmodifiableList(new ArrayList<Entry>(entries
+						.values()));
+
+	}
+
+	/**
+	 * Opens the jars and directories of a class path in parallel.
+	 * 
+	 * @param files
+	 *            the jars and directories in class path order
+	 * @return the archive
+	 * @throws IOException
+	 */
+	public static ClassPathArchive open(List<File> files) throws IOException {
+
+		List<Callable<Archive>> tasks = new ArrayList<Callable<Archive>>();
+
+		for (final File file : files) {
+
+			tasks.add(new Callable<Archive>() {
+
+				@Override
+				public Archive call() throws IOException {
+					return Archive.open(file);
+				}
+
+			});
+
+		}
+
+		List<Archive> archives = invokeAll(tasks);
+
+		return new ClassPathArchive(archives);
+
+	}
+
+	/**
+	 * Closes the archives of the class path.
+	 * 
+	 * @throws IOException
+	 *             the first exception thrown by an archive
+	 */
+	@Override
+	public void close() throws IOException {
+
+		IOException exception = null;
+
+		for (Archive archive : archives) {
+
+			try {
+				archive.close();
+			} catch (IOException e) {
+				if (exception == null)
+					exception = e;
+			}
+
+		}
+
+		if (exception != null)
+			throw exception;
+
+	}
+
+	/**
+	 * Returns the archives in class path order.
+	 * 
+	 * @return the archives
+	 */
+	public List<Archive> getArchives() {
+		return archives;
+	}
+
+	/**
+	 * Returns the names of the archives separated by the path separator.
+	 * 
+	 * @return the name
+	 */
+	@Override
+	public String getName() {
+
+		List<String> names = new ArrayList<String>();
+
+		for (Archive archive : archives)
+			names.add(archive.getName());
+
+		return StringUtils.join(names, File.pathSeparator);
+
+	}
+
+	@Override
+	public long length() {
+
+		long length = 0;
+
+		for (Archive archive : archives)
+			length += archive.length();
+
+		return length;
+
+	}
+
+	@Override
+	public int size() {
+		return entryList.size();
+	}
+
+	@Override
+	public List<Entry> getEntries() {
+		return entryList;
+	}
+
+	@Override
+	public Entry getEntry(String entryName) {
+		return entries.get(entryName);
+	}
+
+	@Override
+	public ByteBuffer read(Archive.Entry archiveEntry) throws IOException {
+
+		Entry entry = (Entry) archiveEntry;
+
+		return entry.archive.read(entry.entry);
+
+	}
+
+}
@@ -0,0 +1,346 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An archive backed by a directory, e.g. the class output directory of a
+ * build. The files below the directory are its entries.
+ * 
+ * @author Gian Perrone
+ */
+public class DirectoryArchive extends Archive {
+
+	/**
+	 * A file of a DirectoryArchive.
+	 * 
+	 * @author Gian Perrone
+	 */
+	public static final class Entry implements Archive.Entry {
+
+		private final String name;
+		private final Path path;
+		private final long size;
+		private final long modified;
+
+		Entry(String name, Path path, BasicFileAttributes attributes) {
+
+			this.name = name;
+			this.path = path;
+			this.size = attributes.size();
+			this.modified =
+					attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns the modification time in nanoseconds. Rewrites within the
+		 * resolution of the file system are not visible.
+		 * 
+		 * @return the stamp
+		 */
+		@Override
+		public long getStamp() {
+			return modified;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+	/**
+	 * Lists a directory and forks a task for each subdirectory.
+	 */
+	private static final class Walk extends RecursiveTask<List<Entry>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path root;
+		private final Path directory;
+
+		Walk(Path root, Path directory) {
+
+			this.root = root;
+			this.directory = directory;
+
+		}
+
+		@Override
+		protected List<Entry> compute() {
+
+			List<Entry> files = new ArrayList<Entry>();
+			List<Walk> walks = new ArrayList<Walk>();
+
+			try {
+
+				DirectoryStream<Path> stream =
+						Files.newDirectoryStream(directory);
+
+				try {
+
+					for (Path path : stream) {
+
+						BasicFileAttributes attributes =
+								Files.readAttributes(path,
+										BasicFileAttributes.class,
+										LinkOption.NOFOLLOW_LINKS);
+
+						if (attributes.isDirectory())
+							walks.add(new Walk(root, path));
+						else if (attributes.isRegularFile())
+							files.add(new Entry(entryName(root, path), path,
+									attributes));
+
+					}
+
+				} finally {
+					stream.close();
+				}
+
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			for (Walk walk : invokeAll(walks))
+				files.addAll(walk.join());
+
+			return files;
+
+		}
+
+	}
+
+	private final File directory;
+	private final SortedMap<String, Entry> entries;
+	private final List<Entry> entryList;
+	private long length = 0;
+
+	/**
+	 * Lists the files below a directory. The subdirectories are listed in
+	 * parallel.
+	 * 
+	 * @param directory
+	 *            the directory
+	 * @throws IOException
+	 */
+	public DirectoryArchive(File directory) throws IOException {
+
+		this.directory = directory;
+
+		Path root = directory.toPath();
+		SortedMap<String, Entry> entries = new TreeMap<String, Entry>();
+
+		List<Entry> files;
+
+		try {
+			files = ForkJoinPool.commonPool().invoke(new Walk(root, root));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		for (Entry entry : files) {
+			entries.put(entry.getName(), entry);
+			length += entry.getSize();
+		}
+
+		this.entries = entries;
+		this.entryList =
+				Collections.unmodifiableList(new ArrayList<Entry>(entries
+						.values()));
+
+	}
+
+	/**
+	 * Reads the attributes of the given files below a directory without
+	 * listing it. Files which do not exist are left out.
+	 * 
+	 * @param directory
+	 *            the directory
+	 * @param entryNames
+	 *            the entry names of the files
+	 * @throws IOException
+	 */
+	public DirectoryArchive(File directory, Collection<String> entryNames)
+			throws IOException {
+
+		this.directory = directory;
+
+		Path root = directory.toPath();
+		SortedMap<String, Entry> entries = new TreeMap<String, Entry>();
+
+		for (String entryName : entryNames) {
+
+			Path path = root.resolve(entryName);
+			BasicFileAttributes attributes;
+
+			try {
+				attributes = Files.readAttributes(path,
+						BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			} catch (NoSuchFileException e) {
+				continue;
+			}
+
+			if (attributes.isRegularFile()) {
+				entries.put(entryName, new Entry(entryName, path, attributes));
+				length += attributes.size();
+			}
+
+		}
+
+		this.entries = entries;
+		this.entryList =
+				Collections.unmodifiableList(new ArrayList<Entry>(entries
+						.values()));
+
+	}
+
+	/**
+	 * Returns the entry name of a file below a directory.
+	 * 
+	 * @param root
+	 *            the directory
+	 * @param file
+	 *            the file
+	 * @return the name with slashes as separators
+	 */
+	public static String entryName(Path root, Path file) {
+
+		Path relative = root.relativize(file);
+		StringBuilder name = new StringBuilder();
+
+		for (Path part : relative) {
+
+			if (name.length() > 0)
+				name.append('/');
+
+			name.append(part.toString());
+
+		}
+
+		return name.toString();
+
+	}
+
+	/**
+	 * Returns the directory.
+	 * 
+	 * @return the directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public String getName() {
+		return directory.getPath();
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public int size() {
+		return entryList.size();
+	}
+
+	@Override
+	public List<Entry> getEntries() {
+		return entryList;
+	}
+
+	@Override
+	public Entry getEntry(String entryName) {
+		return entries.get(entryName);
+	}
+
+	/**
+	 * Reads a file into the buffer of the calling thread.
+	 * 
+	 * @param archiveEntry
+	 *            an entry of this archive
+	 * @return a buffer holding the data between its position and its limit
+	 * @throws IOException
+	 */
+	@Override
+	public ByteBuffer read(Archive.Entry archiveEntry) throws IOException {
+
+		Entry entry = (Entry) archiveEntry;
+		FileChannel channel = FileChannel.open(entry.path,
+				StandardOpenOption.READ);
+
+		try {
+
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE)
+				throw new IOException(entry + " is larger than 2 GB");
+
+			byte[] bytes = threadBuffer((int) size);
+			ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, (int) size);
+
+			while (buffer.hasRemaining() && channel.read(buffer) != -1)
+				;
+
+			buffer.flip();
+
+			return buffer;
+
+		} finally {
+			channel.close();
+		}
+
+	}
+
+}
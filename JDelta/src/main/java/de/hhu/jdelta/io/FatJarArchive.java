@@ -0,0 +1,192 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+/**
+ * A fat jar or WAR, i.e. a zip archive which contains its own classes below
+ * BOOT-INF/classes/ or WEB-INF/classes/ and the jars of its dependencies
+ * below BOOT-INF/lib/ or WEB-INF/lib/.
+ * 
+ * As a class path, the archive contains the own classes followed by the
+ * dependencies in the order of their names. Each of them is also available
+ * as an artifact of its own. The nested jars are opened in parallel and
+ * stored ones are read in place.
+ * 
+ * @author Gian Perrone
+ */
+public class FatJarArchive extends ClassPathArchive {
+
+	private static final String[] CLASSES_PREFIXES = { "BOOT-INF/classes/",
+			"WEB-INF/classes/" };
+	private static final String[] LIB_PREFIXES = { "BOOT-INF/lib/",
+			"WEB-INF/lib/" };
+
+	private final ZipArchive archive;
+	private final SortedMap<String, Archive> artifacts;
+
+	private FatJarArchive(ZipArchive archive, List<Archive> archives,
+			SortedMap<String, Archive> artifacts) {
+
+		super(archives);
+
+		this.archive = archive;
+		this.artifacts = Collections.unmodifiableSortedMap(artifacts);
+
+	}
+
+	/**
+	 * Returns true if a zip archive contains classes or jars at the places of
+	 * a fat jar or WAR.
+	 * 
+	 * @param archive
+	 *            the archive
+	 * @return the fat jar flag
+	 */
+	public static boolean isFatJar(ZipArchive archive) {
+
+		for (ZipArchive.Entry entry : archive.getEntries())
+			if (isClassesEntry(entry.getName()) || isLibEntry(entry.getName()))
+				return true;
+
+		return false;
+
+	}
+
+	private static boolean isClassesEntry(String name) {
+
+		for (String prefix : CLASSES_PREFIXES)
+			if (name.startsWith(prefix))
+				return true;
+
+		return false;
+
+	}
+
+	private static boolean isLibEntry(String name) {
+
+		for (String prefix : LIB_PREFIXES)
+			if (name.startsWith(prefix) && name.endsWith(".jar")
+					&& name.indexOf('/', prefix.length()) < 0)
+				return true;
+
+		return false;
+
+	}
+
+	/**
+	 * Opens the own classes and the nested jars of a fat jar or WAR.
+	 * 
+	 * @param archive
+	 *            the fat jar
+	 * @return the archive
+	 * @throws IOException
+	 */
+	public static FatJarArchive open(final ZipArchive archive)
+			throws IOException {
+
+		SortedMap<String, Archive> artifacts = new TreeMap<String, Archive>();
+		List<Archive> archives = new ArrayList<Archive>();
+
+		for (String prefix : CLASSES_PREFIXES) {
+
+			PrefixArchive classes = new PrefixArchive(archive, prefix);
+
+			if (classes.size() > 0) {
+				artifacts.put(prefix, classes);
+				archives.add(classes);
+			}
+
+		}
+
+		List<String> libs = new ArrayList<String>();
+		List<Callable<ZipArchive>> tasks = new ArrayList<Callable<ZipArchive>>();
+
+		for (final ZipArchive.Entry entry : archive.getEntries()) {
+
+			if (!isLibEntry(entry.getName()))
+				continue;
+
+			libs.add(entry.getName());
+			tasks.add(new Callable<ZipArchive>() {
+
+				@Override
+				public ZipArchive call() throws IOException {
+					return archive.openNested(entry);
+				}
+
+			});
+
+		}
+
+		List<ZipArchive> nested = invokeAll(tasks);
+
+		for (int i = 0; i < nested.size(); i++) {
+			artifacts.put(libs.get(i), nested.get(i));
+			archives.add(nested.get(i));
+		}
+
+		return new FatJarArchive(archive, archives, artifacts);
+
+	}
+
+	/**
+	 * Returns the artifacts of the fat jar: the own classes, named after their
+	 * directory, and the nested jars, named after their entries.
+	 * 
+	 * @return the artifacts
+	 */
+	public SortedMap<String, Archive> getArtifacts() {
+		return artifacts;
+	}
+
+	/**
+	 * Closes the nested archives and the fat jar itself.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+
+		try {
+			super.close();
+		} finally {
+			archive.close();
+		}
+
+	}
+
+	@Override
+	public String getName() {
+		return archive.getName();
+	}
+
+	@Override
+	public long length() {
+		return archive.length();
+	}
+
+}
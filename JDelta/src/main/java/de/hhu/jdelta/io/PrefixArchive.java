@@ -0,0 +1,152 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The entries of an archive below a directory, with the directory stripped
+ * from their names.
+ * 
+ * @author Gian Perrone
+ */
+public class PrefixArchive extends Archive {
+
+	/**
+	 * An entry of a PrefixArchive.
+	 * 
+	 * @author Gian Perrone
+	 */
+	public static final class Entry implements Archive.Entry {
+
+		private final String name;
+		private final Archive.Entry entry;
+
+		Entry(String name, Archive.Entry entry) {
+
+			this.name = name;
+			this.entry = entry;
+
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public long getSize() {
+			return entry.getSize();
+		}
+
+		@Override
+		public long getStamp() {
+			return entry.getStamp();
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+	private final Archive archive;
+	private final String prefix;
+	private final Map<String, Entry> entries;
+	private final List<Entry> entryList;
+	private long length = 0;
+
+	/**
+	 * Creates a view of the entries of an archive whose names start with a
+	 * prefix.
+	 * 
+	 * @param archive
+	 *            the archive
+	 * @param prefix
+	 *            the prefix, e.g. "BOOT-INF/classes/"
+	 */
+	public PrefixArchive(Archive archive, String prefix) {
+
+		this.archive = archive;
+		this.prefix = prefix;
+
+		Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+		for (Archive.Entry entry : archive.getEntries()) {
+
+			String entryName = entry.getName();
+
+			if (entryName.startsWith(prefix)
+					&& entryName.length() > prefix.length()) {
+
+				String name = entryName.substring(prefix.length());
+				entries.put(name, new Entry(name, entry));
+				length += entry.getSize();
+
+			}
+
+		}
+
+		this.entries = entries;
+		this.entryList =
+				Collections.unmodifiableList(new ArrayList<Entry>(entries
+						.values()));
+
+	}
+
+	@Override
+	public String getName() {
+		return archive.getName() + "!/" + prefix;
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public int size() {
+		return entryList.size();
+	}
+
+	@Override
+	public List<Entry> getEntries() {
+		return entryList;
+	}
+
+	@Override
+	public Entry getEntry(String entryName) {
+		return entries.get(entryName);
+	}
+
+	@Override
+	public ByteBuffer read(Archive.Entry archiveEntry) throws IOException {
+
+		return archive.read(((Entry) archiveEntry).entry);
+
+	}
+
+}
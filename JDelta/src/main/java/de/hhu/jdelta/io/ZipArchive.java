@@ -0,0 +1,552 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A read-only zip archive backed by a ByteBuffer.
+ * 
+ * The central directory is read once. Entries are read into a buffer which is
+ * pooled per thread, and deflated entries are inflated with Inflaters which
+ * are pooled per thread as well, so reading many entries allocates almost
+ * nothing. Stored entries are returned as slices of the archive without
+ * copying.
+ * 
+ * Files are memory-mapped, which limits them to 2 GB. The mapping is released
+ * by the garbage collector once neither the archive, nor a nested archive,
+ * nor a buffer read from it is reachable. Unmapping it on close would crash
+ * the JVM on a later access to such a buffer.
+ * 
+ * @author Gian Perrone
+ */
+public class ZipArchive extends Archive {
+
+	private static final int EOCD_SIGNATURE = 0x06054b50;
+	private static final int EOCD64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int EOCD64_SIGNATURE = 0x06064b50;
+	private static final int CEN_SIGNATURE = 0x02014b50;
+	private static final int LOC_SIGNATURE = 0x04034b50;
+
+	private static final int EOCD_SIZE = 22;
+	private static final int CEN_SIZE = 46;
+	private static final int LOC_SIZE = 30;
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	private static final long ZIP64_MAGIC = 0xffffffffL;
+
+	/**
+	 * An entry of a zip archive.
+	 * 
+	 * @author Gian Perrone
+	 */
+	public static final class Entry implements Archive.Entry {
+
+		private final String name;
+		private final int method;
+		private final long crc;
+		private final long compressedSize;
+		private final long size;
+		private final long localHeaderOffset;
+
+		Entry(String name, int method, long crc, long compressedSize,
+				long size, long localHeaderOffset) {
+
+			this.name = name;
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+
+		}
+
+		/**
+		 * Returns the name.
+		 * 
+		 * @return the name
+		 */
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the CRC-32 of the uncompressed data.
+		 * 
+		 * @return the crc
+		 */
+		public long getCrc() {
+			return crc;
+		}
+
+		/**
+		 * Returns the uncompressed size.
+		 * 
+		 * @return the size
+		 */
+		@Override
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns the CRC-32.
+		 * 
+		 * @return the stamp
+		 */
+		@Override
+		public long getStamp() {
+			return crc;
+		}
+
+		/**
+		 * Returns true if the entry is a directory.
+		 * 
+		 * @return the directory flag
+		 */
+		public boolean isDirectory() {
+			return name.endsWith("/");
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+	private final String name;
+	private final ByteBuffer buffer;
+	private final List<Entry> entries;
+
+	private Map<String, Entry> entryMap;
+	private long prefixLength;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Reads the central directory of an archive held in a buffer. The bytes
+	 * between the position and the limit of the buffer are used.
+	 * 
+	 * @param buffer
+	 *            the buffer
+	 * @param name
+	 *            the name of the archive
+	 * @throws IOException
+	 *             if the buffer does not contain a zip archive
+	 */
+	public ZipArchive(ByteBuffer buffer, String name) throws IOException {
+
+		this.name = name;
+		this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		this.entries = Collections.unmodifiableList(readCentralDirectory());
+
+	}
+
+	/**
+	 * Opens a zip archive by mapping the file into memory.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the archive
+	 * @throws IOException
+	 */
+	public static ZipArchive open(File file) throws IOException {
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+
+			FileChannel channel = raf.getChannel();
+
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(file + " is larger than 2 GB");
+
+			return new ZipArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size()), file.getPath());
+
+		} finally {
+			raf.close();
+		}
+
+	}
+
+	private List<Entry> readCentralDirectory() throws IOException {
+
+		int eocd = findEndOfCentralDirectory();
+
+		long count = buffer.getShort(eocd + 10) & 0xffff;
+		long offset = buffer.getInt(eocd + 16) & 0xffffffffL;
+
+		// the offsets of an archive written after a launcher prefix may be
+		// relative to the start of the archive instead of the file
+		long base = eocd - (buffer.getInt(eocd + 12) & 0xffffffffL) - offset;
+
+		int locator = eocd - 20;
+
+		if (locator >= 0 && buffer.getInt(locator) == EOCD64_LOCATOR_SIGNATURE) {
+
+			int eocd64 = checkedOffset(buffer.getLong(locator + 8));
+
+			if (buffer.getInt(eocd64) != EOCD64_SIGNATURE)
+				throw new IOException("Invalid zip64 end header in " + name);
+
+			count = buffer.getLong(eocd64 + 32);
+			offset = buffer.getLong(eocd64 + 48);
+			base = 0;
+
+		}
+
+		if (base < 0)
+			throw new IOException("Invalid central directory in " + name);
+
+		List<Entry> entries = new ArrayList<Entry>((int) Math.min(count, 1 << 16));
+		int pos = checkedOffset(base + offset);
+
+		prefixLength = pos;
+
+		for (long i = 0; i < count; i++) {
+
+			if (buffer.getInt(pos) != CEN_SIGNATURE)
+				throw new IOException("Invalid central directory in " + name);
+
+			int method = buffer.getShort(pos + 10) & 0xffff;
+			long crc = buffer.getInt(pos + 16) & 0xffffffffL;
+			long compressedSize = buffer.getInt(pos + 20) & 0xffffffffL;
+			long size = buffer.getInt(pos + 24) & 0xffffffffL;
+			int nameLength = buffer.getShort(pos + 28) & 0xffff;
+			int extraLength = buffer.getShort(pos + 30) & 0xffff;
+			int commentLength = buffer.getShort(pos + 32) & 0xffff;
+			long localHeaderOffset = buffer.getInt(pos + 42) & 0xffffffffL;
+
+			String entryName = string(pos + CEN_SIZE, nameLength);
+
+			if (size == ZIP64_MAGIC || compressedSize == ZIP64_MAGIC
+					|| localHeaderOffset == ZIP64_MAGIC) {
+
+				int extra = pos + CEN_SIZE + nameLength;
+				int end = extra + extraLength;
+
+				while (extra + 4 <= end) {
+
+					int id = buffer.getShort(extra) & 0xffff;
+					int length = buffer.getShort(extra + 2) & 0xffff;
+
+					if (id == 1) {
+
+						int field = extra + 4;
+
+						if (size == ZIP64_MAGIC) {
+							size = buffer.getLong(field);
+							field += 8;
+						}
+
+						if (compressedSize == ZIP64_MAGIC) {
+							compressedSize = buffer.getLong(field);
+							field += 8;
+						}
+
+						if (localHeaderOffset == ZIP64_MAGIC)
+							localHeaderOffset = buffer.getLong(field);
+
+						break;
+
+					}
+
+					extra += 4 + length;
+
+				}
+
+			}
+
+			entries.add(new Entry(entryName, method, crc, compressedSize, size,
+					base + localHeaderOffset));
+
+			prefixLength = Math.min(prefixLength, base + localHeaderOffset);
+
+			pos += CEN_SIZE + nameLength + extraLength + commentLength;
+
+		}
+
+		return entries;
+
+	}
+
+	private int findEndOfCentralDirectory() throws IOException {
+
+		int min = Math.max(0, buffer.limit() - EOCD_SIZE - 0xffff);
+
+		for (int pos = buffer.limit() - EOCD_SIZE; pos >= min; pos--) {
+
+			if (buffer.getInt(pos) == EOCD_SIGNATURE)
+				return pos;
+
+		}
+
+		throw new IOException(name + " is not a zip archive");
+
+	}
+
+	private int checkedOffset(long offset) throws IOException {
+
+		if (offset < 0 || offset >= buffer.limit())
+			throw new IOException("Invalid offset " + offset + " in " + name);
+
+		return (int) offset;
+
+	}
+
+	private String string(int pos, int length) {
+
+		byte[] bytes = new byte[length];
+		ByteBuffer dup = buffer.duplicate();
+		dup.position(pos);
+		dup.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+
+	}
+
+	/**
+	 * Returns the name of the archive.
+	 * 
+	 * @return the name
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the length of the archive in bytes.
+	 * 
+	 * @return the length
+	 */
+	@Override
+	public long length() {
+		return buffer.limit();
+	}
+
+	/**
+	 * Returns the number of bytes before the first entry, e.g. of a launcher
+	 * script.
+	 * 
+	 * @return the length of the prefix
+	 */
+	public long getPrefixLength() {
+		return prefixLength;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return the size
+	 */
+	@Override
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the entries in the order of the central directory.
+	 * 
+	 * @return the entries
+	 */
+	@Override
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Returns the entry with the given name.
+	 * 
+	 * @param entryName
+	 *            the name of the entry
+	 * @return the entry or null if there is none
+	 */
+	@Override
+	public synchronized Entry getEntry(String entryName) {
+
+		if (entryMap == null) {
+
+			entryMap = new HashMap<String, Entry>();
+
+			for (Entry entry : entries)
+				if (!entryMap.containsKey(entry.getName()))
+					entryMap.put(entry.getName(), entry);
+
+		}
+
+		return entryMap.get(entryName);
+
+	}
+
+	/**
+	 * Returns the raw data of an entry as it is stored in the archive.
+	 * 
+	 * @param entry
+	 *            the entry
+	 * @return a read-only buffer holding the (possibly compressed) data
+	 * @throws IOException
+	 */
+	ByteBuffer data(Entry entry) throws IOException {
+
+		if (closed)
+			throw new IOException(name + " is closed");
+
+		int loc = checkedOffset(entry.localHeaderOffset);
+
+		if (buffer.getInt(loc) != LOC_SIGNATURE)
+			throw new IOException("Invalid local header of " + entry
+					+ " in " + name);
+
+		int start =
+				loc + LOC_SIZE + (buffer.getShort(loc + 26) & 0xffff)
+						+ (buffer.getShort(loc + 28) & 0xffff);
+
+		if (start + entry.compressedSize > buffer.limit())
+			throw new IOException("Truncated entry " + entry + " in " + name);
+
+		ByteBuffer data = buffer.asReadOnlyBuffer();
+		data.position(start);
+		data.limit(start + (int) entry.compressedSize);
+
+		return data.slice();
+
+	}
+
+	/**
+	 * Reads the uncompressed data of an entry. Stored entries are returned as
+	 * slices of the archive, deflated entries are inflated into the buffer of
+	 * the calling thread.
+	 * 
+	 * @param archiveEntry
+	 *            an entry of this archive
+	 * @return a buffer holding the data between its position and its limit
+	 * @throws IOException
+	 */
+	@Override
+	public ByteBuffer read(Archive.Entry archiveEntry) throws IOException {
+
+		Entry entry = (Entry) archiveEntry;
+		ByteBuffer data = data(entry);
+
+		if (entry.method == STORED)
+			return data;
+
+		if (entry.method != DEFLATED)
+			throw new IOException("Unsupported compression method "
+					+ entry.method + " of " + entry + " in " + name);
+
+		if (entry.size > Integer.MAX_VALUE)
+			throw new IOException(entry + " is larger than 2 GB");
+
+		int size = (int) entry.size;
+		byte[] out = threadBuffer(size);
+
+		Inflater inflater = acquireInflater();
+
+		try {
+
+			inflater.setInput(data);
+
+			int length = 0;
+
+			while (length < size) {
+
+				int n = inflater.inflate(out, length, size - length);
+
+				if (inflater.needsDictionary())
+					throw new IOException("Corrupt entry " + entry + " in "
+							+ name);
+
+				if (n == 0 && (inflater.finished() || inflater.needsInput()))
+					break;
+
+				length += n;
+
+			}
+
+			if (length != size)
+				throw new IOException("Corrupt entry " + entry + " in " + name);
+
+			return ByteBuffer.wrap(out, 0, size);
+
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt entry " + entry + " in " + name, e);
+		} finally {
+			releaseInflater(inflater);
+		}
+
+	}
+
+	/**
+	 * Marks the archive as closed, so its entries cannot be read any more.
+	 * Buffers which were read before stay valid, see above.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+
+		closed = true;
+
+	}
+
+	/**
+	 * Opens a zip archive which is an entry of this archive. A stored entry is
+	 * read in place without copying, a deflated entry is inflated into memory.
+	 * 
+	 * @param entry
+	 *            the entry
+	 * @return the nested archive, named after this archive and the entry
+	 * @throws IOException
+	 */
+	public ZipArchive openNested(Entry entry) throws IOException {
+
+		String nestedName = name + "!/" + entry.getName();
+
+		if (entry.method == STORED)
+			return new ZipArchive(data(entry), nestedName);
+
+		ByteBuffer data = read(entry);
+		byte[] bytes = new byte[data.remaining()];
+		data.get(bytes);
+
+		return new ZipArchive(ByteBuffer.wrap(bytes), nestedName);
+
+	}
+
+}
@@ -0,0 +1,531 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the entries of a zip archive from a stream in the order in which they
+ * are stored.
+ * 
+ * Unlike ZipInputStream, entries are inflated in one go into the buffer of the
+ * calling thread with a pooled Inflater, the CRC is not verified, and entries
+ * which are not read are skipped without inflating them if their compressed
+ * size is known. If the stream already is a ZipInputStream, e.g. a
+ * JarInputStream, its entries are read instead.
+ * 
+ * @author Gian Perrone
+ */
+public class ZipStreamReader {
+
+	private static final int LOC_SIGNATURE = 0x04034b50;
+	private static final int DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+	private static final int LOC_SIZE = 30;
+
+	private static final int FLAG_ENCRYPTED = 1;
+	private static final int FLAG_DESCRIPTOR = 8;
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	private static final long ZIP64_MAGIC = 0xffffffffL;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * An entry read from a stream. The CRC and the size of entries which are
+	 * followed by a data descriptor are only known after their data were
+	 * read.
+	 * 
+	 * @author Gian Perrone
+	 */
+	public static final class Entry implements Archive.Entry {
+
+		private final String name;
+		private final int method;
+		private final int flags;
+		private final boolean zip64;
+
+		private long crc;
+		private long compressedSize;
+		private long size;
+
+		Entry(String name, int method, int flags, boolean zip64, long crc,
+				long compressedSize, long size) {
+
+			this.name = name;
+			this.method = method;
+			this.flags = flags;
+			this.zip64 = zip64;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the uncompressed size.
+		 * 
+		 * @return the size or -1 if it is not known yet
+		 */
+		@Override
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns the CRC-32.
+		 * 
+		 * @return the stamp or -1 if it is not known yet
+		 */
+		@Override
+		public long getStamp() {
+			return crc;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+	private final InputStream in;
+	private final ZipInputStream zip;
+
+	private final byte[] buffer;
+	private int pos = 0;
+	private int limit = 0;
+
+	private Entry current;
+	private ZipEntry currentZipEntry;
+	private boolean consumed = true;
+
+	/**
+	 * Creates a reader for a stream positioned at the start of a zip archive
+	 * or for a ZipInputStream.
+	 * 
+	 * @param in
+	 *            the stream
+	 */
+	public ZipStreamReader(InputStream in) {
+
+		this.in = in;
+
+		if (in instanceof ZipInputStream) {
+			this.zip = (ZipInputStream) in;
+			this.buffer = null;
+		} else {
+			this.zip = null;
+			this.buffer = new byte[BUFFER_SIZE];
+		}
+
+	}
+
+	/**
+	 * Advances to the next entry. The data of the current entry are skipped
+	 * if they were not read.
+	 * 
+	 * @return the next entry or null at the end of the entries
+	 * @throws IOException
+	 */
+	public Entry next() throws IOException {
+
+		if (zip != null)
+			return nextZipEntry();
+
+		if (!consumed)
+			skipData();
+
+		current = null;
+
+		if (!ensure(4) || s4(pos) != LOC_SIGNATURE)
+			return null;
+
+		if (!ensure(LOC_SIZE))
+			throw new EOFException("Truncated local header");
+
+		int flags = u2(pos + 6);
+		int method = u2(pos + 8);
+		long crc = s4(pos + 14) & 0xffffffffL;
+		long compressedSize = s4(pos + 18) & 0xffffffffL;
+		long size = s4(pos + 22) & 0xffffffffL;
+		int nameLength = u2(pos + 26);
+		int extraLength = u2(pos + 28);
+
+		pos += LOC_SIZE;
+
+		if (!ensure(nameLength))
+			throw new EOFException("Truncated local header");
+
+		String name =
+				new String(buffer, pos, nameLength, StandardCharsets.UTF_8);
+		pos += nameLength;
+
+		if (!ensure(extraLength))
+			throw new EOFException("Truncated local header");
+
+		boolean zip64 = false;
+		int extra = pos;
+		int end = pos + extraLength;
+
+		while (extra + 4 <= end) {
+
+			int id = u2(extra);
+			int length = u2(extra + 2);
+
+			if (id == 1) {
+
+				zip64 = true;
+				int field = extra + 4;
+
+				if (size == ZIP64_MAGIC) {
+					size = s8(field);
+					field += 8;
+				}
+
+				if (compressedSize == ZIP64_MAGIC)
+					compressedSize = s8(field);
+
+			}
+
+			extra += 4 + length;
+
+		}
+
+		pos = end;
+
+		if ((flags & FLAG_ENCRYPTED) != 0)
+			throw new IOException("Encrypted entry " + name);
+
+		if ((flags & FLAG_DESCRIPTOR) != 0) {
+			crc = -1;
+			compressedSize = -1;
+			size = -1;
+		}
+
+		current =
+				new Entry(name, method, flags, zip64, crc, compressedSize, size);
+		consumed = false;
+
+		return current;
+
+	}
+
+	private Entry nextZipEntry() throws IOException {
+
+		currentZipEntry = zip.getNextEntry();
+
+		if (currentZipEntry == null)
+			return current = null;
+
+		current =
+				new Entry(currentZipEntry.getName(),
+						currentZipEntry.getMethod(), 0, false,
+						currentZipEntry.getCrc(),
+						currentZipEntry.getCompressedSize(),
+						currentZipEntry.getSize());
+		consumed = false;
+
+		return current;
+
+	}
+
+	/**
+	 * Reads the uncompressed data of the current entry into the buffer of the
+	 * calling thread. The result must be consumed before the next entry is
+	 * read on the same thread.
+	 * 
+	 * @return a buffer holding the data between its position and its limit
+	 * @throws IOException
+	 */
+	public ByteBuffer read() throws IOException {
+
+		if (current == null || consumed)
+			throw new IOException("No entry to read");
+
+		consumed = true;
+
+		if (zip != null) {
+
+			ByteBuffer data = Archive.readFully(zip, currentZipEntry.getSize());
+
+			current.crc = currentZipEntry.getCrc();
+			current.size = data.remaining();
+
+			return data;
+
+		}
+
+		ByteBuffer data;
+
+		if (current.method == STORED) {
+
+			if (current.compressedSize < 0)
+				throw new IOException("Stored entry " + current
+						+ " without size");
+
+			data = copy(checkedSize(current.compressedSize));
+
+		} else if (current.method == DEFLATED) {
+
+			data = inflate(true);
+
+		} else {
+
+			throw new IOException("Unsupported compression method "
+					+ current.method + " of " + current);
+
+		}
+
+		readDescriptor();
+		current.size = data.remaining();
+
+		return data;
+
+	}
+
+	private void skipData() throws IOException {
+
+		consumed = true;
+
+		if (current.compressedSize >= 0) {
+
+			long n = current.compressedSize;
+
+			int buffered = (int) Math.min(n, limit - pos);
+			pos += buffered;
+			n -= buffered;
+
+			while (n > 0) {
+
+				long skipped = in.skip(n);
+
+				if (skipped <= 0) {
+
+					if (in.read() == -1)
+						throw new EOFException("Truncated entry " + current);
+
+					skipped = 1;
+
+				}
+
+				n -= skipped;
+
+			}
+
+		} else if (current.method == DEFLATED) {
+
+			inflate(false);
+
+		} else {
+
+			throw new IOException("Stored entry " + current + " without size");
+
+		}
+
+		readDescriptor();
+
+	}
+
+	private ByteBuffer copy(int size) throws IOException {
+
+		byte[] out = Archive.threadBuffer(size);
+
+		int buffered = Math.min(size, limit - pos);
+		System.arraycopy(buffer, pos, out, 0, buffered);
+		pos += buffered;
+
+		for (int length = buffered; length < size;) {
+
+			int n = in.read(out, length, size - length);
+
+			if (n == -1)
+				throw new EOFException("Truncated entry " + current);
+
+			length += n;
+
+		}
+
+		return ByteBuffer.wrap(out, 0, size);
+
+	}
+
+	private ByteBuffer inflate(boolean keep) throws IOException {
+
+		byte[] out =
+				Archive.threadBuffer(current.size >= 0 ? checkedSize(current.size) + 1
+						: 0);
+		int length = 0;
+
+		long remaining =
+				current.compressedSize >= 0 ? current.compressedSize
+						: Long.MAX_VALUE;
+		int fed = 0;
+
+		Inflater inflater = Archive.acquireInflater();
+
+		try {
+
+			while (!inflater.finished()) {
+
+				if (inflater.needsInput()) {
+
+					pos += fed;
+					remaining -= fed;
+
+					if (remaining == 0 || (pos == limit && !fill()))
+						throw new EOFException("Truncated entry " + current);
+
+					fed = (int) Math.min(limit - pos, remaining);
+					inflater.setInput(buffer, pos, fed);
+
+				}
+
+				length += inflater.inflate(out, length, out.length - length);
+
+				if (inflater.needsDictionary())
+					throw new IOException("Corrupt entry " + current);
+
+				if (length == out.length) {
+
+					if (keep)
+						out = Archive.growThreadBuffer(length);
+					else
+						length = 0;
+
+				}
+
+			}
+
+			pos += fed - inflater.getRemaining();
+
+			return keep ? ByteBuffer.wrap(out, 0, length) : null;
+
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt entry " + current, e);
+		} finally {
+			Archive.releaseInflater(inflater);
+		}
+
+	}
+
+	private void readDescriptor() throws IOException {
+
+		if ((current.flags & FLAG_DESCRIPTOR) == 0)
+			return;
+
+		int size = current.zip64 ? 20 : 12;
+
+		if (!ensure(4 + size))
+			throw new EOFException("Truncated data descriptor of " + current);
+
+		if (s4(pos) == DESCRIPTOR_SIGNATURE)
+			pos += 4;
+
+		current.crc = s4(pos) & 0xffffffffL;
+		current.compressedSize =
+				current.zip64 ? s8(pos + 4) : s4(pos + 4) & 0xffffffffL;
+
+		pos += size;
+
+	}
+
+	private static int checkedSize(long size) throws IOException {
+
+		if (size > Integer.MAX_VALUE - 1)
+			throw new IOException("Entry is larger than 2 GB");
+
+		return (int) size;
+
+	}
+
+	private boolean fill() throws IOException {
+
+		pos = 0;
+		limit = 0;
+
+		int n = in.read(buffer, 0, buffer.length);
+
+		if (n == -1)
+			return false;
+
+		limit = n;
+
+		return true;
+
+	}
+
+	private boolean ensure(int n) throws IOException {
+
+		if (limit - pos >= n)
+			return true;
+
+		System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+		limit -= pos;
+		pos = 0;
+
+		while (limit < n) {
+
+			int read = in.read(buffer, limit, buffer.length - limit);
+
+			if (read == -1)
+				return false;
+
+			limit += read;
+
+		}
+
+		return true;
+
+	}
+
+	private int u2(int offset) {
+
+		return (buffer[offset] & 0xff) | (buffer[offset + 1] & 0xff) << 8;
+
+	}
+
+	private int s4(int offset) {
+
+		return u2(offset) | u2(offset + 2) << 16;
+
+	}
+
+	private long s8(int offset) {
+
+		return (s4(offset) & 0xffffffffL) | (long) s4(offset + 4) << 32;
+
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event covering the construction of a ClassDelta.
+ * 
+ * @author Gian Perrone
+ */
+@Name("de.hhu.jdelta.ClassDelta")
+@Label("Class Delta")
+@Category({ "JDelta", "Delta" })
+@Description("Building the delta between two versions of a class")
+public class ClassDeltaEvent extends Event {
+
+	/**
+	 * The name of the compared class.
+	 */
+	@Label("Class Name")
+	public String className;
+
+	/**
+	 * The number of compared fields and methods.
+	 */
+	@Label("Member Count")
+	public int memberCount;
+
+	/**
+	 * True if the class differs between the versions.
+	 */
+	@Label("Changed")
+	public boolean changed;
+
+}
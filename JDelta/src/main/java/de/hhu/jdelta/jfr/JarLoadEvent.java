@@ -0,0 +1,58 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event covering the loading of a jar file by a JarNode.
+ * 
+ * @author Gian Perrone
+ */
+@Name("de.hhu.jdelta.JarLoad")
+@Label("Jar Load")
+@Category({ "JDelta", "Parsing" })
+@Description("Opening a jar file and parsing its class entries")
+public class JarLoadEvent extends Event {
+
+	/**
+	 * The name of the jar file.
+	 */
+	@Label("Jar Name")
+	public String jarName;
+
+	/**
+	 * The size of the jar file.
+	 */
+	@Label("Jar Size")
+	@DataAmount
+	public long jarSize;
+
+	/**
+	 * The number of parsed classes.
+	 */
+	@Label("Class Count")
+	public int classCount;
+
+}
@@ -0,0 +1,120 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.progress;
+
+/**
+ * A listener which is informed about the progress of long-running operations
+ * like loading jars, building deltas and examining them.
+ * 
+ * Progress is reported per jar entry or per class, never per member.
+ * 
+ * @author Gian Perrone
+ */
+public interface ProgressListener {
+
+	/**
+	 * The phase of a comparison.
+	 * 
+	 * @author Gian Perrone
+	 */
+	public enum Phase {
+
+		/**
+		 * Reading the entries of a jar, toString() returns "loading".
+		 */
+		LOADING("loading"),
+		/**
+		 * Building the deltas of the classes, toString() returns "diffing".
+		 */
+		DIFFING("diffing"),
+		/**
+		 * Examining the class deltas, toString() returns "examining".
+		 */
+		EXAMINING("examining");
+
+		private String str;
+
+		private Phase(String str) {
+
+			this.str = str;
+
+		}
+
+		/**
+		 * Returns a lower case description of the phase.
+		 */
+		@Override
+		public String toString() {
+
+			return str;
+
+		}
+
+	}
+
+	/**
+	 * A listener which ignores all progress.
+	 */
+	public static final ProgressListener SILENT = new ProgressListener() {
+
+		public void phaseStarted(Phase phase, String subject, int total) {
+		}
+
+		public void progress(Phase phase, int done, int total) {
+		}
+
+		public void phaseFinished(Phase phase) {
+		}
+
+	};
+
+	/**
+	 * Called when a phase starts.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param subject
+	 *            the processed jar or class, may be null
+	 * @param total
+	 *            the number of steps of the phase or -1 if it is not known
+	 *            in advance
+	 */
+	public abstract void phaseStarted(Phase phase, String subject, int total);
+
+	/**
+	 * Called when steps of a phase are done.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param done
+	 *            the number of finished steps
+	 * @param total
+	 *            the number of steps of the phase
+	 */
+	public abstract void progress(Phase phase, int done, int total);
+
+	/**
+	 * Called when a phase is finished.
+	 * 
+	 * @param phase
+	 *            the phase
+	 */
+	public abstract void phaseFinished(Phase phase);
+
+}
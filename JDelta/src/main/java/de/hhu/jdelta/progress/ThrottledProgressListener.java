@@ -0,0 +1,92 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.progress;
+
+/**
+ * A ProgressListener which forwards progress to another listener at most once
+ * per interval. The start and the end of a phase are always forwarded, as is
+ * the last step of a phase.
+ * 
+ * @author Gian Perrone
+ */
+public class ThrottledProgressListener implements ProgressListener {
+
+	/**
+	 * The default interval in milliseconds.
+	 */
+	public static final long DEFAULT_INTERVAL = 100;
+
+	private final ProgressListener listener;
+	private final long intervalNanos;
+
+	private long lastForwarded;
+
+	/**
+	 * Creates a throttled listener using the default interval.
+	 * 
+	 * @param listener
+	 *            the listener to forward to
+	 */
+	public ThrottledProgressListener(ProgressListener listener) {
+
+		this(listener, DEFAULT_INTERVAL);
+
+	}
+
+	/**
+	 * Creates a throttled listener.
+	 * 
+	 * @param listener
+	 *            the listener to forward to
+	 * @param interval
+	 *            the minimal time between two progress calls in milliseconds
+	 */
+	public ThrottledProgressListener(ProgressListener listener, long interval) {
+
+		this.listener = listener;
+		this.intervalNanos = interval * 1000000L;
+
+	}
+
+	public void phaseStarted(Phase phase, String subject, int total) {
+
+		lastForwarded = System.nanoTime();
+		listener.phaseStarted(phase, subject, total);
+
+	}
+
+	public void progress(Phase phase, int done, int total) {
+
+		long now = System.nanoTime();
+
+		if (done < total && now - lastForwarded < intervalNanos)
+			return;
+
+		lastForwarded = now;
+		listener.progress(phase, done, total);
+
+	}
+
+	public void phaseFinished(Phase phase) {
+
+		listener.phaseFinished(phase);
+
+	}
+
+}
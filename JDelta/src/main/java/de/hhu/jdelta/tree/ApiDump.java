@@ -0,0 +1,786 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.tree.ClassNode.ClassType;
+
+/**
+ * Writes and reads the API of a jar as a text file which can be reviewed and
+ * committed next to the sources, and be compared against instead of a jar.
+ * 
+ * The dump contains what an {@link ApiSnapshot} contains, one line for each
+ * class, interface, annotation, field and method. A line consists of
+ * space-separated tokens followed by the declaration string as a comment:
+ * 
+ * <pre>
+ * jdelta-api 1
+ * class {name} {version} {visibility} {classType} {flags} {superName} {signature} // {declaration}
+ *  implements {interface}
+ *  annotation {desc}
+ *  field {name} {desc} {visibility} {flags} {signature} {value} // {declaration}
+ *  method {name} {desc} {visibility} {flags} {signature} {exceptions} // {declaration}
+ * </pre>
+ * 
+ * Absent values and empty flag lists are written as "-", flags and
+ * exceptions are separated by ",". Values start with a tag (I, J, F, D or
+ * S). Names, descriptors, signatures and String values escape spaces,
+ * backslashes and control characters, names also commas and a lone "-".
+ * Classes and members are sorted, so equal APIs produce equal dumps. Empty
+ * lines and lines starting with "#" are skipped. A class must not occur
+ * twice.
+ * 
+ * @author Gian Perrone
+ */
+public class ApiDump {
+
+	/**
+	 * The extension of API dumps.
+	 */
+	public static final String EXTENSION = ".api";
+
+	static final String HEADER = "jdelta-api 1";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String NONE = "-";
+	private static final String COMMENT = " // ";
+
+	private static final String[] CLASS_FLAGS = { "final", "super" };
+	private static final String[] FIELD_FLAGS = { "static", "final",
+			"volatile", "transient", "synthetic", "enum" };
+	private static final String[] METHOD_FLAGS = { "static", "final",
+			"synchronized", "bridge", "varargs", "native", "abstract",
+			"strictfp" };
+
+	private static final String[] VISIBILITIES =
+			lowerCaseNames(Visibility.values());
+	private static final String[] CLASS_TYPES =
+			lowerCaseNames(ClassType.values());
+
+	private ApiDump() {
+
+	}
+
+	private static String[] lowerCaseNames(Enum<?>[] values) {
+
+		String[] names = new String[values.length];
+
+		for (int i = 0; i < values.length; i++)
+			names[i] = values[i].name().toLowerCase(Locale.ENGLISH);
+
+		return names;
+
+	}
+
+	/**
+	 * Returns true if a file is an API dump, i.e. a file with the extension
+	 * {@link #EXTENSION}.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the dump flag
+	 */
+	public static boolean isDump(File file) {
+
+		return file.isFile() && file.getName().endsWith(EXTENSION);
+
+	}
+
+	/**
+	 * Writes the dump of an API snapshot to a file.
+	 * 
+	 * @param snapshot
+	 *            the snapshot
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 */
+	public static void write(ApiSnapshot snapshot, File file)
+			throws IOException {
+
+		Writer out =
+				new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+
+		try {
+			write(snapshot, out);
+		} finally {
+			out.close();
+		}
+
+	}
+
+	/**
+	 * Writes the dump of an API snapshot. The writer is flushed, but not
+	 * closed.
+	 * 
+	 * @param snapshot
+	 *            the snapshot
+	 * @param writer
+	 *            the writer
+	 * @throws IOException
+	 */
+	public static void write(ApiSnapshot snapshot, Writer writer)
+			throws IOException {
+
+		BufferedWriter out = new BufferedWriter(writer);
+		StringBuilder line = new StringBuilder();
+
+		out.write(HEADER);
+		out.write('\n');
+
+		for (ClassNode classNode : snapshot.getClasses().values()) {
+
+			line.setLength(0);
+			appendName(line.append("class "), classNode.getName());
+			line.append(' ').append(classNode.getVersion());
+			line.append(' ').append(
+					VISIBILITIES[classNode.getVisibility().ordinal()]);
+			line.append(' ').append(
+					CLASS_TYPES[classNode.getClassType().ordinal()]);
+			appendFlags(line, CLASS_FLAGS, classNode.isFinal(), classNode
+					.isSuper());
+			appendToken(line, classNode.getSuperName());
+			appendToken(line, classNode.getSignature());
+			appendComment(line, classNode.getDeclarationString());
+			writeLine(out, line);
+
+			for (String interface_ : classNode.getInterfaces()) {
+				line.setLength(0);
+				appendName(line.append(" implements "), interface_);
+				writeLine(out, line);
+			}
+
+			for (String annotation : classNode.getAnnotations()) {
+				line.setLength(0);
+				appendName(line.append(" annotation "), annotation);
+				writeLine(out, line);
+			}
+
+			for (FieldNode field : classNode.getFieldTable()) {
+
+				line.setLength(0);
+				appendName(line.append(" field "), field.getName());
+				appendName(line.append(' '), field.getDesc());
+				line.append(' ').append(
+						VISIBILITIES[field.getVisibility().ordinal()]);
+				appendFlags(line, FIELD_FLAGS, field.isStatic(), field
+						.isFinal(), field.isVolatile(), field.isTransient(),
+						field.isSynthetic(), field.isEnum());
+				appendToken(line, field.getSignature());
+				line.append(' ');
+				appendValue(line, field.getValue());
+				appendComment(line, field.getDeclarationString());
+				writeLine(out, line);
+
+			}
+
+			for (MethodNode method : classNode.getMethodTable()) {
+
+				line.setLength(0);
+				appendName(line.append(" method "), method.getName());
+				appendName(line.append(' '), method.getDesc());
+				line.append(' ').append(
+						VISIBILITIES[method.getVisibility().ordinal()]);
+				appendFlags(line, METHOD_FLAGS, method.isStatic(), method
+						.isFinal(), method.isSynchronized(), method.isBridge(),
+						method.isVarargs(), method.isNative(), method
+								.isAbstract(), method.isStrictfp());
+				appendToken(line, method.getSignature());
+				appendList(line, method.getExceptions());
+				appendComment(line, method.getDeclarationString());
+				writeLine(out, line);
+
+			}
+
+		}
+
+		out.flush();
+
+	}
+
+	private static void writeLine(Writer out, StringBuilder line)
+			throws IOException {
+
+		line.append('\n');
+		out.append(line);
+
+	}
+
+	private static void appendToken(StringBuilder line, String token) {
+
+		line.append(' ');
+
+		if (token != null)
+			appendName(line, token);
+		else
+			line.append(NONE);
+
+	}
+
+	private static void appendName(StringBuilder line, String name) {
+
+		// a name "-" must not be read as an absent value
+		if (name.equals(NONE))
+			line.append("\\u002d");
+		else
+			escape(line, name, true, true);
+
+	}
+
+	private static void appendFlags(StringBuilder line, String[] names,
+			boolean... flags) {
+
+		line.append(' ');
+		int length = line.length();
+
+		for (int i = 0; i < flags.length; i++) {
+
+			if (!flags[i])
+				continue;
+
+			if (line.length() > length)
+				line.append(',');
+
+			line.append(names[i]);
+
+		}
+
+		if (line.length() == length)
+			line.append(NONE);
+
+	}
+
+	private static void appendList(StringBuilder line, Iterable<String> strs) {
+
+		line.append(' ');
+		int length = line.length();
+
+		for (String str : strs) {
+
+			if (line.length() > length)
+				line.append(',');
+
+			appendName(line, str);
+
+		}
+
+		if (line.length() == length)
+			line.append(NONE);
+
+	}
+
+	private static void appendValue(StringBuilder line, Object value) {
+
+		if (value == null)
+			line.append(NONE);
+		else if (value instanceof Integer)
+			line.append('I').append(value);
+		else if (value instanceof Long)
+			line.append('J').append(value);
+		else if (value instanceof Float)
+			line.append('F').append(value);
+		else if (value instanceof Double)
+			line.append('D').append(value);
+		else
+			escape(line.append('S'), (String) value, true, false);
+
+	}
+
+	private static void appendComment(StringBuilder line, String comment) {
+
+		escape(line.append(COMMENT), comment, false, false);
+
+	}
+
+	private static void escape(StringBuilder line, String str,
+			boolean spaces, boolean commas) {
+
+		for (int i = 0; i < str.length(); i++) {
+
+			char c = str.charAt(i);
+
+			if (c == '\\')
+				line.append("\\\\");
+			else if (c == ' ' && spaces)
+				line.append("\\s");
+			else if (c == '\n')
+				line.append("\\n");
+			else if (c == '\r')
+				line.append("\\r");
+			else if (c == '\t')
+				line.append("\\t");
+			else if (c < ' ' || c == 0x7f || c == 0x2028 || c == 0x2029
+					|| (c == ',' && commas)) {
+				String hex = Integer.toHexString(c);
+				line.append("\\u");
+				for (int j = hex.length(); j < 4; j++)
+					line.append('0');
+				line.append(hex);
+			} else
+				line.append(c);
+
+		}
+
+	}
+
+	/**
+	 * Reads an API dump from a file.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the snapshot
+	 * @throws IOException
+	 *             if the file cannot be read or is no valid dump
+	 */
+	public static ApiSnapshot read(File file) throws IOException {
+
+		Reader in = new InputStreamReader(new FileInputStream(file), UTF_8);
+
+		try {
+			return read(in);
+		} finally {
+			in.close();
+		}
+
+	}
+
+	/**
+	 * Reads an API dump. The reader is not closed.
+	 * 
+	 * @param reader
+	 *            the reader
+	 * @return the snapshot
+	 * @throws IOException
+	 *             if the dump cannot be read or is no valid dump
+	 */
+	public static ApiSnapshot read(Reader reader) throws IOException {
+
+		return new Parser(reader).parse();
+
+	}
+
+	/**
+	 * Parses a dump line by line. Tokens are found by searching for spaces,
+	 * and the class being read is built when the next one starts.
+	 */
+	private static final class Parser {
+
+		private final BufferedReader in;
+		private int lineNumber = 0;
+		private String line;
+		private int position;
+
+		private final ImmutableSortedMap.Builder<String, ClassNode> classes =
+				ImmutableSortedMap.naturalOrder();
+		private final Set<String> classNames = new HashSet<String>();
+
+		private String name;
+		private int version;
+		private Visibility visibility;
+		private ClassType classType;
+		private int flags;
+		private String superName;
+		private String signature;
+		private final List<String> interfaces = new ArrayList<String>();
+		private final List<String> annotations = new ArrayList<String>();
+		private MemberTable.Builder<FieldNode> fields;
+		private MemberTable.Builder<MethodNode> methods;
+
+		Parser(Reader reader) {
+
+			this.in = new BufferedReader(reader, 1 << 16);
+
+		}
+
+		ApiSnapshot parse() throws IOException {
+
+			if (!HEADER.equals(in.readLine()))
+				throw new IOException("Not an API dump");
+
+			lineNumber++;
+
+			while ((line = in.readLine()) != null) {
+
+				lineNumber++;
+				position = 0;
+
+				while (position < line.length() && line.charAt(position) == ' ')
+					position++;
+
+				if (position == line.length() || line.charAt(position) == '#')
+					continue;
+
+				if (skip("field"))
+					readField();
+				else if (skip("method"))
+					readMethod();
+				else if (skip("class"))
+					readClass();
+				else if (skip("implements"))
+					member().interfaces.add(nextName());
+				else if (skip("annotation"))
+					member().annotations.add(nextName());
+				else
+					throw error("unknown line kind " + next());
+
+			}
+
+			endClass();
+
+			ImmutableSortedMap<String, ClassNode> classes =
+					this.classes.build();
+
+			return new ApiSnapshot(new ApiFingerprint(classes), classes);
+
+		}
+
+		private IOException error(String message) {
+
+			return new IOException("Malformed API dump line " + lineNumber
+					+ ": " + message);
+
+		}
+
+		/**
+		 * Returns the end of the next token of the line.
+		 */
+		private int end() throws IOException {
+
+			if (position >= line.length())
+				throw error("missing token");
+
+			int end = line.indexOf(' ', position);
+
+			return end < 0 ? line.length() : end;
+
+		}
+
+		/**
+		 * Skips the next token if it equals the given one. Tokens which are
+		 * only compared are not copied out of the line.
+		 */
+		private boolean skip(String token) throws IOException {
+
+			int end = end();
+
+			if (end - position != token.length()
+					|| !line.startsWith(token, position))
+				return false;
+
+			position = end + 1;
+
+			return true;
+
+		}
+
+		/**
+		 * Returns the next token of the line.
+		 */
+		private String next() throws IOException {
+
+			int end = end();
+			String token = line.substring(position, end);
+			position = end + 1;
+
+			return token;
+
+		}
+
+		/**
+		 * Returns the next token of the line unescaped.
+		 */
+		private String nextName() throws IOException {
+
+			return unescape(next());
+
+		}
+
+		private String nextOrNull() throws IOException {
+
+			return skip(NONE) ? null : nextName();
+
+		}
+
+		private int nextIndex(String[] names) throws IOException {
+
+			for (int i = 0; i < names.length; i++)
+				if (skip(names[i]))
+					return i;
+
+			throw error("unknown token " + next());
+
+		}
+
+		private int nextFlags(String[] names) throws IOException {
+
+			if (skip(NONE))
+				return 0;
+
+			int end = end();
+			int flags = 0;
+
+			for (int start = position; start <= end;) {
+
+				int flagEnd = line.indexOf(',', start);
+
+				if (flagEnd < 0 || flagEnd > end)
+					flagEnd = end;
+
+				int flag = -1;
+
+				for (int i = 0; i < names.length && flag < 0; i++)
+					if (names[i].length() == flagEnd - start
+							&& line.startsWith(names[i], start))
+						flag = i;
+
+				if (flag < 0)
+					throw error("unknown flag in " + next());
+
+				flags |= 1 << flag;
+				start = flagEnd + 1;
+
+			}
+
+			position = end + 1;
+
+			return flags;
+
+		}
+
+		private Parser member() throws IOException {
+
+			if (name == null)
+				throw error("member outside of a class");
+
+			return this;
+
+		}
+
+		private void readClass() throws IOException {
+
+			endClass();
+
+			name = nextName();
+
+			if (!classNames.add(name))
+				throw error("duplicate class " + name);
+
+			try {
+				version = Integer.parseInt(next());
+			} catch (NumberFormatException e) {
+				throw error("invalid version");
+			}
+
+			visibility = Visibility.values()[nextIndex(VISIBILITIES)];
+			classType = ClassType.values()[nextIndex(CLASS_TYPES)];
+			flags = nextFlags(CLASS_FLAGS);
+			superName = nextOrNull();
+			signature = nextOrNull();
+			fields = new MemberTable.Builder<FieldNode>();
+			methods = new MemberTable.Builder<MethodNode>();
+
+		}
+
+		private void endClass() {
+
+			if (name == null)
+				return;
+
+			classes.put(name + ".class", new ClassNode(fields.build(), methods
+					.build(), ImmutableSortedSet.copyOf(interfaces),
+					ImmutableSortedSet.copyOf(annotations), version, name,
+					signature, superName, visibility, classType,
+					(flags & 1) != 0, (flags & 2) != 0));
+
+			name = null;
+			interfaces.clear();
+			annotations.clear();
+
+		}
+
+		private void readField() throws IOException {
+
+			member();
+
+			String fieldName = nextName();
+			String desc = nextName();
+			Visibility fieldVisibility =
+					Visibility.values()[nextIndex(VISIBILITIES)];
+			int fieldFlags = nextFlags(FIELD_FLAGS);
+			String fieldSignature = nextOrNull();
+			Object value = nextValue();
+
+			fields.put(new MemberKey(fieldName), new FieldNode(fieldName,
+					desc, fieldSignature, value, fieldVisibility,
+					(fieldFlags & 1) != 0, (fieldFlags & 2) != 0,
+					(fieldFlags & 4) != 0, (fieldFlags & 8) != 0,
+					(fieldFlags & 16) != 0, (fieldFlags & 32) != 0));
+
+		}
+
+		private void readMethod() throws IOException {
+
+			member();
+
+			String methodName = nextName();
+			String desc = nextName();
+			Visibility methodVisibility =
+					Visibility.values()[nextIndex(VISIBILITIES)];
+			int methodFlags = nextFlags(METHOD_FLAGS);
+			String methodSignature = nextOrNull();
+			ImmutableSortedSet<String> exceptions = nextList();
+
+			methods.put(new MemberKey(methodName, desc), new MethodNode(
+					methodName, desc, methodSignature, exceptions,
+					methodVisibility, (methodFlags & 1) != 0,
+					(methodFlags & 2) != 0, (methodFlags & 4) != 0,
+					(methodFlags & 8) != 0, (methodFlags & 16) != 0,
+					(methodFlags & 32) != 0, (methodFlags & 64) != 0,
+					(methodFlags & 128) != 0));
+
+		}
+
+		private ImmutableSortedSet<String> nextList() throws IOException {
+
+			if (skip(NONE))
+				return ImmutableSortedSet.of();
+
+			String token = next();
+
+			List<String> strs = new ArrayList<String>();
+
+			for (int start = 0; start <= token.length();) {
+
+				int end = token.indexOf(',', start);
+
+				if (end < 0)
+					end = token.length();
+
+				strs.add(unescape(token.substring(start, end)));
+				start = end + 1;
+
+			}
+
+			return ImmutableSortedSet.copyOf(strs);
+
+		}
+
+		private Object nextValue() throws IOException {
+
+			if (skip(NONE))
+				return null;
+
+			String token = next();
+
+			String value = token.substring(1);
+
+			try {
+
+				switch (token.charAt(0)) {
+				case 'I':
+					return Integer.valueOf(value);
+				case 'J':
+					return Long.valueOf(value);
+				case 'F':
+					return Float.valueOf(value);
+				case 'D':
+					return Double.valueOf(value);
+				case 'S':
+					return unescape(value);
+				default:
+					throw error("unknown value " + token);
+				}
+
+			} catch (NumberFormatException e) {
+				throw error("invalid value " + token);
+			}
+
+		}
+
+		private String unescape(String str) throws IOException {
+
+			if (str.indexOf('\\') < 0)
+				return str;
+
+			StringBuilder unescaped = new StringBuilder(str.length());
+
+			for (int i = 0; i < str.length(); i++) {
+
+				char c = str.charAt(i);
+
+				if (c != '\\') {
+					unescaped.append(c);
+					continue;
+				}
+
+				if (++i == str.length())
+					throw error("incomplete escape in " + str);
+
+				c = str.charAt(i);
+
+				if (c == 's')
+					unescaped.append(' ');
+				else if (c == 'n')
+					unescaped.append('\n');
+				else if (c == 'r')
+					unescaped.append('\r');
+				else if (c == 't')
+					unescaped.append('\t');
+				else if (c == '\\')
+					unescaped.append('\\');
+				else if (c == 'u' && i + 4 < str.length()) {
+					try {
+						unescaped.append((char) Integer.parseInt(str
+								.substring(i + 1, i + 5), 16));
+					} catch (NumberFormatException e) {
+						throw error("invalid escape in " + str);
+					}
+					i += 4;
+				} else
+					throw error("invalid escape in " + str);
+
+			}
+
+			return unescaped.toString();
+
+		}
+
+	}
+
+}
@@ -0,0 +1,331 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A canonical digest of the API of a jar.
+ * 
+ * Only public classes contribute to the fingerprint. Of those, the public and
+ * protected fields and methods are included together with the attributes the
+ * version numbering rules examine. Two jars with equal fingerprints therefore
+ * never require a new minor or major version. Protected members are always
+ * included, regardless of the annotations of their class, so a match is safe
+ * for client extendable classes as well.
+ * 
+ * @author Gian Perrone
+ */
+public class ApiFingerprint {
+
+	private static final String ALGORITHM = "SHA-256";
+
+	/**
+	 * Buffers the written bytes and passes them to the digest in blocks,
+	 * without the per-byte locking of buffered and digest streams.
+	 */
+	private static final class DigestStream extends OutputStream {
+
+		private final MessageDigest md;
+		private final byte[] buffer = new byte[8192];
+		private int count = 0;
+
+		DigestStream(MessageDigest md) {
+
+			this.md = md;
+
+		}
+
+		@Override
+		public void write(int b) {
+
+			if (count == buffer.length)
+				flush();
+
+			buffer[count++] = (byte) b;
+
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+
+			if (len > buffer.length - count) {
+
+				flush();
+
+				if (len > buffer.length) {
+					md.update(b, off, len);
+					return;
+				}
+
+			}
+
+			System.arraycopy(b, off, buffer, count, len);
+			count += len;
+
+		}
+
+		@Override
+		public void flush() {
+
+			md.update(buffer, 0, count);
+			count = 0;
+
+		}
+
+	}
+
+	private final byte[] digest;
+
+	/**
+	 * Computes the fingerprint of a jar.
+	 * 
+	 * @param jar
+	 *            the jar
+	 */
+	public ApiFingerprint(JarNode jar) {
+
+		this(jar.getClasses());
+
+	}
+
+	/**
+	 * Computes the fingerprint of the given classes.
+	 * 
+	 * @param classes
+	 *            the classes keyed by their entry names
+	 */
+	public ApiFingerprint(Map<String, ClassNode> classes) {
+
+		MessageDigest md = createMessageDigest();
+		DataOutputStream out =
+				new DataOutputStream(new DigestStream(md));
+
+		try {
+
+			for (Map.Entry<String, ClassNode> entry : classes.entrySet()) {
+
+				if (entry.getValue().getVisibility() != Visibility.PUBLIC)
+					continue;
+
+				out.writeUTF(entry.getKey());
+				writeClass(out, entry.getValue());
+
+			}
+
+			out.flush();
+
+		} catch (IOException e) {
+			// cannot happen, nothing is written
+			throw new IllegalStateException(e);
+		}
+
+		this.digest = md.digest();
+
+	}
+
+	private ApiFingerprint(byte[] digest) {
+
+		this.digest = digest;
+
+	}
+
+	/**
+	 * Parses a fingerprint from its hexadecimal representation.
+	 * 
+	 * @param hex
+	 *            the string as returned by toString()
+	 * @return the fingerprint
+	 * @throws IllegalArgumentException
+	 *             if the string is no fingerprint
+	 */
+	public static ApiFingerprint valueOf(String hex) {
+
+		if (hex.length() % 2 != 0)
+			throw new IllegalArgumentException("Not a fingerprint: " + hex);
+
+		byte[] digest = new byte[hex.length() / 2];
+
+		for (int i = 0; i < digest.length; i++) {
+
+			int hi = Character.digit(hex.charAt(2 * i), 16);
+			int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+
+			if (hi < 0 || lo < 0)
+				throw new IllegalArgumentException("Not a fingerprint: " + hex);
+
+			digest[i] = (byte) ((hi << 4) | lo);
+
+		}
+
+		return new ApiFingerprint(digest);
+
+	}
+
+	private static MessageDigest createMessageDigest() {
+
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every JVM has to support SHA-256
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+	private static void writeClass(DataOutputStream out, ClassNode classNode)
+			throws IOException {
+
+		writeString(out, classNode.getName());
+		out.writeInt(classNode.getVisibility().ordinal());
+		out.writeInt(classNode.getClassType().ordinal());
+		out.writeBoolean(classNode.isFinal());
+		writeString(out, classNode.getSignature());
+		writeString(out, classNode.getSuperName());
+		writeStrings(out, classNode.getInterfaces());
+		writeStrings(out, classNode.getAnnotations());
+
+		MemberTable<FieldNode> fields = classNode.getFieldTable();
+
+		for (int i = 0; i < fields.size(); i++) {
+
+			FieldNode field = fields.get(i);
+
+			if (!field.getVisibility().isApi())
+				continue;
+
+			out.writeByte('F');
+			out.writeUTF(fields.getKey(i).toString());
+			out.writeInt(field.getVisibility().ordinal());
+			writeString(out, field.getDesc());
+			writeValue(out, field.getValue());
+			out.writeBoolean(field.isStatic());
+			out.writeBoolean(field.isFinal());
+			out.writeBoolean(field.isEnum());
+
+		}
+
+		MemberTable<MethodNode> methods = classNode.getMethodTable();
+
+		for (int i = 0; i < methods.size(); i++) {
+
+			MethodNode method = methods.get(i);
+
+			if (!method.getVisibility().isApi())
+				continue;
+
+			out.writeByte('M');
+			out.writeUTF(methods.getKey(i).toString());
+			out.writeInt(method.getVisibility().ordinal());
+			writeString(out, method.getSignature());
+			writeStrings(out, method.getExceptions());
+			out.writeBoolean(method.isStatic());
+			out.writeBoolean(method.isFinal());
+			out.writeBoolean(method.isVarargs());
+			out.writeBoolean(method.isAbstract());
+
+		}
+
+		out.writeByte('E');
+
+	}
+
+	private static void writeString(DataOutputStream out, String str)
+			throws IOException {
+
+		out.writeBoolean(str != null);
+
+		if (str != null)
+			out.writeUTF(str);
+
+	}
+
+	private static void writeStrings(DataOutputStream out, Set<String> strs)
+			throws IOException {
+
+		out.writeInt(strs.size());
+
+		for (String str : strs)
+			out.writeUTF(str);
+
+	}
+
+	private static void writeValue(DataOutputStream out, Object value)
+			throws IOException {
+
+		if (value == null) {
+			out.writeByte(0);
+			return;
+		}
+
+		out.writeByte(1);
+		out.writeUTF(value.getClass().getName());
+		out.writeUTF(value.toString());
+
+	}
+
+	@Override
+	public int hashCode() {
+
+		return Arrays.hashCode(digest);
+
+	}
+
+	@Override
+	public boolean equals(Object o) {
+
+		if (o == null)
+			return false;
+
+		if (o == this)
+			return true;
+
+		if (!(o instanceof ApiFingerprint))
+			return false;
+
+		return Arrays.equals(digest, ((ApiFingerprint) o).digest);
+
+	}
+
+	/**
+	 * Returns the hexadecimal representation of the digest.
+	 * 
+	 * @return the string
+	 */
+	@Override
+	public String toString() {
+
+		StringBuilder str = new StringBuilder(digest.length * 2);
+
+		for (byte b : digest)
+			str.append(Character.forDigit((b >> 4) & 0xf, 16)).append(
+					Character.forDigit(b & 0xf, 16));
+
+		return str.toString();
+
+	}
+
+}
@@ -0,0 +1,929 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.io.ByteBufferInputStream;
+import de.hhu.jdelta.io.ClassPathArchive;
+import de.hhu.jdelta.io.Archive;
+import de.hhu.jdelta.io.ZipArchive;
+import de.hhu.jdelta.tree.ClassNode.ClassType;
+
+/**
+ * A compact snapshot of the API of a jar.
+ * 
+ * The snapshot contains the public classes of a jar with their public and
+ * protected fields and methods, i.e. everything the ApiFingerprint covers,
+ * together with the fingerprint itself. It can be embedded into the jar as
+ * the resource {@link #RESOURCE_NAME}, so later comparisons can read it
+ * instead of parsing all classes.
+ * 
+ * The snapshot of a multi-release jar holds the classes as seen by one
+ * release, which it records.
+ * 
+ * The binary format starts with a magic number, a format version, the
+ * release and the fingerprint, followed by an index of class names and record
+ * offsets and finally the class records.
+ * 
+ * @author Gian Perrone
+ */
+public class ApiSnapshot {
+
+	/**
+	 * The name of the resource holding an embedded snapshot.
+	 */
+	public static final String RESOURCE_NAME = "META-INF/jdelta/api.snapshot";
+
+	static final int MAGIC = 0x4A444150;
+	static final int FORMAT_VERSION = 2;
+
+	static final int CLASS_FINAL = 1;
+	static final int CLASS_SUPER = 2;
+
+	// the parts of a class record in their order, see seekClass()
+	static final int CLASS_NAME = 0;
+	static final int CLASS_SIGNATURE = 1;
+	static final int CLASS_SUPER_NAME = 2;
+	static final int CLASS_VERSION = 3;
+	static final int CLASS_VISIBILITY = 4;
+	static final int CLASS_TYPE = 5;
+	static final int CLASS_FLAGS = 6;
+	static final int CLASS_INTERFACES = 7;
+	static final int CLASS_ANNOTATIONS = 8;
+	static final int CLASS_FIELDS = 9;
+	static final int CLASS_METHODS = 10;
+
+	private static final int FIELD_STATIC = 1;
+	private static final int FIELD_FINAL = 2;
+	private static final int FIELD_VOLATILE = 4;
+	private static final int FIELD_TRANSIENT = 8;
+	private static final int FIELD_SYNTHETIC = 16;
+	private static final int FIELD_ENUM = 32;
+
+	private static final int METHOD_STATIC = 1;
+	private static final int METHOD_FINAL = 2;
+	private static final int METHOD_SYNCHRONIZED = 4;
+	private static final int METHOD_BRIDGE = 8;
+	private static final int METHOD_VARARGS = 16;
+	private static final int METHOD_NATIVE = 32;
+	private static final int METHOD_ABSTRACT = 64;
+	private static final int METHOD_STRICTFP = 128;
+
+	private static final int VALUE_NULL = 0;
+	private static final int VALUE_INTEGER = 1;
+	private static final int VALUE_LONG = 2;
+	private static final int VALUE_FLOAT = 3;
+	private static final int VALUE_DOUBLE = 4;
+	private static final int VALUE_STRING = 5;
+
+	private final ApiFingerprint fingerprint;
+	private final ImmutableSortedMap<String, ClassNode> classes;
+	private final boolean multiRelease;
+	private final int release;
+
+	/**
+	 * Creates the snapshot of a jar. The snapshot of a multi-release jar
+	 * records the release of the JarNode.
+	 * 
+	 * @param jar
+	 *            the jar
+	 */
+	public ApiSnapshot(JarNode jar) {
+
+		this(jar.getClasses(), jar.isMultiRelease(), jar.getRelease());
+
+	}
+
+	/**
+	 * Creates the snapshot of the given classes.
+	 * 
+	 * @param classes
+	 *            the classes keyed by their entry names
+	 */
+	public ApiSnapshot(Map<String, ClassNode> classes) {
+
+		this(classes, false, 0);
+
+	}
+
+	private ApiSnapshot(Map<String, ClassNode> classes, boolean multiRelease,
+			int release) {
+
+		SortedMap<String, ClassNode> apiClasses =
+				new TreeMap<String, ClassNode>();
+
+		for (Map.Entry<String, ClassNode> entry : classes.entrySet()) {
+
+			if (entry.getValue().getVisibility() == Visibility.PUBLIC)
+				apiClasses.put(entry.getKey(), toApiClass(entry.getValue()));
+
+		}
+
+		this.classes = ImmutableSortedMap.copyOf(apiClasses);
+		this.fingerprint = new ApiFingerprint(this.classes);
+		this.multiRelease = multiRelease;
+		this.release = release;
+
+	}
+
+	ApiSnapshot(ApiFingerprint fingerprint,
+			ImmutableSortedMap<String, ClassNode> classes) {
+
+		this(fingerprint, classes, false, 0);
+
+	}
+
+	private ApiSnapshot(ApiFingerprint fingerprint,
+			ImmutableSortedMap<String, ClassNode> classes, boolean multiRelease,
+			int release) {
+
+		this.fingerprint = fingerprint;
+		this.classes = classes;
+		this.multiRelease = multiRelease;
+		this.release = release;
+
+	}
+
+	private static ClassNode toApiClass(ClassNode classNode) {
+
+		MemberTable<FieldNode> fieldTable = classNode.getFieldTable();
+		MemberTable<MethodNode> methodTable = classNode.getMethodTable();
+		MemberTable.Builder<FieldNode> fields =
+				new MemberTable.Builder<FieldNode>();
+		MemberTable.Builder<MethodNode> methods =
+				new MemberTable.Builder<MethodNode>();
+
+		for (int i = 0; i < fieldTable.size(); i++) {
+
+			if (fieldTable.get(i).getVisibility().isApi())
+				fields.put(fieldTable.getKey(i), fieldTable.get(i));
+
+		}
+
+		for (int i = 0; i < methodTable.size(); i++) {
+
+			if (methodTable.get(i).getVisibility().isApi())
+				methods.put(methodTable.getKey(i), methodTable.get(i));
+
+		}
+
+		return new ClassNode(fields.build(), methods.build(), classNode
+				.getInterfaces(),
+				classNode.getAnnotations(), classNode.getVersion(),
+				classNode.getName(), classNode.getSignature(),
+				classNode.getSuperName(), classNode.getVisibility(),
+				classNode.getClassType(), classNode.isFinal(),
+				classNode.isSuper());
+
+	}
+
+	/**
+	 * Returns the fingerprint of the API.
+	 * 
+	 * @return the fingerprint
+	 */
+	public ApiFingerprint getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Returns the public classes with their public and protected members.
+	 * 
+	 * @return the classes
+	 */
+	public ImmutableSortedMap<String, ClassNode> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * Returns true if the snapshot was taken of a multi-release jar.
+	 * 
+	 * @return the multi-release flag
+	 */
+	public boolean isMultiRelease() {
+		return multiRelease;
+	}
+
+	/**
+	 * Returns the release the classes of a multi-release jar were resolved
+	 * for.
+	 * 
+	 * @return the release or 0 for the base layer
+	 */
+	public int getRelease() {
+		return release;
+	}
+
+	/**
+	 * Returns true if a jar contains an embedded snapshot.
+	 * 
+	 * @param jar
+	 *            the jar
+	 * @return the embedded flag
+	 * @throws IOException
+	 */
+	public static boolean isEmbedded(File jar) throws IOException {
+
+		Archive archive = Archive.open(jar);
+
+		try {
+			return readEmbedded(archive) != null;
+		} finally {
+			archive.close();
+		}
+
+	}
+
+	/**
+	 * Reads the snapshot embedded in a jar. The entry is copied off the heap,
+	 * and its classes are decoded from the copy on access, see
+	 * {@link #map(ByteBuffer)}. A snapshot of another format version is left
+	 * out, so the jar is read as if it was not stamped.
+	 * 
+	 * @param jar
+	 *            the jar
+	 * @return the snapshot or null if the jar contains none of this format
+	 *         version
+	 * @throws IOException
+	 */
+	public static ApiSnapshot readEmbedded(Archive jar) throws IOException {
+
+		// a snapshot of one element of a class path does not cover the others
+		if (jar instanceof ClassPathArchive)
+			return null;
+
+		Archive.Entry entry = jar.getEntry(RESOURCE_NAME);
+
+		if (entry == null)
+			return null;
+
+		// the entry may be held in a buffer the next read reuses
+		ByteBuffer data = jar.read(entry);
+
+		ByteBuffer header = data.slice().order(ByteOrder.BIG_ENDIAN);
+
+		if (header.remaining() >= 6 && header.getInt(0) == MAGIC
+				&& header.getShort(4) != FORMAT_VERSION)
+			return null;
+		ByteBuffer copy = ByteBuffer.allocateDirect(data.remaining());
+		copy.put(data).flip();
+
+		return map(copy);
+
+	}
+
+	/**
+	 * Copies a jar and embeds the snapshot of its API as the resource
+	 * {@link #RESOURCE_NAME} like {@link #stamp(File, int, File)}, taking the
+	 * base layer of a multi-release jar.
+	 * 
+	 * @param jar
+	 *            the jar
+	 * @param out
+	 *            the stamped jar, may be the same file as jar
+	 * @return the embedded snapshot
+	 * @throws IOException
+	 */
+	public static ApiSnapshot stamp(File jar, File out) throws IOException {
+
+		return stamp(jar, 0, out);
+
+	}
+
+	/**
+	 * Copies a jar and embeds the snapshot of its API as the resource
+	 * {@link #RESOURCE_NAME}. An existing snapshot is replaced. A launcher
+	 * prefix and the metadata of the entries are kept, stored entries such as
+	 * nested jars stay stored.
+	 * 
+	 * @param jar
+	 *            the jar
+	 * @param release
+	 *            the release the classes of a multi-release jar are resolved
+	 *            for, or 0 for the base layer
+	 * @param out
+	 *            the stamped jar, may be the same file as jar
+	 * @return the embedded snapshot
+	 * @throws IOException
+	 */
+	public static ApiSnapshot stamp(File jar, int release, File out)
+			throws IOException {
+
+		ApiSnapshot snapshot =
+				new ApiSnapshot(new JarNode(jar).forRelease(release));
+
+		byte[] prefix;
+		ZipArchive archive = ZipArchive.open(jar);
+
+		try {
+			prefix = new byte[(int) archive.getPrefixLength()];
+		} finally {
+			archive.close();
+		}
+
+		if (prefix.length > 0) {
+
+			DataInputStream dis = new DataInputStream(new FileInputStream(jar));
+
+			try {
+				dis.readFully(prefix);
+			} finally {
+				dis.close();
+			}
+
+		}
+
+		File tmp =
+				File.createTempFile(out.getName(), ".tmp", out
+						.getAbsoluteFile()
+						.getParentFile());
+
+		JarFile in = new JarFile(jar);
+
+		try {
+
+			OutputStream os =
+					new BufferedOutputStream(new FileOutputStream(tmp));
+
+			try {
+				os.write(prefix);
+			} catch (IOException e) {
+				os.close();
+				throw e;
+			}
+
+			JarOutputStream jos = new JarOutputStream(os);
+
+			try {
+
+				byte[] buffer = new byte[8192];
+
+				for (Enumeration<JarEntry> e = in.entries(); e
+						.hasMoreElements();) {
+
+					JarEntry entry = e.nextElement();
+
+					if (entry.getName().equals(RESOURCE_NAME))
+						continue;
+
+					JarEntry copy = new JarEntry(entry);
+
+					// a deflated entry is compressed again
+					if (copy.getMethod() != ZipEntry.STORED)
+						copy.setCompressedSize(-1);
+
+					jos.putNextEntry(copy);
+
+					InputStream is = in.getInputStream(entry);
+
+					try {
+						for (int n; (n = is.read(buffer)) != -1;)
+							jos.write(buffer, 0, n);
+					} finally {
+						is.close();
+					}
+
+					jos.closeEntry();
+
+				}
+
+				jos.putNextEntry(new JarEntry(RESOURCE_NAME));
+				snapshot.write(jos);
+				jos.closeEntry();
+
+			} finally {
+				jos.close();
+			}
+
+		} catch (IOException e) {
+			tmp.delete();
+			throw e;
+		} finally {
+			in.close();
+		}
+
+		// the original jar is kept if the stamped jar cannot replace it
+		try {
+			Files.move(tmp.toPath(), out.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			tmp.delete();
+			throw e;
+		}
+
+		return snapshot;
+
+	}
+
+	/**
+	 * Writes the snapshot in its binary format.
+	 * 
+	 * @param out
+	 *            the stream
+	 * @throws IOException
+	 */
+	public void write(OutputStream out) throws IOException {
+
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream recordsOut = new DataOutputStream(records);
+
+		int[] offsets = new int[classes.size()];
+		int i = 0;
+
+		for (ClassNode classNode : classes.values()) {
+
+			offsets[i++] = recordsOut.size();
+			writeClass(recordsOut, classNode);
+
+		}
+
+		recordsOut.flush();
+
+		DataOutputStream dos =
+				new DataOutputStream(new BufferedOutputStream(out));
+
+		dos.writeInt(MAGIC);
+		dos.writeShort(FORMAT_VERSION);
+		dos.writeBoolean(multiRelease);
+		dos.writeShort(release);
+		dos.writeUTF(fingerprint.toString());
+		dos.writeInt(classes.size());
+
+		i = 0;
+
+		for (String key : classes.keySet()) {
+
+			dos.writeUTF(key);
+			dos.writeInt(offsets[i++]);
+
+		}
+
+		dos.writeInt(records.size());
+		records.writeTo(dos);
+		dos.flush();
+
+	}
+
+	/**
+	 * Reads a snapshot in its binary format.
+	 * 
+	 * @param in
+	 *            the stream
+	 * @return the snapshot
+	 * @throws IOException
+	 */
+	public static ApiSnapshot read(InputStream in) throws IOException {
+
+		DataInputStream dis =
+				new DataInputStream(new BufferedInputStream(in));
+
+		if (dis.readInt() != MAGIC)
+			throw new IOException("Not an API snapshot");
+
+		int formatVersion = dis.readUnsignedShort();
+
+		if (formatVersion != FORMAT_VERSION)
+			throw new IOException("Unsupported API snapshot version "
+					+ formatVersion);
+
+		boolean multiRelease = dis.readBoolean();
+		int release = dis.readUnsignedShort();
+		ApiFingerprint fingerprint = ApiFingerprint.valueOf(dis.readUTF());
+
+		int count = dis.readInt();
+		String[] keys = new String[count];
+
+		for (int i = 0; i < count; i++) {
+
+			keys[i] = dis.readUTF();
+			dis.readInt();
+
+		}
+
+		dis.readInt();
+
+		SortedMap<String, ClassNode> classes = new TreeMap<String, ClassNode>();
+
+		for (int i = 0; i < count; i++)
+			classes.put(keys[i], readClass(dis));
+
+		return new ApiSnapshot(fingerprint, ImmutableSortedMap.copyOf(classes),
+				multiRelease, release);
+
+	}
+
+	/**
+	 * Maps a snapshot in its binary format without reading its classes. The
+	 * ClassNodes of the snapshot decode the buffer whenever they are accessed
+	 * and keep no fields or methods on the heap, so the buffer, e.g. a
+	 * memory-mapped file, must not change while they are used.
+	 * 
+	 * @param buffer
+	 *            the snapshot between the position and the limit of the buffer
+	 * @return the snapshot
+	 * @throws IOException
+	 */
+	public static ApiSnapshot map(ByteBuffer buffer) throws IOException {
+
+		DataInputStream dis =
+				new DataInputStream(new ByteBufferInputStream(buffer));
+
+		if (dis.readInt() != MAGIC)
+			throw new IOException("Not an API snapshot");
+
+		int formatVersion = dis.readUnsignedShort();
+
+		if (formatVersion != FORMAT_VERSION)
+			throw new IOException("Unsupported API snapshot version "
+					+ formatVersion);
+
+		boolean multiRelease = dis.readBoolean();
+		int release = dis.readUnsignedShort();
+		ApiFingerprint fingerprint = ApiFingerprint.valueOf(dis.readUTF());
+
+		int count = dis.readInt();
+		String[] keys = new String[count];
+		int[] offsets = new int[count];
+
+		for (int i = 0; i < count; i++) {
+
+			keys[i] = dis.readUTF();
+			offsets[i] = dis.readInt();
+
+		}
+
+		int length = dis.readInt();
+
+		// the stream reads a copy of the buffer up to its limit
+		int records = buffer.limit() - dis.available();
+
+		if (length > dis.available())
+			throw new IOException("Truncated API snapshot");
+
+		ImmutableSortedMap.Builder<String, ClassNode> classes =
+				ImmutableSortedMap.naturalOrder();
+
+		for (int i = 0; i < count; i++)
+			classes.put(keys[i], new ClassNodeView(buffer, records
+					+ offsets[i]));
+
+		return new ApiSnapshot(fingerprint, classes.build(), multiRelease,
+				release);
+
+	}
+
+	static void writeClass(DataOutputStream out, ClassNode classNode)
+			throws IOException {
+
+		writeString(out, classNode.getName());
+		writeString(out, classNode.getSignature());
+		writeString(out, classNode.getSuperName());
+		out.writeInt(classNode.getVersion());
+		out.writeByte(classNode.getVisibility().ordinal());
+		out.writeByte(classNode.getClassType().ordinal());
+		out.writeByte((classNode.isFinal() ? CLASS_FINAL : 0)
+				| (classNode.isSuper() ? CLASS_SUPER : 0));
+		writeStrings(out, classNode.getInterfaces());
+		writeStrings(out, classNode.getAnnotations());
+
+		out.writeInt(classNode.getFieldTable().size());
+
+		for (FieldNode field : classNode.getFieldTable()) {
+
+			writeString(out, field.getName());
+			writeString(out, field.getDesc());
+			writeString(out, field.getSignature());
+			writeValue(out, field.getValue());
+			out.writeByte(field.getVisibility().ordinal());
+			out.writeByte((field.isStatic() ? FIELD_STATIC : 0)
+					| (field.isFinal() ? FIELD_FINAL : 0)
+					| (field.isVolatile() ? FIELD_VOLATILE : 0)
+					| (field.isTransient() ? FIELD_TRANSIENT : 0)
+					| (field.isSynthetic() ? FIELD_SYNTHETIC : 0)
+					| (field.isEnum() ? FIELD_ENUM : 0));
+
+		}
+
+		out.writeInt(classNode.getMethodTable().size());
+
+		for (MethodNode method : classNode.getMethodTable()) {
+
+			writeString(out, method.getName());
+			writeString(out, method.getDesc());
+			writeString(out, method.getSignature());
+			writeStrings(out, method.getExceptions());
+			out.writeByte(method.getVisibility().ordinal());
+			out.writeByte((method.isStatic() ? METHOD_STATIC : 0)
+					| (method.isFinal() ? METHOD_FINAL : 0)
+					| (method.isSynchronized() ? METHOD_SYNCHRONIZED : 0)
+					| (method.isBridge() ? METHOD_BRIDGE : 0)
+					| (method.isVarargs() ? METHOD_VARARGS : 0)
+					| (method.isNative() ? METHOD_NATIVE : 0)
+					| (method.isAbstract() ? METHOD_ABSTRACT : 0)
+					| (method.isStrictfp() ? METHOD_STRICTFP : 0));
+
+		}
+
+	}
+
+	static ClassNode readClass(DataInputStream in) throws IOException {
+
+		String name = readString(in);
+		String signature = readString(in);
+		String superName = readString(in);
+		int version = in.readInt();
+		Visibility visibility = Visibility.values()[in.readByte()];
+		ClassType classType = ClassType.values()[in.readByte()];
+		int flags = in.readByte();
+		ImmutableSortedSet<String> interfaces = readStrings(in);
+		ImmutableSortedSet<String> annotations = readStrings(in);
+		MemberTable<FieldNode> fields = readFields(in);
+		MemberTable<MethodNode> methods = readMethods(in);
+
+		return new ClassNode(fields, methods, interfaces, annotations,
+				version, name, signature, superName, visibility, classType,
+				(flags & CLASS_FINAL) != 0, (flags & CLASS_SUPER) != 0);
+
+	}
+
+	/**
+	 * Returns a stream positioned at a part of the class record which starts
+	 * at the given offset of a buffer.
+	 */
+	static DataInputStream seekClass(ByteBuffer buffer, int offset, int part)
+			throws IOException {
+
+		ByteBuffer record = buffer.duplicate();
+		record.position(offset);
+
+		DataInputStream in =
+				new DataInputStream(new ByteBufferInputStream(record));
+
+		for (int i = 0; i < part; i++) {
+
+			switch (i) {
+			case CLASS_NAME:
+			case CLASS_SIGNATURE:
+			case CLASS_SUPER_NAME:
+				skipString(in);
+				break;
+			case CLASS_VERSION:
+				in.readInt();
+				break;
+			case CLASS_VISIBILITY:
+			case CLASS_TYPE:
+			case CLASS_FLAGS:
+				in.readByte();
+				break;
+			case CLASS_INTERFACES:
+			case CLASS_ANNOTATIONS:
+				for (int n = in.readInt(); n > 0; n--)
+					in.skipBytes(in.readUnsignedShort());
+				break;
+			case CLASS_FIELDS:
+				// the fields are skipped by their lengths without decoding
+				for (int n = in.readInt(); n > 0; n--) {
+					skipString(in);
+					skipString(in);
+					skipString(in);
+					skipValue(in);
+					in.skipBytes(2);
+				}
+				break;
+			}
+
+		}
+
+		return in;
+
+	}
+
+	static MemberTable<FieldNode> readFields(DataInputStream in)
+			throws IOException {
+
+		MemberTable.Builder<FieldNode> fields =
+				new MemberTable.Builder<FieldNode>();
+
+		for (int i = in.readInt(); i > 0; i--) {
+
+			String fieldName = readString(in);
+			String fieldDesc = readString(in);
+			String fieldSignature = readString(in);
+			Object fieldValue = readValue(in);
+			Visibility fieldVisibility = Visibility.values()[in.readByte()];
+			int fieldFlags = in.readByte();
+
+			fields.put(new MemberKey(fieldName), new FieldNode(fieldName, fieldDesc,
+					fieldSignature, fieldValue, fieldVisibility,
+					(fieldFlags & FIELD_STATIC) != 0,
+					(fieldFlags & FIELD_FINAL) != 0,
+					(fieldFlags & FIELD_VOLATILE) != 0,
+					(fieldFlags & FIELD_TRANSIENT) != 0,
+					(fieldFlags & FIELD_SYNTHETIC) != 0,
+					(fieldFlags & FIELD_ENUM) != 0));
+
+		}
+
+		return fields.build();
+
+	}
+
+	static MemberTable<MethodNode> readMethods(DataInputStream in)
+			throws IOException {
+
+		MemberTable.Builder<MethodNode> methods =
+				new MemberTable.Builder<MethodNode>();
+
+		for (int i = in.readInt(); i > 0; i--) {
+
+			String methodName = readString(in);
+			String methodDesc = readString(in);
+			String methodSignature = readString(in);
+			ImmutableSortedSet<String> exceptions = readStrings(in);
+			Visibility methodVisibility = Visibility.values()[in.readByte()];
+			int methodFlags = in.readByte() & 0xff;
+
+			methods.put(new MemberKey(methodName, methodDesc), new MethodNode(
+					methodName, methodDesc, methodSignature, exceptions,
+					methodVisibility, (methodFlags & METHOD_STATIC) != 0,
+					(methodFlags & METHOD_FINAL) != 0,
+					(methodFlags & METHOD_SYNCHRONIZED) != 0,
+					(methodFlags & METHOD_BRIDGE) != 0,
+					(methodFlags & METHOD_VARARGS) != 0,
+					(methodFlags & METHOD_NATIVE) != 0,
+					(methodFlags & METHOD_ABSTRACT) != 0,
+					(methodFlags & METHOD_STRICTFP) != 0));
+
+		}
+
+		return methods.build();
+
+	}
+
+	private static void writeString(DataOutputStream out, String str)
+			throws IOException {
+
+		out.writeBoolean(str != null);
+
+		if (str != null)
+			out.writeUTF(str);
+
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+
+		return in.readBoolean() ? in.readUTF() : null;
+
+	}
+
+	private static void skipString(DataInputStream in) throws IOException {
+
+		if (in.readBoolean())
+			in.skipBytes(in.readUnsignedShort());
+
+	}
+
+	private static void writeStrings(DataOutputStream out,
+			ImmutableSortedSet<String> strs) throws IOException {
+
+		out.writeInt(strs.size());
+
+		for (String str : strs)
+			out.writeUTF(str);
+
+	}
+
+	static ImmutableSortedSet<String> readStrings(DataInputStream in)
+			throws IOException {
+
+		int size = in.readInt();
+
+		if (size == 0)
+			return ImmutableSortedSet.of();
+
+		String[] strs = new String[size];
+
+		for (int i = 0; i < size; i++)
+			strs[i] = in.readUTF();
+
+		return ImmutableSortedSet.copyOf(strs);
+
+	}
+
+	private static void writeValue(DataOutputStream out, Object value)
+			throws IOException {
+
+		if (value == null) {
+			out.writeByte(VALUE_NULL);
+		} else if (value instanceof Integer) {
+			out.writeByte(VALUE_INTEGER);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(VALUE_LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Float) {
+			out.writeByte(VALUE_FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Double) {
+			out.writeByte(VALUE_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof String) {
+			out.writeByte(VALUE_STRING);
+			out.writeUTF((String) value);
+		} else {
+			throw new IOException("Unsupported constant value " + value);
+		}
+
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+
+		int tag = in.readByte();
+
+		switch (tag) {
+		case VALUE_NULL:
+			return null;
+		case VALUE_INTEGER:
+			return in.readInt();
+		case VALUE_LONG:
+			return in.readLong();
+		case VALUE_FLOAT:
+			return in.readFloat();
+		case VALUE_DOUBLE:
+			return in.readDouble();
+		case VALUE_STRING:
+			return in.readUTF();
+		default:
+			throw new IOException("Unknown constant value tag " + tag);
+		}
+
+	}
+
+	private static void skipValue(DataInputStream in) throws IOException {
+
+		int tag = in.readByte();
+
+		switch (tag) {
+		case VALUE_NULL:
+			break;
+		case VALUE_INTEGER:
+		case VALUE_FLOAT:
+			in.skipBytes(4);
+			break;
+		case VALUE_LONG:
+		case VALUE_DOUBLE:
+			in.skipBytes(8);
+			break;
+		case VALUE_STRING:
+			in.skipBytes(in.readUnsignedShort());
+			break;
+		default:
+			throw new IOException("Unknown constant value tag " + tag);
+		}
+
+	}
+
+}
@@ -0,0 +1,624 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.io.ByteBufferInputStream;
+import de.hhu.jdelta.progress.ProgressListener;
+
+/**
+ * A store for the APIs of many versions of many libraries.
+ * 
+ * The store is a directory with two append-only files. The data file holds
+ * class records in the format of {@link ApiSnapshot}, each stored once and
+ * addressed by the SHA-256 digest of the record, so a class which is
+ * unchanged between versions takes no additional space. The index file holds
+ * one entry per version which maps the class names to the offsets of their
+ * records in the data file. Adding a version again replaces its entry.
+ * 
+ * Both files are memory-mapped for reading, and the JarNode of a version is
+ * only read when it is requested. Its ClassNodes decode the mapped records on
+ * access and are shared with all other JarNodes of the store which contain
+ * the same record. Any two versions can therefore be compared without the
+ * original jars and without reading their classes onto the heap.
+ * 
+ * The store is thread-safe. Its files are locked while it is open, so it can
+ * only be opened once at a time.
+ * 
+ * @author Gian Perrone
+ */
+public class ApiStore implements Closeable {
+
+	/**
+	 * The name of the data file in the store directory.
+	 */
+	public static final String DATA_FILE = "api.data";
+
+	/**
+	 * The name of the index file in the store directory.
+	 */
+	public static final String INDEX_FILE = "api.index";
+
+	static final int DATA_MAGIC = 0x4A444144;
+	static final int INDEX_MAGIC = 0x4A444149;
+	static final int FORMAT_VERSION = 1;
+
+	private static final String ALGORITHM = "SHA-256";
+	private static final int DIGEST_LENGTH = 32;
+
+	private final AppendFile data;
+	private final AppendFile index;
+
+	// the first 8 bytes of the record digests, the records hold them in full
+	private final Map<Long, Long> digests = new HashMap<Long, Long>();
+	private final SortedMap<String, Long> versions = new TreeMap<String, Long>();
+
+	private final Map<Long, RecordReference> records =
+			new HashMap<Long, RecordReference>();
+	private final ReferenceQueue<ClassNode> cleared =
+			new ReferenceQueue<ClassNode>();
+
+	private final MessageDigest messageDigest;
+
+	/**
+	 * Opens a store. The directory and the files are created if they do not
+	 * exist, an incomplete last entry of a file is dropped. Fails if the store
+	 * is open already.
+	 * 
+	 * @param directory
+	 *            the directory of the store
+	 * @throws IOException
+	 */
+	public ApiStore(File directory) throws IOException {
+
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create " + directory);
+
+		try {
+			messageDigest = MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		data = new AppendFile(new File(directory, DATA_FILE), DATA_MAGIC);
+
+		try {
+			index = new AppendFile(new File(directory, INDEX_FILE), INDEX_MAGIC);
+		} catch (IOException e) {
+			data.close();
+			throw e;
+		}
+
+		for (long offset = data.first(); offset != -1; offset =
+				data.next(offset))
+			digests.put(data.read(offset).getLong(), offset);
+
+		for (long offset = index.first(); offset != -1; offset =
+				index.next(offset))
+			versions.put(readUTF(index.read(offset)), offset);
+
+	}
+
+	/**
+	 * Adds the API of a jar as the given version. Only the public classes of
+	 * the jar are parsed, and only their public and protected members are
+	 * stored.
+	 * 
+	 * @param version
+	 *            the version, e.g. "com.google.guava:guava:r09"
+	 * @param jar
+	 *            the jar file, directory or class path
+	 * @param listener
+	 *            the progress listener
+	 * @return the fingerprint of the API
+	 * @throws IOException
+	 */
+	public ApiFingerprint add(String version, File jar,
+			ProgressListener listener) throws IOException {
+
+		return add(version, new ApiSnapshot(JarNode.forApi(jar, listener)));
+
+	}
+
+	/**
+	 * Adds an API snapshot as the given version.
+	 * 
+	 * @param version
+	 *            the version
+	 * @param snapshot
+	 *            the snapshot
+	 * @return the fingerprint of the API
+	 * @throws IOException
+	 */
+	public synchronized ApiFingerprint add(String version, ApiSnapshot snapshot)
+			throws IOException {
+
+		ImmutableSortedMap<String, ClassNode> classes = snapshot.getClasses();
+		long[] offsets = new long[classes.size()];
+		int i = 0;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		for (ClassNode classNode : classes.values()) {
+
+			bytes.reset();
+			ApiSnapshot.writeClass(out, classNode);
+			out.flush();
+
+			byte[] record = bytes.toByteArray();
+			byte[] digest = messageDigest.digest(record);
+			long key = ByteBuffer.wrap(digest).getLong();
+			Long offset = digests.get(key);
+
+			if (offset == null || !hasDigest(offset, digest)) {
+
+				ByteBuffer frame =
+						ByteBuffer.allocate(DIGEST_LENGTH + record.length);
+				frame.put(digest).put(record).flip();
+
+				offset = data.append(frame);
+				digests.put(key, offset);
+
+			}
+
+			offsets[i++] = offset;
+
+		}
+
+		// the index must never point behind the data written to disk
+		data.force();
+
+		bytes.reset();
+		out.writeUTF(version);
+		out.writeUTF(snapshot.getFingerprint().toString());
+		out.writeInt(classes.size());
+
+		i = 0;
+
+		for (String key : classes.keySet()) {
+
+			out.writeUTF(key);
+			out.writeLong(offsets[i++]);
+
+		}
+
+		out.flush();
+
+		long offset = index.append(ByteBuffer.wrap(bytes.toByteArray()));
+		index.force();
+
+		versions.put(version, offset);
+
+		return snapshot.getFingerprint();
+
+	}
+
+	private boolean hasDigest(long offset, byte[] digest) throws IOException {
+
+		ByteBuffer record = data.read(offset);
+
+		for (int i = 0; i < DIGEST_LENGTH; i++)
+			if (record.get() != digest[i])
+				return false;
+
+		return true;
+
+	}
+
+	/**
+	 * Returns the stored versions.
+	 * 
+	 * @return the versions
+	 */
+	public synchronized SortedSet<String> getVersions() {
+
+		return ImmutableSortedSet.copyOf(versions.keySet());
+
+	}
+
+	/**
+	 * Returns the number of distinct class records in the store.
+	 * 
+	 * @return the number of records
+	 */
+	public synchronized int getRecordCount() {
+
+		return digests.size();
+
+	}
+
+	/**
+	 * Returns the fingerprint of the API of a version without reading its
+	 * classes.
+	 * 
+	 * @param version
+	 *            the version
+	 * @return the fingerprint or null if the version is not stored
+	 * @throws IOException
+	 */
+	public synchronized ApiFingerprint getFingerprint(String version)
+			throws IOException {
+
+		Long offset = versions.get(version);
+
+		if (offset == null)
+			return null;
+
+		DataInputStream in = open(index.read(offset));
+		in.readUTF();
+
+		return ApiFingerprint.valueOf(in.readUTF());
+
+	}
+
+	/**
+	 * Reads the JarNode of a version. It contains the public classes with
+	 * their public and protected members like a JarNode read from an
+	 * embedded ApiSnapshot.
+	 * 
+	 * @param version
+	 *            the version
+	 * @return the JarNode or null if the version is not stored
+	 * @throws IOException
+	 */
+	public synchronized JarNode getJarNode(String version) throws IOException {
+
+		Long offset = versions.get(version);
+
+		if (offset == null)
+			return null;
+
+		DataInputStream in = open(index.read(offset));
+		in.readUTF();
+
+		ApiFingerprint fingerprint = ApiFingerprint.valueOf(in.readUTF());
+		ImmutableSortedMap.Builder<String, ClassNode> classes =
+				ImmutableSortedMap.naturalOrder();
+
+		expungeRecords();
+
+		for (int i = in.readInt(); i > 0; i--) {
+
+			String key = in.readUTF();
+			classes.put(key, getClassNode(in.readLong()));
+
+		}
+
+		return new JarNode(version, new ApiSnapshot(fingerprint, classes
+				.build()));
+
+	}
+
+	private ClassNode getClassNode(long offset) throws IOException {
+
+		RecordReference reference = records.get(offset);
+		ClassNode classNode = reference != null ? reference.get() : null;
+
+		if (classNode != null)
+			return classNode;
+
+		ByteBuffer record = data.read(offset);
+
+		classNode =
+				new ClassNodeView(record, record.position() + DIGEST_LENGTH);
+		records.put(offset, new RecordReference(offset, classNode, cleared));
+
+		return classNode;
+
+	}
+
+	private void expungeRecords() {
+
+		for (RecordReference reference; (reference =
+				(RecordReference) cleared.poll()) != null;)
+			if (records.get(reference.offset) == reference)
+				records.remove(reference.offset);
+
+	}
+
+	private static DataInputStream open(ByteBuffer buffer) {
+
+		return new DataInputStream(new ByteBufferInputStream(buffer));
+
+	}
+
+	private static String readUTF(ByteBuffer buffer) throws IOException {
+
+		return open(buffer).readUTF();
+
+	}
+
+	/**
+	 * Closes the files of the store. JarNodes read before stay valid.
+	 */
+	public synchronized void close() throws IOException {
+
+		try {
+			data.close();
+		} finally {
+			index.close();
+		}
+
+	}
+
+	/**
+	 * A weak reference to the ClassNode of a record, which knows the offset of
+	 * the record.
+	 */
+	private static final class RecordReference extends WeakReference<ClassNode> {
+
+		private final long offset;
+
+		RecordReference(long offset, ClassNode classNode,
+				ReferenceQueue<ClassNode> queue) {
+
+			super(classNode, queue);
+			this.offset = offset;
+
+		}
+
+	}
+
+	/**
+	 * An append-only file of length-prefixed entries which is memory-mapped
+	 * for reading. The file starts with an entry holding the magic number and
+	 * the format version. It is mapped in segments, and an entry which does
+	 * not fit into the rest of a segment starts the next one, the gap is
+	 * filled with zeros.
+	 */
+	private static final class AppendFile {
+
+		private static final int SEGMENT_SHIFT = 30;
+		private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+		private final File file;
+		private final RandomAccessFile raf;
+		private final FileChannel channel;
+		private final List<MappedByteBuffer> segments =
+				new ArrayList<MappedByteBuffer>();
+		private long length;
+		private final long first;
+
+		AppendFile(File file, int magic) throws IOException {
+
+			this.file = file;
+			this.raf = new RandomAccessFile(file, "rw");
+			this.channel = raf.getChannel();
+
+			try {
+
+				FileLock lock;
+
+				try {
+					lock = channel.tryLock();
+				} catch (OverlappingFileLockException e) {
+					lock = null;
+				}
+
+				if (lock == null)
+					throw new IOException("API store file is in use: " + file);
+
+				if (channel.size() == 0) {
+
+					ByteBuffer header = ByteBuffer.allocate(6);
+					header.putInt(magic).putShort((short) FORMAT_VERSION).flip();
+					append(header);
+					force();
+
+				} else {
+
+					length = channel.size();
+
+				}
+
+				ByteBuffer header = read(0);
+
+				if (header.remaining() != 6 || header.getInt() != magic)
+					throw new IOException("Not an API store file: " + file);
+
+				int formatVersion = header.getShort() & 0xffff;
+
+				if (formatVersion != FORMAT_VERSION)
+					throw new IOException("Unsupported API store version "
+							+ formatVersion + ": " + file);
+
+				first = next(0);
+				truncate();
+
+			} catch (IOException e) {
+				raf.close();
+				throw e;
+			}
+
+		}
+
+		/**
+		 * Drops an incomplete entry at the end of the file, which was
+		 * interrupted while being appended.
+		 */
+		private void truncate() throws IOException {
+
+			long end = 0;
+
+			for (long offset = 0; offset != -1; offset = next(offset))
+				end = offset + 4 + read(offset).remaining();
+
+			if (end < length) {
+				channel.truncate(end);
+				length = end;
+				segments.clear();
+			}
+
+		}
+
+		long first() {
+
+			return first;
+
+		}
+
+		/**
+		 * Returns the offset of the entry following the given one or -1 if it
+		 * is the last complete one.
+		 */
+		long next(long offset) throws IOException {
+
+			offset += 4 + read(offset).remaining();
+
+			if (SEGMENT_SIZE - (offset & (SEGMENT_SIZE - 1)) < 4)
+				offset = (offset | (SEGMENT_SIZE - 1)) + 1;
+
+			if (offset + 4 > length)
+				return -1;
+
+			int size = segment(offset).getInt(position(offset));
+
+			if (size == 0) {
+
+				// padding up to the next segment
+				offset = (offset | (SEGMENT_SIZE - 1)) + 1;
+
+				if (offset + 4 > length)
+					return -1;
+
+				size = segment(offset).getInt(position(offset));
+
+			}
+
+			if (size <= 0 || offset + 4 + size > length)
+				return -1;
+
+			return offset;
+
+		}
+
+		/**
+		 * Returns the entry at an offset, between the position and the limit
+		 * of a read-only buffer.
+		 */
+		ByteBuffer read(long offset) throws IOException {
+
+			ByteBuffer segment = segment(offset).duplicate();
+			int position = position(offset);
+
+			segment.position(position + 4);
+			segment.limit(position + 4 + segment.getInt(position));
+
+			return segment;
+
+		}
+
+		/**
+		 * Appends an entry and returns its offset.
+		 */
+		long append(ByteBuffer entry) throws IOException {
+
+			int size = entry.remaining();
+
+			if (size + 4 > SEGMENT_SIZE)
+				throw new IOException("Entry too large for " + file);
+
+			long offset = length;
+
+			if (SEGMENT_SIZE - (offset & (SEGMENT_SIZE - 1)) < size + 4)
+				offset = (offset | (SEGMENT_SIZE - 1)) + 1;
+
+			ByteBuffer frame = ByteBuffer.allocate(4 + size);
+			frame.putInt(size).put(entry).flip();
+
+			// the gap is not written and reads as zeros
+			for (long position = offset; frame.hasRemaining();)
+				position += channel.write(frame, position);
+
+			length = offset + 4 + size;
+
+			return offset;
+
+		}
+
+		void force() throws IOException {
+
+			channel.force(false);
+
+		}
+
+		private MappedByteBuffer segment(long offset) throws IOException {
+
+			int index = (int) (offset >>> SEGMENT_SHIFT);
+			long start = (long) index << SEGMENT_SHIFT;
+			long size = Math.min(SEGMENT_SIZE, length - start);
+
+			while (segments.size() <= index)
+				segments.add(null);
+
+			MappedByteBuffer segment = segments.get(index);
+
+			// the last segment grows with the file and is mapped again
+			if (segment == null || segment.capacity() < size) {
+				segment =
+						channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+				segments.set(index, segment);
+			}
+
+			return segment;
+
+		}
+
+		private static int position(long offset) {
+
+			return (int) (offset & (SEGMENT_SIZE - 1));
+
+		}
+
+		void close() throws IOException {
+
+			raf.close();
+
+		}
+
+	}
+
+}
@@ -0,0 +1,610 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A lean replacement for ASM's ClassReader which only decodes what the nodes
+ * need.
+ * 
+ * The parser reads the class header, the fields and the methods together with
+ * their Signature, Exceptions, ConstantValue, Synthetic, Deprecated and
+ * annotation attributes. Everything else, most notably the Code attributes,
+ * is skipped by its length. It calls a ClassVisitor in the same way a
+ * ClassReader with SKIP_CODE, SKIP_DEBUG and SKIP_FRAMES does, so the
+ * resulting nodes are the same.
+ * 
+ * Unlike ASM 3 it knows all constant pool tags up to Java 11 and can
+ * therefore read the headers of modern class files.
+ * 
+ * @author Gian Perrone
+ */
+public class ClassFileParser {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private static final int ACC_DEPRECATED = 0x20000;
+
+	private static final byte OTHER = 1;
+	private static final byte SIGNATURE = 2;
+	private static final byte EXCEPTIONS = 3;
+	private static final byte CONSTANT_VALUE = 4;
+	private static final byte SYNTHETIC = 5;
+	private static final byte DEPRECATED = 6;
+	private static final byte VISIBLE_ANNOTATIONS = 7;
+	private static final byte INVISIBLE_ANNOTATIONS = 8;
+
+	private final byte[] bytes;
+	private final int start;
+
+	private final int[] offsets;
+	private final String[] strings;
+	private final byte[] attributeKinds;
+
+	private final int header;
+
+	private char[] chars = new char[64];
+
+	/**
+	 * Creates a parser for the class file between the position and the limit
+	 * of a buffer. The buffer itself is not modified. Heap buffers are read in
+	 * place, direct buffers are copied once.
+	 * 
+	 * @param buffer
+	 *            the buffer
+	 * @throws IllegalArgumentException
+	 *             if the buffer does not contain a class file
+	 */
+	public ClassFileParser(ByteBuffer buffer) {
+
+		if (buffer.hasArray()) {
+
+			this.bytes = buffer.array();
+			this.start = buffer.arrayOffset() + buffer.position();
+
+		} else {
+
+			this.bytes = new byte[buffer.remaining()];
+			buffer.duplicate().get(this.bytes);
+			this.start = 0;
+
+		}
+
+		if (s4(0) != MAGIC)
+			throw new IllegalArgumentException("Not a class file");
+
+		int count = u2(8);
+
+		offsets = new int[count];
+		strings = new String[count];
+		attributeKinds = new byte[count];
+
+		int offset = 10;
+
+		for (int i = 1; i < count; i++) {
+
+			offsets[i] = offset;
+
+			int tag = u1(offset);
+
+			switch (tag) {
+			case 1: // Utf8
+				offset += 3 + u2(offset + 1);
+				break;
+			case 7: // Class
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				offset += 3;
+				break;
+			case 15: // MethodHandle
+				offset += 4;
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				offset += 5;
+				break;
+			case 5: // Long
+			case 6: // Double
+				offset += 9;
+				i++;
+				break;
+			default:
+				throw new IllegalArgumentException(
+						"Unknown constant pool tag " + tag);
+			}
+
+		}
+
+		header = offset;
+
+	}
+
+	/**
+	 * Creates a parser for a class file.
+	 * 
+	 * @param bytes
+	 *            the class file
+	 */
+	public ClassFileParser(byte[] bytes) {
+
+		this(ByteBuffer.wrap(bytes));
+
+	}
+
+	/**
+	 * Makes the given visitor visit the class.
+	 * 
+	 * @param cv
+	 *            the visitor
+	 */
+	public void accept(ClassVisitor cv) {
+
+		accept(cv, ParseMode.FULL);
+
+	}
+
+	/**
+	 * Makes the given visitor visit the class, but skips the members the parse
+	 * mode does not keep without decoding any of their names or attributes.
+	 * 
+	 * @param cv
+	 *            the visitor
+	 * @param parseMode
+	 *            the parse mode
+	 */
+	public void accept(ClassVisitor cv, ParseMode parseMode) {
+
+		int offset = header;
+
+		int access = u2(offset);
+		String name = className(u2(offset + 2));
+		int superIndex = u2(offset + 4);
+		String superName = superIndex == 0 ? null : className(superIndex);
+
+		String[] interfaces = new String[u2(offset + 6)];
+		offset += 8;
+
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = className(u2(offset));
+			offset += 2;
+		}
+
+		int fields = offset;
+		offset = skipMembers(offset);
+		int methods = offset;
+		offset = skipMembers(offset);
+
+		String signature = null;
+		List<String> annotations = new ArrayList<String>();
+		List<Boolean> visible = new ArrayList<Boolean>();
+
+		int n = u2(offset);
+		offset += 2;
+
+		for (int i = 0; i < n; i++) {
+
+			int kind = attributeKind(u2(offset));
+			int length = s4(offset + 2);
+			offset += 6;
+
+			if (kind == SIGNATURE)
+				signature = utf(u2(offset));
+			else if (kind == SYNTHETIC)
+				access |= Opcodes.ACC_SYNTHETIC;
+			else if (kind == DEPRECATED)
+				access |= ACC_DEPRECATED;
+			else if (kind == VISIBLE_ANNOTATIONS)
+				readAnnotations(offset, true, annotations, visible);
+			else if (kind == INVISIBLE_ANNOTATIONS)
+				readAnnotations(offset, false, annotations, visible);
+
+			offset += length;
+
+		}
+
+		cv.visit(s4(4), access, name, signature,
+				superName, interfaces);
+
+		for (int i = 0; i < annotations.size(); i++)
+			cv.visitAnnotation(annotations.get(i), visible.get(i));
+
+		n = u2(fields);
+		offset = fields + 2;
+
+		for (int i = 0; i < n; i++)
+			offset = readField(cv, offset, parseMode);
+
+		n = u2(methods);
+		offset = methods + 2;
+
+		for (int i = 0; i < n; i++)
+			offset = readMethod(cv, offset, parseMode);
+
+		cv.visitEnd();
+
+	}
+
+	private int skipMembers(int offset) {
+
+		int n = u2(offset);
+		offset += 2;
+
+		for (int i = 0; i < n; i++)
+			offset = skipAttributes(offset + 6);
+
+		return offset;
+
+	}
+
+	private int skipAttributes(int offset) {
+
+		int n = u2(offset);
+		offset += 2;
+
+		for (int i = 0; i < n; i++)
+			offset += 6 + s4(offset + 2);
+
+		return offset;
+
+	}
+
+	private int readField(ClassVisitor cv, int offset, ParseMode parseMode) {
+
+		int access = u2(offset);
+
+		if (!parseMode.keeps(access))
+			return skipAttributes(offset + 6);
+
+		String name = utf(u2(offset + 2));
+		String desc = utf(u2(offset + 4));
+		int attributes = offset + 6;
+
+		String signature = null;
+		Object value = null;
+		List<String> annotations = null;
+		List<Boolean> visible = null;
+
+		offset = attributes + 2;
+
+		for (int n = u2(attributes), i = 0; i < n; i++) {
+
+			int kind = attributeKind(u2(offset));
+			int length = s4(offset + 2);
+			offset += 6;
+
+			if (kind == CONSTANT_VALUE) {
+				value = constant(u2(offset));
+			} else if (kind == SIGNATURE) {
+				signature = utf(u2(offset));
+			} else if (kind == SYNTHETIC) {
+				access |= Opcodes.ACC_SYNTHETIC;
+			} else if (kind == DEPRECATED) {
+				access |= ACC_DEPRECATED;
+			} else if (kind == VISIBLE_ANNOTATIONS
+					|| kind == INVISIBLE_ANNOTATIONS) {
+				if (annotations == null) {
+					annotations = new ArrayList<String>();
+					visible = new ArrayList<Boolean>();
+				}
+				readAnnotations(offset, kind == VISIBLE_ANNOTATIONS,
+						annotations, visible);
+			}
+
+			offset += length;
+
+		}
+
+		FieldVisitor fv = cv.visitField(access, name, desc, signature, value);
+
+		if (fv != null) {
+
+			if (annotations != null)
+				for (int i = 0; i < annotations.size(); i++)
+					fv.visitAnnotation(annotations.get(i), visible.get(i));
+
+			fv.visitEnd();
+
+		}
+
+		return offset;
+
+	}
+
+	private int readMethod(ClassVisitor cv, int offset, ParseMode parseMode) {
+
+		int access = u2(offset);
+
+		if (!parseMode.keeps(access))
+			return skipAttributes(offset + 6);
+
+		String name = utf(u2(offset + 2));
+		String desc = utf(u2(offset + 4));
+		int attributes = offset + 6;
+
+		String signature = null;
+		String[] exceptions = null;
+		List<String> annotations = null;
+		List<Boolean> visible = null;
+
+		offset = attributes + 2;
+
+		for (int n = u2(attributes), i = 0; i < n; i++) {
+
+			int kind = attributeKind(u2(offset));
+			int length = s4(offset + 2);
+			offset += 6;
+
+			// Code and all other attributes are skipped by their length
+			if (kind == EXCEPTIONS) {
+				exceptions = new String[u2(offset)];
+				for (int j = 0; j < exceptions.length; j++)
+					exceptions[j] = className(u2(offset + 2 + 2 * j));
+			} else if (kind == SIGNATURE) {
+				signature = utf(u2(offset));
+			} else if (kind == SYNTHETIC) {
+				access |= Opcodes.ACC_SYNTHETIC;
+			} else if (kind == DEPRECATED) {
+				access |= ACC_DEPRECATED;
+			} else if (kind == VISIBLE_ANNOTATIONS
+					|| kind == INVISIBLE_ANNOTATIONS) {
+				if (annotations == null) {
+					annotations = new ArrayList<String>();
+					visible = new ArrayList<Boolean>();
+				}
+				readAnnotations(offset, kind == VISIBLE_ANNOTATIONS,
+						annotations, visible);
+			}
+
+			offset += length;
+
+		}
+
+		MethodVisitor mv =
+				cv.visitMethod(access, name, desc, signature, exceptions);
+
+		if (mv != null) {
+
+			if (annotations != null)
+				for (int i = 0; i < annotations.size(); i++)
+					mv.visitAnnotation(annotations.get(i), visible.get(i));
+
+			mv.visitEnd();
+
+		}
+
+		return offset;
+
+	}
+
+	private void readAnnotations(int offset, boolean isVisible,
+			List<String> annotations, List<Boolean> visible) {
+
+		int n = u2(offset);
+		offset += 2;
+
+		for (int i = 0; i < n; i++) {
+
+			annotations.add(utf(u2(offset)));
+			visible.add(isVisible);
+			offset = skipAnnotation(offset);
+
+		}
+
+	}
+
+	private int skipAnnotation(int offset) {
+
+		int n = u2(offset + 2);
+		offset += 4;
+
+		for (int i = 0; i < n; i++)
+			offset = skipElementValue(offset + 2);
+
+		return offset;
+
+	}
+
+	private int skipElementValue(int offset) {
+
+		int tag = u1(offset);
+		offset++;
+
+		switch (tag) {
+		case 'e':
+			return offset + 4;
+		case '@':
+			return skipAnnotation(offset);
+		case '[':
+			int n = u2(offset);
+			offset += 2;
+			for (int i = 0; i < n; i++)
+				offset = skipElementValue(offset);
+			return offset;
+		default:
+			return offset + 2;
+		}
+
+	}
+
+	private int attributeKind(int index) {
+
+		byte kind = attributeKinds[index];
+
+		if (kind != 0)
+			return kind;
+
+		String name = utf(index);
+
+		if (name.equals("Signature"))
+			kind = SIGNATURE;
+		else if (name.equals("Exceptions"))
+			kind = EXCEPTIONS;
+		else if (name.equals("ConstantValue"))
+			kind = CONSTANT_VALUE;
+		else if (name.equals("Synthetic"))
+			kind = SYNTHETIC;
+		else if (name.equals("Deprecated"))
+			kind = DEPRECATED;
+		else if (name.equals("RuntimeVisibleAnnotations"))
+			kind = VISIBLE_ANNOTATIONS;
+		else if (name.equals("RuntimeInvisibleAnnotations"))
+			kind = INVISIBLE_ANNOTATIONS;
+		else
+			kind = OTHER;
+
+		attributeKinds[index] = kind;
+
+		return kind;
+
+	}
+
+	private Object constant(int index) {
+
+		int offset = offsets[index];
+
+		switch (u1(offset)) {
+		case 3:
+			return s4(offset + 1);
+		case 4:
+			return Float.intBitsToFloat(s4(offset + 1));
+		case 5:
+			return s8(offset + 1);
+		case 6:
+			return Double.longBitsToDouble(s8(offset + 1));
+		case 8:
+			return utf(u2(offset + 1));
+		default:
+			throw new IllegalArgumentException("Not a constant value "
+					+ index);
+		}
+
+	}
+
+	private String className(int index) {
+
+		return utf(u2(offsets[index] + 1));
+
+	}
+
+	private String utf(int index) {
+
+		String str = strings[index];
+
+		if (str != null)
+			return str;
+
+		int offset = offsets[index] + 1;
+		int length = u2(offset);
+		offset += 2;
+
+		int end = offset + length;
+
+		int ascii = offset;
+
+		while (ascii < end && bytes[start + ascii] >= 0)
+			ascii++;
+
+		if (ascii == end) {
+
+			// the common case, no decoding necessary
+			str =
+					new String(bytes, start + offset, length,
+							StandardCharsets.ISO_8859_1);
+			strings[index] = str;
+
+			return str;
+
+		}
+
+		if (chars.length < length)
+			chars = new char[length];
+
+		int n = 0;
+
+		while (offset < end) {
+
+			int c = u1(offset++);
+
+			if (c < 0x80) {
+				chars[n++] = (char) c;
+			} else if (c < 0xe0) {
+				chars[n++] = (char) (((c & 0x1f) << 6) | (u1(offset++) & 0x3f));
+			} else {
+				int c2 = u1(offset++);
+				int c3 = u1(offset++);
+				chars[n++] =
+						(char) (((c & 0x0f) << 12) | ((c2 & 0x3f) << 6) | (c3 & 0x3f));
+			}
+
+		}
+
+		str = new String(chars, 0, n);
+		strings[index] = str;
+
+		return str;
+
+	}
+
+	private int u1(int offset) {
+
+		return bytes[start + offset] & 0xff;
+
+	}
+
+	private int u2(int offset) {
+
+		int i = start + offset;
+
+		return ((bytes[i] & 0xff) << 8) | (bytes[i + 1] & 0xff);
+
+	}
+
+	private int s4(int offset) {
+
+		int i = start + offset;
+
+		return ((bytes[i] & 0xff) << 24) | ((bytes[i + 1] & 0xff) << 16)
+				| ((bytes[i + 2] & 0xff) << 8) | (bytes[i + 3] & 0xff);
+
+	}
+
+	private long s8(int offset) {
+
+		return ((long) s4(offset) << 32) | (s4(offset + 4) & 0xffffffffL);
+
+	}
+
+}
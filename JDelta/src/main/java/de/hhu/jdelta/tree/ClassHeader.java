@@ -0,0 +1,124 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the access flags of a class file without parsing the rest of it.
+ * 
+ * Only the constant pool is skipped, which makes this much cheaper than
+ * running a ClassNode over the class. JarNode uses it to skip the classes
+ * which cannot contribute to the API before they are parsed.
+ * 
+ * @author Gian Perrone
+ */
+public final class ClassHeader {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private ClassHeader() {
+
+	}
+
+	/**
+	 * Reads the access flags of a class file. The stream is left positioned
+	 * after the flags.
+	 * 
+	 * @param in
+	 *            the stream positioned at the start of the class file
+	 * @return the access flags
+	 * @throws IOException
+	 *             if the stream does not contain a class file
+	 */
+	public static int readAccess(InputStream in) throws IOException {
+
+		DataInputStream dis = new DataInputStream(in);
+
+		if (dis.readInt() != MAGIC)
+			throw new IOException("Not a class file");
+
+		// minor and major version
+		dis.readInt();
+
+		int count = dis.readUnsignedShort();
+
+		for (int i = 1; i < count; i++) {
+
+			int tag = dis.readUnsignedByte();
+
+			switch (tag) {
+			case 1: // Utf8
+				skip(dis, dis.readUnsignedShort());
+				break;
+			case 7: // Class
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				skip(dis, 2);
+				break;
+			case 15: // MethodHandle
+				skip(dis, 3);
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				skip(dis, 4);
+				break;
+			case 5: // Long
+			case 6: // Double
+				skip(dis, 8);
+				i++;
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag);
+			}
+
+		}
+
+		return dis.readUnsignedShort();
+
+	}
+
+	private static void skip(DataInputStream in, int n) throws IOException {
+
+		while (n > 0) {
+
+			int skipped = in.skipBytes(n);
+
+			if (skipped <= 0) {
+				in.readByte();
+				skipped = 1;
+			}
+
+			n -= skipped;
+
+		}
+
+	}
+
+}
@@ -18,21 +18,10 @@
 
 package de.hhu.jdelta.tree;
 
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
-
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
-import org.objectweb.asm.AnnotationVisitor;
-import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.FieldVisitor;
-import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.Opcodes;
 
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
@@ -40,11 +29,13 @@ import com.google.common.collect.ImmutableSortedSet;
 /**
  * A node that represents a class.
  * 
- * Contains FieldNodes and MethodNodes and is contained by JarNodes.
+ * Contains FieldNodes and MethodNodes and is contained by JarNodes. ClassNodes
+ * are immutable and can be shared between threads, they are read by a
+ * {@link ClassNodeBuilder}.
  * 
  * @author Gian Perrone
  */
-public class ClassNode extends AbstractNode implements ClassVisitor {
+public class ClassNode extends AbstractNode {
 
 	/**
 	 * The type of a class.
@@ -74,7 +65,7 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 		 */
 		ENUM("enum");
 
-		private String str;
+		private final String str;
 
 		private ClassType(String str) {
 
@@ -96,33 +87,32 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 
 	}
 
-	private SortedMap<String, FieldNode> fields =
-			new TreeMap<String, FieldNode>();
-	private SortedMap<String, MethodNode> methods =
-			new TreeMap<String, MethodNode>();
+	private final MemberTable<FieldNode> fields;
+	private final MemberTable<MethodNode> methods;
 	// private SortedMap<String, ClassNode> innerClasses =
 	// new TreeMap<String, ClassNode>();
 
-	private SortedSet<String> interfaces = new TreeSet<String>();
+	private final ImmutableSortedSet<String> interfaces;
+
+	private final ImmutableSortedSet<String> annotations;
 
-	private SortedSet<String> annotations = new TreeSet<String>();
+	private final int version;
+	private final String name;
+	private final String signature;
+	private final String superName;
 
-	private int version;
-	private String name;
-	private String signature;
-	private String superName;
+	private final Visibility visibility;
+	private final ClassType classType;
+	private final boolean final_;
+	private final boolean super_;
 
-	private Visibility visibility;
-	private ClassType classType;
-	private boolean final_ = false;
-	private boolean super_ = false;
+	private int hash;
 
 	/**
 	 * The empty class.
 	 */
 	public static final ClassNode EMPTY_CLASS_NODE = new ClassNode(
-			ImmutableSortedMap.<String, FieldNode> of(),
-			ImmutableSortedMap.<String, MethodNode> of(),
+			MemberTable.<FieldNode> of(), MemberTable.<MethodNode> of(),
 			ImmutableSortedSet.<String> of(), ImmutableSortedSet.<String> of(),
 			-1, null, null, null, null, null, false, false);
 
@@ -134,10 +124,58 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 	 */
 	public ClassNode(ClassReader cr) {
 
-		super();
+		this(cr, ParseMode.FULL);
+
+	}
+
+	/**
+	 * Generates a ClassNode and children reading from a ClassReader and only
+	 * keeps the members the parse mode asks for.
+	 * 
+	 * @param cr
+	 *            the ClassReader
+	 * @param parseMode
+	 *            the parse mode
+	 * @see ClassNodeBuilder
+	 */
+	public ClassNode(ClassReader cr, ParseMode parseMode) {
+
+		this(new ClassNodeBuilder(parseMode).read(cr).build());
+
+	}
+
+	/**
+	 * Generates a ClassNode and children reading from a ClassFileParser and
+	 * only keeps the members the parse mode asks for.
+	 * 
+	 * @param parser
+	 *            the ClassFileParser
+	 * @param parseMode
+	 *            the parse mode
+	 * @see ClassNodeBuilder
+	 */
+	public ClassNode(ClassFileParser parser, ParseMode parseMode) {
 
-		cr.accept(this, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG
-				| ClassReader.SKIP_FRAMES);
+		this(new ClassNodeBuilder(parseMode).read(parser).build());
+
+	}
+
+	/**
+	 * Generates a ClassNode whose values are returned by the getters of a
+	 * subclass.
+	 */
+	ClassNode() {
+
+		this((MemberTable<FieldNode>) null, null, null, null, 0, null, null,
+				null, null, null, false, false);
+
+	}
+
+	private ClassNode(ClassNode other) {
+
+		this(other.fields, other.methods, other.interfaces, other.annotations,
+				other.version, other.name, other.signature, other.superName,
+				other.visibility, other.classType, other.final_, other.super_);
 
 	}
 
@@ -176,6 +214,47 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 			String signature, String superName, Visibility visibility,
 			ClassType classType, boolean final_, boolean super_) {
 
+		this(toFieldTable(fields.values()), toMethodTable(methods.values()),
+				interfaces, annotations, version, name, signature, superName,
+				visibility, classType, final_, super_);
+
+	}
+
+	/**
+	 * Generates a ClassNode with the given values.
+	 * 
+	 * @param fields
+	 *            the fields
+	 * @param methods
+	 *            the methods
+	 * @param interfaces
+	 *            the interfaces
+	 * @param annotations
+	 *            the annotations
+	 * @param version
+	 *            the version
+	 * @param name
+	 *            the name
+	 * @param signature
+	 *            the signature
+	 * @param superName
+	 *            the name of the super class
+	 * @param visibility
+	 *            the visibility
+	 * @param classType
+	 *            the type of the class
+	 * @param final_
+	 *            if the class is final
+	 * @param super_
+	 *            if the class has the super flag set
+	 */
+	public ClassNode(MemberTable<FieldNode> fields,
+			MemberTable<MethodNode> methods,
+			ImmutableSortedSet<String> interfaces,
+			ImmutableSortedSet<String> annotations, int version, String name,
+			String signature, String superName, Visibility visibility,
+			ClassType classType, boolean final_, boolean super_) {
+
 		super();
 
 		this.fields = fields;
@@ -196,21 +275,28 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 	@Override
 	public int hashCode() {
 
-		return new HashCodeBuilder()
-				.append(name)
-				.append(fields)
-				.append(methods)
+		// nodes are immutable, so the hash code is computed once
+		if (hash != 0)
+			return hash;
+
+		hash = new HashCodeBuilder()
+				.append(getName())
+				.append(getFieldTable())
+				.append(getMethodTable())
 				// .append(innerClasses)
-				.append(interfaces)
-				.append(version)
-				.append(signature)
-				.append(superName)
-				.append(visibility)
-				.append(classType)
-				.append(final_)
-				.append(super_)
+				.append(getInterfaces())
+				.append(getAnnotations())
+				.append(getVersion())
+				.append(getSignature())
+				.append(getSuperName())
+				.append(getVisibility())
+				.append(getClassType())
+				.append(isFinal())
+				.append(isSuper())
 				.toHashCode();
 
+		return hash;
+
 	}
 
 	@Override
@@ -228,40 +314,120 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 		ClassNode other = (ClassNode) o;
 
 		return new EqualsBuilder()
-				.append(name, other.name)
-				.append(fields, other.fields)
-				.append(methods, other.methods)
+				.append(getName(), other.getName())
+				.append(getFieldTable(), other.getFieldTable())
+				.append(getMethodTable(), other.getMethodTable())
 				// .append(innerClasses, other.innerClasses)
-				.append(interfaces, other.interfaces)
-				.append(version, other.version)
-				.append(signature, other.signature)
-				.append(superName, other.superName)
-				.append(visibility, other.visibility)
-				.append(classType, other.classType)
-				.append(final_, other.final_)
-				.append(super_, other.super_)
+				.append(getInterfaces(), other.getInterfaces())
+				.append(getAnnotations(), other.getAnnotations())
+				.append(getVersion(), other.getVersion())
+				.append(getSignature(), other.getSignature())
+				.append(getSuperName(), other.getSuperName())
+				.append(getVisibility(), other.getVisibility())
+				.append(getClassType(), other.getClassType())
+				.append(isFinal(), other.isFinal())
+				.append(isSuper(), other.isSuper())
 				.isEquals();
 
 	}
 
+	/**
+	 * Returns the key of a field, see {@link MemberKey}.
+	 */
+	static MemberKey getKey(FieldNode field) {
+
+		return new MemberKey(field.getName());
+
+	}
+
+	/**
+	 * Returns the key of a method, see {@link MemberKey}.
+	 */
+	static MemberKey getKey(MethodNode method) {
+
+		return new MemberKey(method.getName(), method.getDesc());
+
+	}
+
+	/**
+	 * Returns a table of some FieldNodes.
+	 * 
+	 * @param fields
+	 *            the fields
+	 * @return the table
+	 */
+	public static MemberTable<FieldNode> toFieldTable(Iterable<FieldNode> fields) {
+
+		MemberTable.Builder<FieldNode> builder =
+				new MemberTable.Builder<FieldNode>();
+
+		for (FieldNode field : fields)
+			builder.put(getKey(field), field);
+
+		return builder.build();
+
+	}
+
+	/**
+	 * Returns a table of some MethodNodes.
+	 * 
+	 * @param methods
+	 *            the methods
+	 * @return the table
+	 */
+	public static MemberTable<MethodNode> toMethodTable(
+			Iterable<MethodNode> methods) {
+
+		MemberTable.Builder<MethodNode> builder =
+				new MemberTable.Builder<MethodNode>();
+
+		for (MethodNode method : methods)
+			builder.put(getKey(method), method);
+
+		return builder.build();
+
+	}
+
 	/**
 	 * Returns a immutable sorted map of FieldNodes for the fields declared in
 	 * this class. The names are used as keys.
 	 * 
+	 * The map is built from {@link #getFieldTable()} on the first call.
+	 * 
 	 * @return a sorted map of the FieldNodes
 	 */
 	public ImmutableSortedMap<String, FieldNode> getFields() {
-		return ImmutableSortedMap.copyOf(fields);
+		return getFieldTable().asMap();
 	}
 
 	/**
 	 * Returns a immutable sorted map of MethodNodes for the methods declared in
 	 * this class. The names and the description joined by "," are used as keys.
 	 * 
+	 * The map is built from {@link #getMethodTable()} on the first call.
+	 * 
 	 * @return a sorted map of the MethodNodes
 	 */
 	public ImmutableSortedMap<String, MethodNode> getMethods() {
-		return ImmutableSortedMap.copyOf(methods);
+		return getMethodTable().asMap();
+	}
+
+	/**
+	 * Returns the table of the fields declared in this class.
+	 * 
+	 * @return the fields
+	 */
+	public MemberTable<FieldNode> getFieldTable() {
+		return fields;
+	}
+
+	/**
+	 * Returns the table of the methods declared in this class.
+	 * 
+	 * @return the methods
+	 */
+	public MemberTable<MethodNode> getMethodTable() {
+		return methods;
 	}
 
 	// /**
@@ -277,7 +443,7 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 	 * @return the interfaces
 	 */
 	public ImmutableSortedSet<String> getInterfaces() {
-		return ImmutableSortedSet.copyOf(interfaces);
+		return interfaces;
 	}
 
 	/**
@@ -286,7 +452,7 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 	 * @return the annotations
 	 */
 	public ImmutableSortedSet<String> getAnnotations() {
-		return ImmutableSortedSet.copyOf(annotations);
+		return annotations;
 	}
 
 	/**
@@ -377,10 +543,10 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 
 		str.append(getDeclarationString()).append("\n");
 
-		for (FieldNode field : fields.values())
+		for (FieldNode field : getFieldTable())
 			str.append(" ").append(field.getDeclarationString()).append("\n");
 
-		for (MethodNode method : methods.values())
+		for (MethodNode method : getMethodTable())
 			str.append(" ").append(method.getDeclarationString()).append("\n");
 
 		return str.toString();
@@ -402,17 +568,21 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 
 		// accessFlags*
 
+		Visibility visibility = getVisibility();
+
 		if (visibility != Visibility.PACKAGE)
 			str.append(visibility.toString()).append(" ");
 
-		if (final_)
+		if (isFinal())
 			str.append("final ");
 
-		str.append(classType.toString()).append(" ");
+		str.append(getClassType().toString()).append(" ");
 
 		// className
 
-		str.append(name.replace('/', '.'));
+		str.append(getName().replace('/', '.'));
+
+		ImmutableSortedSet<String> interfaces = getInterfaces();
 
 		if (!interfaces.isEmpty()) {
 
@@ -426,90 +596,4 @@ public class ClassNode extends AbstractNode implements ClassVisitor {
 
 	}
 
-	public void visit(int version, int access, String name, String signature,
-			String superName, String[] interfaces) {
-
-		this.version = version;
-		this.name = name;
-		this.signature = signature;
-		this.superName = superName;
-
-		for (String interface_ : interfaces)
-			this.interfaces.add(interface_);
-		this.interfaces = ImmutableSortedSet.copyOf(this.interfaces);
-
-		if ((access & Opcodes.ACC_PUBLIC) != 0)
-			visibility = Visibility.PUBLIC;
-		else
-			visibility = Visibility.PACKAGE;
-
-		if ((access & Opcodes.ACC_FINAL) != 0)
-			final_ = true;
-
-		if ((access & Opcodes.ACC_SUPER) != 0)
-			super_ = true;
-
-		if ((access & Opcodes.ACC_ANNOTATION) != 0)
-			classType = ClassType.ANNOTATION;
-		else if ((access & Opcodes.ACC_INTERFACE) != 0)
-			classType = ClassType.INTERFACE;
-		else if ((access & Opcodes.ACC_ENUM) != 0)
-			classType = ClassType.ENUM;
-		else if ((access & Opcodes.ACC_ABSTRACT) != 0)
-			classType = ClassType.ABSTRACT_CLASS;
-		else
-			classType = ClassType.CLASS;
-
-	}
-
-	public void visitSource(String source, String debug) {
-	}
-
-	public void visitOuterClass(String owner, String name, String desc) {
-	}
-
-	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-
-		annotations.add(desc);
-
-		return null;
-
-	}
-
-	public void visitAttribute(Attribute attr) {
-	}
-
-	public void visitInnerClass(String name, String outerName,
-			String innerName, int access) {
-	}
-
-	public FieldVisitor visitField(int access, String name, String desc,
-			String signature, Object value) {
-
-		FieldNode field = new FieldNode(access, name, desc, signature, value);
-		fields.put(field.getName(), field);
-
-		return field;
-
-	}
-
-	public MethodVisitor visitMethod(int access, String name, String desc,
-			String signature, String[] exceptions) {
-
-		MethodNode method =
-				new MethodNode(access, name, desc, signature, exceptions);
-		methods.put(method.getName() + "," + method.getDesc(), method);
-
-		return method;
-
-	}
-
-	public void visitEnd() {
-
-		fields = ImmutableSortedMap.copyOf(fields);
-		methods = ImmutableSortedMap.copyOf(methods);
-		// innerClasses = Collections.unmodifiableSortedMap(innerClasses);
-
-	}
-
 }
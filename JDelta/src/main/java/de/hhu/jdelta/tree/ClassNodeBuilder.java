@@ -0,0 +1,243 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.util.Arrays;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.tree.ClassNode.ClassType;
+
+/**
+ * A ClassVisitor that collects a class and its members and builds an
+ * immutable ClassNode from them.
+ * 
+ * A builder reads a single class and is not thread-safe, the built nodes are.
+ * 
+ * @author Gian Perrone
+ */
+public class ClassNodeBuilder implements ClassVisitor {
+
+	private final ParseMode parseMode;
+	private final NodeInterner interner;
+
+	private final MemberTable.Builder<FieldNode> fields =
+			new MemberTable.Builder<FieldNode>();
+	private final MemberTable.Builder<MethodNode> methods =
+			new MemberTable.Builder<MethodNode>();
+
+	private ImmutableSortedSet<String> interfaces;
+	private final SortedSet<String> annotations = new TreeSet<String>();
+
+	private int version;
+	private String name;
+	private String signature;
+	private String superName;
+	private int access;
+
+	/**
+	 * Generates a builder which keeps all members.
+	 */
+	public ClassNodeBuilder() {
+
+		this(ParseMode.FULL);
+
+	}
+
+	/**
+	 * Generates a builder which only keeps the members the parse mode asks
+	 * for.
+	 * 
+	 * @param parseMode
+	 *            the parse mode
+	 */
+	public ClassNodeBuilder(ParseMode parseMode) {
+
+		this(parseMode, null);
+
+	}
+
+	/**
+	 * Generates a builder which only keeps the members the parse mode asks
+	 * for and shares the built nodes through an interner.
+	 * 
+	 * @param parseMode
+	 *            the parse mode
+	 * @param interner
+	 *            the interner or null to share no nodes
+	 */
+	public ClassNodeBuilder(ParseMode parseMode, NodeInterner interner) {
+
+		this.parseMode = parseMode;
+		this.interner = interner;
+
+	}
+
+	/**
+	 * Visits the class of a ClassReader.
+	 * 
+	 * @param cr
+	 *            the ClassReader
+	 * @return this builder
+	 */
+	public ClassNodeBuilder read(ClassReader cr) {
+
+		cr.accept(this, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG
+				| ClassReader.SKIP_FRAMES);
+
+		return this;
+
+	}
+
+	/**
+	 * Visits the class of a ClassFileParser.
+	 * 
+	 * @param parser
+	 *            the ClassFileParser
+	 * @return this builder
+	 */
+	public ClassNodeBuilder read(ClassFileParser parser) {
+
+		parser.accept(this, parseMode);
+
+		return this;
+
+	}
+
+	/**
+	 * Returns the ClassNode of the visited class.
+	 * 
+	 * @return the ClassNode
+	 */
+	public ClassNode build() {
+
+		Visibility visibility;
+		ClassType classType;
+
+		if ((access & Opcodes.ACC_PUBLIC) != 0)
+			visibility = Visibility.PUBLIC;
+		else
+			visibility = Visibility.PACKAGE;
+
+		if ((access & Opcodes.ACC_ANNOTATION) != 0)
+			classType = ClassType.ANNOTATION;
+		else if ((access & Opcodes.ACC_INTERFACE) != 0)
+			classType = ClassType.INTERFACE;
+		else if ((access & Opcodes.ACC_ENUM) != 0)
+			classType = ClassType.ENUM;
+		else if ((access & Opcodes.ACC_ABSTRACT) != 0)
+			classType = ClassType.ABSTRACT_CLASS;
+		else
+			classType = ClassType.CLASS;
+
+		ClassNode classNode =
+				new ClassNode(fields.build(), methods.build(), interfaces,
+						ImmutableSortedSet.copyOf(annotations), version, name,
+						signature, superName, visibility, classType,
+						(access & Opcodes.ACC_FINAL) != 0,
+						(access & Opcodes.ACC_SUPER) != 0);
+
+		return interner != null ? interner.intern(classNode) : classNode;
+
+	}
+
+	public void visit(int version, int access, String name, String signature,
+			String superName, String[] interfaces) {
+
+		this.version = version;
+		this.access = access;
+		this.name = name;
+		this.signature = signature;
+		this.superName = superName;
+		this.interfaces = ImmutableSortedSet.copyOf(Arrays.asList(interfaces));
+
+	}
+
+	public void visitSource(String source, String debug) {
+	}
+
+	public void visitOuterClass(String owner, String name, String desc) {
+	}
+
+	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+
+		annotations.add(desc);
+
+		return null;
+
+	}
+
+	public void visitAttribute(Attribute attr) {
+	}
+
+	public void visitInnerClass(String name, String outerName,
+			String innerName, int access) {
+	}
+
+	public FieldVisitor visitField(int access, String name, String desc,
+			String signature, Object value) {
+
+		if (!parseMode.keeps(access))
+			return null;
+
+		FieldNode field = new FieldNode(access, name, desc, signature, value);
+
+		if (interner != null)
+			field = interner.intern(field);
+
+		fields.put(ClassNode.getKey(field), field);
+
+		// annotations of fields are not part of the tree
+		return null;
+
+	}
+
+	public MethodVisitor visitMethod(int access, String name, String desc,
+			String signature, String[] exceptions) {
+
+		if (!parseMode.keeps(access))
+			return null;
+
+		MethodNode method =
+				new MethodNode(access, name, desc, signature, exceptions);
+
+		if (interner != null)
+			method = interner.intern(method);
+
+		methods.put(ClassNode.getKey(method), method);
+
+		// annotations and code of methods are not part of the tree
+		return null;
+
+	}
+
+	public void visitEnd() {
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+/**
+ * A ClassNode which is a view of a class record of an ApiSnapshot in a
+ * buffer. Every getter decodes its value from the buffer, so the view keeps
+ * nothing but the buffer and the offset of the record on the heap.
+ * 
+ * @author Gian Perrone
+ */
+final class ClassNodeView extends ClassNode {
+
+	private final ByteBuffer buffer;
+	private final int offset;
+
+	ClassNodeView(ByteBuffer buffer, int offset) {
+
+		super();
+
+		this.buffer = buffer;
+		this.offset = offset;
+
+	}
+
+	private DataInputStream seek(int part) {
+
+		try {
+			return ApiSnapshot.seekClass(buffer, offset, part);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+	private String readString(int part) {
+
+		try {
+			return ApiSnapshot.readString(seek(part));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+	private int readByte(int part) {
+
+		try {
+			return seek(part).readByte();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+	private ImmutableSortedSet<String> readStrings(int part) {
+
+		try {
+			return ApiSnapshot.readStrings(seek(part));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+	@Override
+	public MemberTable<FieldNode> getFieldTable() {
+
+		try {
+			return ApiSnapshot.readFields(seek(ApiSnapshot.CLASS_FIELDS));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+	@Override
+	public MemberTable<MethodNode> getMethodTable() {
+
+		try {
+			return ApiSnapshot.readMethods(seek(ApiSnapshot.CLASS_METHODS));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+	@Override
+	public ImmutableSortedSet<String> getInterfaces() {
+		return readStrings(ApiSnapshot.CLASS_INTERFACES);
+	}
+
+	@Override
+	public ImmutableSortedSet<String> getAnnotations() {
+		return readStrings(ApiSnapshot.CLASS_ANNOTATIONS);
+	}
+
+	@Override
+	public int getVersion() {
+
+		try {
+			return seek(ApiSnapshot.CLASS_VERSION).readInt();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+	@Override
+	public String getName() {
+		return readString(ApiSnapshot.CLASS_NAME);
+	}
+
+	@Override
+	public String getSignature() {
+		return readString(ApiSnapshot.CLASS_SIGNATURE);
+	}
+
+	@Override
+	public String getSuperName() {
+		return readString(ApiSnapshot.CLASS_SUPER_NAME);
+	}
+
+	@Override
+	public Visibility getVisibility() {
+		return Visibility.values()[readByte(ApiSnapshot.CLASS_VISIBILITY)];
+	}
+
+	@Override
+	public ClassType getClassType() {
+		return ClassType.values()[readByte(ApiSnapshot.CLASS_TYPE)];
+	}
+
+	@Override
+	public boolean isFinal() {
+		return (readByte(ApiSnapshot.CLASS_FLAGS) & ApiSnapshot.CLASS_FINAL) != 0;
+	}
+
+	@Override
+	public boolean isSuper() {
+		return (readByte(ApiSnapshot.CLASS_FLAGS) & ApiSnapshot.CLASS_SUPER) != 0;
+	}
+
+	/**
+	 * Returns the description of the decoded class.
+	 */
+	@Override
+	public String toString() {
+
+		try {
+			return ApiSnapshot.readClass(seek(ApiSnapshot.CLASS_NAME)).toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+}
@@ -20,33 +20,32 @@ package de.hhu.jdelta.tree;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
-import org.objectweb.asm.AnnotationVisitor;
-import org.objectweb.asm.Attribute;
-import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
 /**
  * A node that represents a field.
  * 
- * Contained by ClassNodes.
+ * Contained by ClassNodes. FieldNodes are immutable.
  * 
  * @author Gian Perrone
  */
-public class FieldNode extends AbstractNode implements FieldVisitor {
+public class FieldNode extends AbstractNode {
 
-	private String name;
-	private String desc;
-	private String signature;
-	private Object value;
+	private final String name;
+	private final String desc;
+	private final String signature;
+	private final Object value;
 
-	private Visibility visibility;
-	private boolean static_ = false;
-	private boolean final_ = false;
-	private boolean volatile_ = false;
-	private boolean transient_ = false;
-	private boolean synthetic = false;
-	private boolean enum_ = false;
+	private final Visibility visibility;
+	private final boolean static_;
+	private final boolean final_;
+	private final boolean volatile_;
+	private final boolean transient_;
+	private final boolean synthetic;
+	private final boolean enum_;
+
+	private int hash;
 
 	/**
 	 * The empty field.
@@ -79,23 +78,12 @@ public class FieldNode extends AbstractNode implements FieldVisitor {
 		else
 			visibility = Visibility.PACKAGE;
 
-		if ((access & Opcodes.ACC_STATIC) != 0)
-			static_ = true;
-
-		if ((access & Opcodes.ACC_FINAL) != 0)
-			final_ = true;
-
-		if ((access & Opcodes.ACC_VOLATILE) != 0)
-			volatile_ = true;
-
-		if ((access & Opcodes.ACC_TRANSIENT) != 0)
-			transient_ = true;
-
-		if ((access & Opcodes.ACC_SYNTHETIC) != 0)
-			synthetic = true;
-
-		if ((access & Opcodes.ACC_ENUM) != 0)
-			enum_ = true;
+		static_ = (access & Opcodes.ACC_STATIC) != 0;
+		final_ = (access & Opcodes.ACC_FINAL) != 0;
+		volatile_ = (access & Opcodes.ACC_VOLATILE) != 0;
+		transient_ = (access & Opcodes.ACC_TRANSIENT) != 0;
+		synthetic = (access & Opcodes.ACC_SYNTHETIC) != 0;
+		enum_ = (access & Opcodes.ACC_ENUM) != 0;
 
 	}
 
@@ -148,7 +136,11 @@ public class FieldNode extends AbstractNode implements FieldVisitor {
 	@Override
 	public int hashCode() {
 
-		return new HashCodeBuilder()
+		// nodes are immutable, so the hash code is computed once
+		if (hash != 0)
+			return hash;
+
+		hash = new HashCodeBuilder()
 				.append(name)
 				.append(desc)
 				.append(signature)
@@ -162,6 +154,8 @@ public class FieldNode extends AbstractNode implements FieldVisitor {
 				.append(enum_)
 				.toHashCode();
 
+		return hash;
+
 	}
 
 	@Override
@@ -341,14 +335,4 @@ public class FieldNode extends AbstractNode implements FieldVisitor {
 
 	}
 
-	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-		return null;
-	}
-
-	public void visitAttribute(Attribute attr) {
-	}
-
-	public void visitEnd() {
-	}
-
 }
@@ -21,18 +21,40 @@ package de.hhu.jdelta.tree;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.jar.JarEntry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
 
-import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 
+import de.hhu.jdelta.io.Archive;
+import de.hhu.jdelta.io.ByteBufferInputStream;
+import de.hhu.jdelta.io.DirectoryArchive;
+import de.hhu.jdelta.io.FatJarArchive;
+import de.hhu.jdelta.io.ZipArchive;
+import de.hhu.jdelta.io.ZipStreamReader;
+import de.hhu.jdelta.jfr.ClassParseEvent;
+import de.hhu.jdelta.jfr.JarLoadEvent;
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.progress.ProgressListener.Phase;
+
 /**
- * A node that represents a jar file.
+ * A node that represents a jar file or a directory of class files.
  * 
  * Contains ClassNodes.
  * 
@@ -40,38 +62,915 @@ import com.google.common.collect.ImmutableSortedMap;
  */
 public class JarNode {
 
-	private JarFile jar;
+	private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+	private String name;
 
 	private SortedMap<String, ClassNode> classes =
 			new TreeMap<String, ClassNode>();
 
+	private SortedMap<String, ClassNode> entryNodes =
+			new TreeMap<String, ClassNode>();
+	private boolean multiRelease = false;
+	private int release = 0;
+
+	private ImmutableMap<String, EntryStamp> stamps = ImmutableMap.of();
+	private ParseMode parseMode = ParseMode.API;
+	private boolean filtered = false;
+
+	private ApiFingerprint fingerprint;
+	private boolean apiSnapshot = false;
+
+	private NodeInterner interner;
+
 	/**
 	 * Creates a JarNode and children from the given jar file.
 	 * 
 	 * @param jar
-	 *            the jar file
+	 *            the jar file, directory or class path
 	 * @throws IOException
 	 */
 	public JarNode(File jar) throws IOException {
 
-		this.jar = new JarFile(jar);
+		this(jar, ProgressListener.SILENT);
+
+	}
+
+	/**
+	 * Creates a JarNode and children from the given jar file and reports the
+	 * scanned entries to a listener.
+	 * 
+	 * @param jar
+	 *            the jar file, directory or class path
+	 * @param listener
+	 *            the progress listener
+	 * @throws IOException
+	 */
+	public JarNode(File jar, ProgressListener listener) throws IOException {
+
+		this(jar, null, ParseMode.FULL, listener);
+
+	}
+
+	/**
+	 * Creates a JarNode from the given jar file which only contains the given
+	 * class entries. The other entries are not parsed at all.
+	 * 
+	 * @param jar
+	 *            the jar file, directory or class path
+	 * @param entries
+	 *            the names of the entries to parse or null for all
+	 * @param parseMode
+	 *            the parse mode for the classes
+	 * @param listener
+	 *            the progress listener
+	 * @throws IOException
+	 */
+	public JarNode(File jar, Set<String> entries, ParseMode parseMode,
+			ProgressListener listener) throws IOException {
+
+		this(Archive.open(jar), entries, parseMode, null, null, null, false,
+				listener, true);
+
+	}
+
+	/**
+	 * Creates a JarNode from the given jar file like
+	 * {@link #JarNode(File, Set, ParseMode, ProgressListener)}, but shares the
+	 * nodes with other JarNodes read with the same interner. This is useful
+	 * if many versions of a library are loaded at once.
+	 * 
+	 * @param jar
+	 *            the jar file, directory or class path
+	 * @param entries
+	 *            the names of the entries to parse or null for all
+	 * @param parseMode
+	 *            the parse mode for the classes
+	 * @param interner
+	 *            the interner
+	 * @param listener
+	 *            the progress listener
+	 * @throws IOException
+	 */
+	public JarNode(File jar, Set<String> entries, ParseMode parseMode,
+			NodeInterner interner, ProgressListener listener)
+			throws IOException {
+
+		this(Archive.open(jar), entries, parseMode, interner, null, null,
+				false, listener, true);
+
+	}
+
+	/**
+	 * Creates a JarNode from the given archive, e.g. a jar, a directory or a
+	 * class path, which only contains the given class entries.
+	 * 
+	 * @param archive
+	 *            the archive
+	 * @param entries
+	 *            the names of the entries to parse or null for all
+	 * @param parseMode
+	 *            the parse mode for the classes
+	 * @param listener
+	 *            the progress listener
+	 * @throws IOException
+	 */
+	public JarNode(Archive archive, Set<String> entries, ParseMode parseMode,
+			ProgressListener listener) throws IOException {
+
+		this(archive, entries, parseMode, null, null, null, false, listener,
+				false);
+
+	}
+
+	/**
+	 * Reads the classes of an archive, which is closed afterwards if the
+	 * JarNode opened it.
+	 */
+	private JarNode(Archive archive, Set<String> entries,
+			ParseMode parseMode, NodeInterner interner, JarNode previous,
+			Set<String> changed, boolean publicOnly, ProgressListener listener,
+			boolean close) throws IOException {
+
+		try {
+			load(archive, entries, parseMode, interner, previous, changed,
+					publicOnly, listener);
+		} finally {
+			if (close)
+				archive.close();
+		}
+
+	}
+
+	/**
+	 * Reads the classes of an archive. If the changed entry names are given,
+	 * the other entries of the previous JarNode are kept without comparing
+	 * stamps. If publicOnly is set, the entries which the previous JarNode
+	 * does not contain are only kept if they are public classes.
+	 */
+	private void load(Archive archive, Set<String> entries,
+			ParseMode parseMode, NodeInterner interner, JarNode previous,
+			Set<String> changed, boolean publicOnly, ProgressListener listener)
+			throws IOException {
+
+		JarLoadEvent loadEvent = new JarLoadEvent();
+		loadEvent.begin();
+
+		this.name = archive.getName();
+		this.parseMode = parseMode;
+		this.interner = interner;
+		this.filtered =
+				previous != null ? previous.filtered : entries != null
+						|| publicOnly;
+		this.release = previous != null ? previous.release : 0;
+
+		Map<String, EntryStamp> stamps = new HashMap<String, EntryStamp>();
+		List<Archive.Entry> pending = new ArrayList<Archive.Entry>();
+		List<Boolean> publicChecks = new ArrayList<Boolean>();
+
+		if (changed != null) {
+
+			for (Map.Entry<String, EntryStamp> stamp : previous.stamps
+					.entrySet())
+				if (!changed.contains(stamp.getKey()))
+					stamps.put(stamp.getKey(), stamp.getValue());
+
+			for (Map.Entry<String, ClassNode> entryNode : previous.entryNodes
+					.entrySet())
+				if (!changed.contains(entryNode.getKey()))
+					entryNodes.put(entryNode.getKey(), entryNode.getValue());
+
+			multiRelease = previous.multiRelease
+					&& !changed.contains(JarFile.MANIFEST_NAME);
+
+		}
+
+		for (Archive.Entry entry : archive.getEntries()) {
+
+			String entryName = entry.getName();
+			if (!isClassEntry(entryName) && getVersion(entryName) < 0)
+				continue;
+
+			EntryStamp stamp = new EntryStamp(entry.getStamp(), entry.getSize());
+			stamps.put(entryName, stamp);
+
+			if (previous != null && changed == null
+					&& stamp.equals(previous.stamps.get(entryName))) {
+
+				ClassNode classNode = previous.entryNodes.get(entryName);
+
+				if (classNode != null)
+					entryNodes.put(entryName, classNode);
+
+				continue;
+
+			}
+
+			if (entries != null && !entries.contains(getBaseName(entryName)))
+				continue;
+
+			pending.add(entry);
+			publicChecks.add(publicOnly
+					&& (previous == null || !previous.entryNodes
+							.containsKey(entryName)));
+
+		}
+
+		listener.phaseStarted(Phase.LOADING, name, pending.size());
+
+		ParseTask task =
+				new ParseTask(archive, pending, publicChecks, parseMode,
+						interner, listener);
+
+		try {
+			ForkJoinPool.commonPool().invoke(task);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		for (int i = 0; i < pending.size(); i++)
+			if (task.classNodes[i] != null)
+				entryNodes.put(pending.get(i).getName(), task.classNodes[i]);
+
+		Archive.Entry manifest = archive.getEntry(JarFile.MANIFEST_NAME);
+
+		if (manifest != null)
+			multiRelease =
+					isMultiRelease(new Manifest(new ByteBufferInputStream(
+							archive.read(manifest))));
+
+		this.stamps = ImmutableMap.copyOf(stamps);
+		this.entryNodes = ImmutableSortedMap.copyOf(entryNodes);
+		this.classes = resolve();
+
+		listener.phaseFinished(Phase.LOADING);
+
+		if (loadEvent.shouldCommit()) {
+			loadEvent.jarName = name;
+			loadEvent.jarSize = archive.length();
+			loadEvent.classCount = classes.size();
+			loadEvent.commit();
+		}
+
+	}
+
+	/**
+	 * Creates a JarNode from a jar held in memory.
+	 * 
+	 * @param jar
+	 *            the jar between the position and the limit of the buffer
+	 * @param name
+	 *            the name of the jar
+	 * @throws IOException
+	 */
+	public JarNode(ByteBuffer jar, String name) throws IOException {
+
+		this(new ZipArchive(jar, name), null, ParseMode.FULL,
+				ProgressListener.SILENT);
+
+	}
+
+	/**
+	 * Creates a JarNode from a jar held in memory.
+	 * 
+	 * @param jar
+	 *            the jar
+	 * @param name
+	 *            the name of the jar
+	 * @throws IOException
+	 */
+	public JarNode(byte[] jar, String name) throws IOException {
+
+		this(ByteBuffer.wrap(jar), name);
+
+	}
+
+	/**
+	 * Creates a JarNode from a stream of a jar, which may also be a
+	 * ZipInputStream or JarInputStream. The classes are parsed while the
+	 * entries are read, and the stream is not closed. The CRCs of skipped
+	 * entries may be unknown, such entries are always parsed by
+	 * {@link #update(Archive, ProgressListener)}.
+	 * 
+	 * @param in
+	 *            the stream
+	 * @param name
+	 *            the name of the jar
+	 * @param entries
+	 *            the names of the entries to parse or null for all
+	 * @param parseMode
+	 *            the parse mode for the classes
+	 * @param listener
+	 *            the progress listener
+	 * @throws IOException
+	 */
+	public JarNode(InputStream in, String name, Set<String> entries,
+			ParseMode parseMode, ProgressListener listener) throws IOException {
+
+		JarLoadEvent loadEvent = new JarLoadEvent();
+		loadEvent.begin();
+
+		this.name = name;
+		this.parseMode = parseMode;
+		this.filtered = entries != null;
+
+		ZipStreamReader reader = new ZipStreamReader(in);
+
+		// a JarInputStream consumes the manifest itself
+		if (in instanceof JarInputStream)
+			multiRelease = isMultiRelease(((JarInputStream) in).getManifest());
+		Map<String, EntryStamp> stamps = new HashMap<String, EntryStamp>();
+		long length = 0;
+		int done = 0;
+
+		listener.phaseStarted(Phase.LOADING, name, -1);
+
+		for (ZipStreamReader.Entry entry; (entry = reader.next()) != null;) {
+
+			listener.progress(Phase.LOADING, ++done, -1);
+
+			String entryName = entry.getName();
+
+			if (entryName.equalsIgnoreCase(JarFile.MANIFEST_NAME)) {
+				multiRelease =
+						isMultiRelease(new Manifest(new ByteBufferInputStream(
+								reader.read())));
+				continue;
+			}
+
+			if (!isClassEntry(entryName) && getVersion(entryName) < 0)
+				continue;
+
+			if (entries != null && !entries.contains(getBaseName(entryName))) {
+
+				if (entry.getStamp() != -1)
+					stamps.put(entryName, new EntryStamp(entry.getStamp(),
+							entry.getSize()));
+
+				continue;
+
+			}
+
+			ByteBuffer bytes = reader.read();
+			length += bytes.remaining();
+
+			stamps.put(entryName, new EntryStamp(entry.getStamp(),
+					bytes.remaining()));
+
+			entryNodes.put(entryName, parse(bytes, parseMode, null));
+
+		}
+
+		this.stamps = ImmutableMap.copyOf(stamps);
+		this.entryNodes = ImmutableSortedMap.copyOf(entryNodes);
+		this.classes = resolve();
+
+		listener.phaseFinished(Phase.LOADING);
+
+		if (loadEvent.shouldCommit()) {
+			loadEvent.jarName = name;
+			loadEvent.jarSize = length;
+			loadEvent.classCount = classes.size();
+			loadEvent.commit();
+		}
+
+	}
+
+	private static ClassNode parse(ByteBuffer bytes, ParseMode parseMode,
+			NodeInterner interner) {
+
+		ClassParseEvent parseEvent = new ClassParseEvent();
+		parseEvent.begin();
+
+		int size = bytes.remaining();
+		ClassNode classNode =
+				new ClassNodeBuilder(parseMode, interner)
+						.read(new ClassFileParser(bytes))
+						.build();
+
+		if (parseEvent.shouldCommit()) {
+			parseEvent.className = classNode.getName();
+			parseEvent.entrySize = size;
+			parseEvent.commit();
+		}
+
+		return classNode;
+
+	}
+
+	/**
+	 * The stamp and the size of an entry. Both are compared, since a stamp
+	 * like the modification time of a file does not cover the size.
+	 */
+	private static final class EntryStamp {
+
+		private final long stamp;
+		private final long size;
+
+		EntryStamp(long stamp, long size) {
+
+			this.stamp = stamp;
+			this.size = size;
+
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof EntryStamp))
+				return false;
+
+			EntryStamp other = (EntryStamp) obj;
+
+			return stamp == other.stamp && size == other.size;
+
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (stamp ^ (stamp >>> 32)) * 31 + (int) size;
+		}
+
+	}
+
+	/**
+	 * Parses entries of an archive in parallel. Entries which are marked as
+	 * public only are skipped if they are no public classes.
+	 */
+	private static final class ParseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final int THRESHOLD = 16;
+
+		private final Archive archive;
+		private final List<Archive.Entry> entries;
+		private final List<Boolean> publicOnly;
+		private final ParseMode parseMode;
+		private final NodeInterner interner;
+		private final ProgressListener listener;
+		private final AtomicInteger done;
+		private final ClassNode[] classNodes;
+		private final int from;
+		private final int to;
+
+		ParseTask(Archive archive, List<Archive.Entry> entries,
+				List<Boolean> publicOnly, ParseMode parseMode,
+				NodeInterner interner, ProgressListener listener) {
+
+			this(archive, entries, publicOnly, parseMode, interner, listener,
+					new AtomicInteger(), new ClassNode[entries.size()], 0,
+					entries.size());
+
+		}
+
+		private ParseTask(Archive archive, List<Archive.Entry> entries,
+				List<Boolean> publicOnly, ParseMode parseMode,
+				NodeInterner interner, ProgressListener listener,
+				AtomicInteger done, ClassNode[] classNodes, int from, int to) {
+
+			this.archive = archive;
+			this.entries = entries;
+			this.publicOnly = publicOnly;
+			this.parseMode = parseMode;
+			this.interner = interner;
+			this.listener = listener;
+			this.done = done;
+			this.classNodes = classNodes;
+			this.from = from;
+			this.to = to;
+
+		}
+
+		@Override
+		protected void compute() {
+
+			if (to - from > THRESHOLD) {
+
+				int middle = (from + to) >>> 1;
 
-		for (Enumeration<JarEntry> e = this.jar.entries(); e.hasMoreElements();) {
+				invokeAll(new ParseTask(archive, entries, publicOnly,
+						parseMode, interner, listener, done, classNodes, from,
+						middle), new ParseTask(archive, entries, publicOnly,
+						parseMode, interner, listener, done, classNodes, middle,
+						to));
 
-			JarEntry entry = e.nextElement();
+				return;
 
-			String name = entry.getName();
-			if (name.endsWith(".class") && !name.contains("$")) {
+			}
+
+			try {
+
+				for (int i = from; i < to; i++) {
+
+					ByteBuffer bytes = archive.read(entries.get(i));
+
+					if (!publicOnly.get(i)
+							|| (ClassHeader.readAccess(new ByteBufferInputStream(
+									bytes)) & Opcodes.ACC_PUBLIC) != 0)
+						classNodes[i] = parse(bytes, parseMode, interner);
+
+				}
+
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			// counted under the lock, so the counts reach the listener in order
+			synchronized (listener) {
+				listener.progress(Phase.LOADING, done.addAndGet(to - from),
+						classNodes.length);
+			}
+
+		}
+
+	}
+
+	JarNode(String name, ApiSnapshot snapshot) {
+
+		this.name = name;
+		this.classes = snapshot.getClasses();
+		this.entryNodes = classes;
+		this.fingerprint = snapshot.getFingerprint();
+		this.multiRelease = snapshot.isMultiRelease();
+		this.release = snapshot.getRelease();
+		this.apiSnapshot = true;
+
+	}
+
+	private JarNode(JarNode base, int release) {
+
+		this.name = base.name;
+		this.entryNodes = base.entryNodes;
+		this.multiRelease = base.multiRelease;
+		this.release = release;
+		this.stamps = base.stamps;
+		this.parseMode = base.parseMode;
+		this.interner = base.interner;
+		this.filtered = base.filtered;
+		this.classes = resolve();
+
+	}
+
+	static boolean isClassEntry(String name) {
+
+		return name.endsWith(".class") && !name.contains("$")
+				&& !name.startsWith("META-INF/");
+
+	}
+
+	/**
+	 * Returns the release of a class entry below META-INF/versions/.
+	 * 
+	 * @param name
+	 *            the entry name
+	 * @return the release or -1 if the entry is no versioned class entry
+	 */
+	private static int getVersion(String name) {
+
+		if (!name.startsWith(VERSIONS_PREFIX))
+			return -1;
+
+		int slash = name.indexOf('/', VERSIONS_PREFIX.length());
+
+		if (slash < 0 || !isClassEntry(name.substring(slash + 1)))
+			return -1;
+
+		try {
+
+			int version =
+					Integer.parseInt(name.substring(VERSIONS_PREFIX.length(),
+							slash));
+
+			return version >= 9 ? version : -1;
+
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+
+	}
+
+	private static String getBaseName(String name) {
+
+		if (getVersion(name) < 0)
+			return name;
+
+		return name.substring(name.indexOf('/', VERSIONS_PREFIX.length()) + 1);
+
+	}
+
+	private static boolean isMultiRelease(Manifest manifest) {
 
-				InputStream is = this.jar.getInputStream(entry);
+		return manifest != null
+				&& "true".equalsIgnoreCase(manifest.getMainAttributes().getValue(
+						"Multi-Release"));
 
-				classes.put(name, new ClassNode(new ClassReader(is)));
+	}
+
+	/**
+	 * Returns the classes of the base layer overlaid with the versioned
+	 * classes of the highest release up to the target release.
+	 * 
+	 * @return the resolved classes
+	 */
+	private ImmutableSortedMap<String, ClassNode> resolve() {
+
+		SortedMap<String, ClassNode> resolved = new TreeMap<String, ClassNode>();
+		Map<String, Integer> versions = new HashMap<String, Integer>();
+
+		for (Map.Entry<String, ClassNode> entry : entryNodes.entrySet())
+			if (getVersion(entry.getKey()) < 0)
+				resolved.put(entry.getKey(), entry.getValue());
+
+		if (multiRelease) {
+
+			for (Map.Entry<String, ClassNode> entry : entryNodes.entrySet()) {
+
+				int version = getVersion(entry.getKey());
+
+				if (version < 0 || version > release)
+					continue;
+
+				String baseName = getBaseName(entry.getKey());
+				Integer current = versions.get(baseName);
+
+				if (current == null || current < version) {
+					resolved.put(baseName, entry.getValue());
+					versions.put(baseName, version);
+				}
 
 			}
 
 		}
 
-		classes = ImmutableSortedMap.copyOf(classes);
+		return ImmutableSortedMap.copyOf(resolved);
+
+	}
+
+	/**
+	 * Returns a JarNode with the classes of this multi-release jar as seen by
+	 * the given release: the classes of the base layer are overlaid with the
+	 * classes below META-INF/versions/ of the highest release up to the given
+	 * one. All ClassNodes are shared with this JarNode, so no class is parsed
+	 * again. For jars which are not multi-release, this JarNode is returned.
+	 * 
+	 * @param release
+	 *            the target release, e.g. 11, or 0 for the base layer
+	 * @return the JarNode
+	 * @throws IllegalStateException
+	 *             if this JarNode is the ApiSnapshot of another release
+	 */
+	public JarNode forRelease(int release) {
+
+		if (!multiRelease || release == this.release)
+			return this;
+
+		// a snapshot holds the classes of its release only
+		if (apiSnapshot)
+			throw new IllegalStateException("The API snapshot of " + name
+					+ " is taken for release " + this.release);
+
+		return new JarNode(this, release);
+
+	}
+
+	/**
+	 * Returns the target release of this JarNode.
+	 * 
+	 * @return the release or 0 for the base layer
+	 */
+	public int getRelease() {
+		return release;
+	}
+
+	/**
+	 * Returns true if the jar is a multi-release jar.
+	 * 
+	 * @return the multi-release flag
+	 */
+	public boolean isMultiRelease() {
+		return multiRelease;
+	}
+
+	/**
+	 * Creates a JarNode for the baseline of a comparison. If the jar contains
+	 * an embedded ApiSnapshot or is an {@link ApiDump}, only the snapshot is
+	 * read and the JarNode contains the public classes with their public and
+	 * protected members. Otherwise all classes are parsed in the API parse
+	 * mode.
+	 * 
+	 * @param jar
+	 *            the jar file, directory or class path
+	 * @param listener
+	 *            the progress listener
+	 * @return the JarNode
+	 * @throws IOException
+	 */
+	public static JarNode forBaseline(File jar, ProgressListener listener)
+			throws IOException {
+
+		return forBaseline(jar, 0, false, listener);
+
+	}
+
+	/**
+	 * Creates a JarNode for the baseline of a comparison like
+	 * {@link #forBaseline(File, ProgressListener)} with the classes a
+	 * multi-release jar has for the given release. An embedded ApiSnapshot
+	 * which was taken for another release is ignored. If the jar is parsed
+	 * and publicOnly is set, only its public classes are parsed, see
+	 * {@link #forApi(File, ProgressListener)}.
+	 * 
+	 * @param jar
+	 *            the jar file, directory or class path
+	 * @param release
+	 *            the target release, e.g. 11, or 0 for the base layer
+	 * @param publicOnly
+	 *            true to skip the classes which are not public
+	 * @param listener
+	 *            the progress listener
+	 * @return the JarNode
+	 * @throws IOException
+	 */
+	public static JarNode forBaseline(File jar, int release,
+			boolean publicOnly, ProgressListener listener) throws IOException {
+
+		if (ApiDump.isDump(jar))
+			return new JarNode(jar.getName(), ApiDump.read(jar));
+
+		Archive archive = Archive.open(jar);
+		ApiSnapshot snapshot;
+
+		try {
+			snapshot = ApiSnapshot.readEmbedded(archive);
+		} catch (IOException e) {
+			archive.close();
+			throw e;
+		}
+
+		if (snapshot != null && (!snapshot.isMultiRelease()
+				|| snapshot.getRelease() == release)) {
+			archive.close();
+			return new JarNode(archive.getName(), snapshot);
+		}
+
+		return new JarNode(archive, null, ParseMode.API, null, null, null,
+				publicOnly, listener, true).forRelease(release);
+
+	}
+
+	/**
+	 * Creates a JarNode of the public classes of a jar in the API parse mode.
+	 * The access flags of each class are read from its data before it is
+	 * parsed, the other classes are skipped. The entries which are needed
+	 * for a comparison although they are not public can be added by
+	 * {@link #include(File, Set, ProgressListener)}.
+	 * 
+	 * @param jar
+	 *            the jar file, directory or class path
+	 * @param listener
+	 *            the progress listener
+	 * @return the JarNode
+	 * @throws IOException
+	 */
+	public static JarNode forApi(File jar, ProgressListener listener)
+			throws IOException {
+
+		return new JarNode(Archive.open(jar), null, ParseMode.API, null, null,
+				null, true, listener, true);
+
+	}
+
+	/**
+	 * Creates a JarNode for each artifact of a jar. A fat jar or WAR consists
+	 * of its own classes and the nested jars of its dependencies, see
+	 * {@link FatJarArchive#getArtifacts()}, other jars are a single artifact.
+	 * 
+	 * @param jar
+	 *            the jar file
+	 * @param parseMode
+	 *            the parse mode for the classes
+	 * @param listener
+	 *            the progress listener
+	 * @return the JarNodes by artifact name
+	 * @throws IOException
+	 */
+	public static SortedMap<String, JarNode> forArtifacts(File jar,
+			ParseMode parseMode, ProgressListener listener) throws IOException {
+
+		Archive archive = Archive.open(jar);
+		SortedMap<String, JarNode> nodes = new TreeMap<String, JarNode>();
+
+		try {
+
+			if (archive instanceof FatJarArchive) {
+
+				for (Map.Entry<String, Archive> artifact : ((FatJarArchive) archive)
+						.getArtifacts()
+						.entrySet())
+					nodes.put(artifact.getKey(), new JarNode(artifact
+							.getValue(), null, parseMode, listener));
+
+			} else {
+
+				nodes.put(archive.getName(), new JarNode(archive, null,
+						parseMode, listener));
+
+			}
+
+		} finally {
+			archive.close();
+		}
+
+		return nodes;
+
+	}
+
+	/**
+	 * Creates a JarNode for a new version of this jar. Only the class entries
+	 * whose stamp differs from this JarNode are parsed, the ClassNodes of the
+	 * other entries are shared. The parse mode of this JarNode is used. If it
+	 * was created from a subset of the entries, new entries are only parsed if
+	 * they are public classes.
+	 * 
+	 * @param jar
+	 *            the new jar file or directory
+	 * @param listener
+	 *            the progress listener
+	 * @return the updated JarNode
+	 * @throws IOException
+	 */
+	public JarNode update(File jar, ProgressListener listener)
+			throws IOException {
+
+		return new JarNode(Archive.open(jar), null, parseMode, interner, this,
+				null, filtered, listener, true);
+
+	}
+
+	/**
+	 * Creates a JarNode for a new version of this jar like
+	 * {@link #update(File, ProgressListener)}.
+	 * 
+	 * @param archive
+	 *            the new archive
+	 * @param listener
+	 *            the progress listener
+	 * @return the updated JarNode
+	 * @throws IOException
+	 */
+	public JarNode update(Archive archive, ProgressListener listener)
+			throws IOException {
+
+		return new JarNode(archive, null, parseMode, interner, this, null,
+				filtered, listener, false);
+
+	}
+
+	/**
+	 * Creates a JarNode for a new version of this directory in which only the
+	 * given entries were created, modified or deleted, e.g. as reported by a
+	 * {@link de.hhu.jdelta.io.ClassDirectoryWatcher}. Only the changed files
+	 * are read, the directory is not listed and no stamps are compared, so
+	 * rewrites within the resolution of the modification time are seen.
+	 * 
+	 * @param directory
+	 *            the directory
+	 * @param changed
+	 *            the entry names of the changed files
+	 * @param listener
+	 *            the progress listener
+	 * @return the updated JarNode
+	 * @throws IOException
+	 */
+	public JarNode update(File directory, Set<String> changed,
+			ProgressListener listener) throws IOException {
+
+		return new JarNode(new DirectoryArchive(directory, changed), null,
+				parseMode, interner, this, changed, filtered, listener, true);
+
+	}
+
+	/**
+	 * Creates a JarNode which also contains the given class entries of the
+	 * jar this JarNode was read from, whether they are public or not. This
+	 * completes a JarNode read by {@link #forApi(File, ProgressListener)} with
+	 * the classes which are public in the other jar of a comparison.
+	 * 
+	 * @param jar
+	 *            the jar file, directory or class path
+	 * @param entries
+	 *            the names of the class entries
+	 * @param listener
+	 *            the progress listener
+	 * @return the JarNode
+	 * @throws IOException
+	 */
+	public JarNode include(File jar, Set<String> entries,
+			ProgressListener listener) throws IOException {
+
+		return new JarNode(Archive.open(jar), entries, parseMode, interner,
+				this, entries, false, listener, true);
 
 	}
 
@@ -95,6 +994,39 @@ public class JarNode {
 
 	}
 
+	/**
+	 * Returns the name of the jar file.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the fingerprint of the API.
+	 * 
+	 * @return the fingerprint
+	 */
+	public ApiFingerprint getFingerprint() {
+
+		if (fingerprint == null)
+			fingerprint = new ApiFingerprint(classes);
+
+		return fingerprint;
+
+	}
+
+	/**
+	 * Returns true if the classes were read from an ApiSnapshot, e.g. an
+	 * embedded one or one of an ApiStore, and therefore only contain the API.
+	 * 
+	 * @return the snapshot flag
+	 */
+	public boolean isApiSnapshot() {
+		return apiSnapshot;
+	}
+
 	/**
 	 * Returns the classes.
 	 * 
@@ -0,0 +1,165 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+/**
+ * The key of a field or method in a MemberTable.
+ * 
+ * A key behaves like the string "name,desc" for methods and "name" for
+ * fields, i.e. it is ordered and hashed like that string, without joining the
+ * name and the descriptor.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+public final class MemberKey implements Comparable<MemberKey> {
+
+	private final String name;
+	private final String desc;
+	private final int length;
+	private final int hash;
+
+	/**
+	 * Creates the key of a field.
+	 * 
+	 * @param name
+	 *            the name
+	 */
+	public MemberKey(String name) {
+
+		this(name, null);
+
+	}
+
+	/**
+	 * Creates the key of a method.
+	 * 
+	 * @param name
+	 *            the name
+	 * @param desc
+	 *            the descriptor, null for a field
+	 */
+	public MemberKey(String name, String desc) {
+
+		this.name = name;
+		this.desc = desc;
+		this.length = name.length() + (desc != null ? desc.length() + 1 : 0);
+
+		int h = name.hashCode();
+
+		if (desc != null) {
+
+			h = 31 * h + ',';
+
+			for (int i = 0; i < desc.length(); i++)
+				h = 31 * h + desc.charAt(i);
+
+		}
+
+		this.hash = h;
+
+	}
+
+	private char charAt(int index) {
+
+		int nameLength = name.length();
+
+		if (index < nameLength)
+			return name.charAt(index);
+
+		if (index == nameLength)
+			return ',';
+
+		return desc.charAt(index - nameLength - 1);
+
+	}
+
+	/**
+	 * Returns the name.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the descriptor or null for a field.
+	 * 
+	 * @return the descriptor
+	 */
+	public String getDesc() {
+		return desc;
+	}
+
+	@Override
+	public int compareTo(MemberKey other) {
+
+		if (this == other)
+			return 0;
+
+		int n = Math.min(length, other.length);
+
+		for (int i = 0; i < n; i++) {
+
+			char c1 = charAt(i);
+			char c2 = other.charAt(i);
+
+			if (c1 != c2)
+				return c1 - c2;
+
+		}
+
+		return length - other.length;
+
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+
+		if (o == this)
+			return true;
+
+		if (!(o instanceof MemberKey))
+			return false;
+
+		MemberKey other = (MemberKey) o;
+
+		return hash == other.hash && length == other.length
+				&& name.equals(other.name)
+				&& (desc == null ? other.desc == null : desc.equals(other.desc));
+
+	}
+
+	/**
+	 * Returns "name,desc" for methods and "name" for fields.
+	 */
+	@Override
+	public String toString() {
+
+		return desc != null ? name + "," + desc : name;
+
+	}
+
+}
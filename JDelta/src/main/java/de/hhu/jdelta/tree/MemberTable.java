@@ -0,0 +1,338 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * An immutable table of the fields or methods of a class, or of their
+ * deltas, sorted by their MemberKeys.
+ * 
+ * The keys and values are kept in parallel arrays, members are looked up by
+ * binary search. A table can be viewed as an ImmutableSortedMap with the
+ * string keys "name,desc" resp. "name", see {@link #asMap()}.
+ * 
+ * @author Gian Perrone
+ * 
+ * @param <V>
+ *            the type of the members
+ */
+public final class MemberTable<V> implements Iterable<V> {
+
+	private static final MemberTable<Object> EMPTY = new MemberTable<Object>(
+			new MemberKey[0], new Object[0]);
+
+	private final MemberKey[] keys;
+	private final Object[] values;
+
+	private volatile ImmutableSortedMap<String, V> map;
+
+	private MemberTable(MemberKey[] keys, Object[] values) {
+
+		this.keys = keys;
+		this.values = values;
+
+	}
+
+	/**
+	 * Returns the empty table.
+	 * 
+	 * @return the empty table
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> MemberTable<V> of() {
+
+		return (MemberTable<V>) EMPTY;
+
+	}
+
+	/**
+	 * A builder of a MemberTable. Members may be added in any order, a later
+	 * member replaces an earlier one with the same key.
+	 * 
+	 * @param <V>
+	 *            the type of the members
+	 */
+	public static final class Builder<V> {
+
+		private final List<MemberKey> keys = new ArrayList<MemberKey>();
+		private final List<V> values = new ArrayList<V>();
+		private boolean sorted = true;
+
+		/**
+		 * Adds a member.
+		 * 
+		 * @param key
+		 *            the key
+		 * @param value
+		 *            the member
+		 * @return this builder
+		 */
+		public Builder<V> put(MemberKey key, V value) {
+
+			if (sorted && !keys.isEmpty()
+					&& keys.get(keys.size() - 1).compareTo(key) >= 0)
+				sorted = false;
+
+			keys.add(key);
+			values.add(value);
+
+			return this;
+
+		}
+
+		/**
+		 * Returns the table of the added members.
+		 * 
+		 * @return the table
+		 */
+		public MemberTable<V> build() {
+
+			int size = keys.size();
+
+			if (size == 0)
+				return of();
+
+			MemberKey[] tableKeys = keys.toArray(new MemberKey[size]);
+			Object[] tableValues = values.toArray();
+
+			if (!sorted) {
+
+				Integer[] order = new Integer[size];
+
+				for (int i = 0; i < size; i++)
+					order[i] = i;
+
+				final MemberKey[] unsortedKeys = tableKeys;
+
+				// stable, so the later of two equal keys stays behind
+				Arrays.sort(order, new Comparator<Integer>() {
+
+					@Override
+					public int compare(Integer i1, Integer i2) {
+						return unsortedKeys[i1].compareTo(unsortedKeys[i2]);
+					}
+
+				});
+
+				MemberKey[] sortedKeys = new MemberKey[size];
+				Object[] sortedValues = new Object[size];
+				int n = 0;
+
+				for (int i = 0; i < size; i++) {
+
+					if (n > 0 && sortedKeys[n - 1].equals(tableKeys[order[i]]))
+						n--;
+
+					sortedKeys[n] = tableKeys[order[i]];
+					sortedValues[n] = tableValues[order[i]];
+					n++;
+
+				}
+
+				tableKeys = Arrays.copyOf(sortedKeys, n);
+				tableValues = Arrays.copyOf(sortedValues, n);
+
+			}
+
+			return new MemberTable<V>(tableKeys, tableValues);
+
+		}
+
+	}
+
+	/**
+	 * Returns the number of members.
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns true if the table has no members.
+	 * 
+	 * @return the empty flag
+	 */
+	public boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	/**
+	 * Returns the key of the member at an index.
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the key
+	 */
+	public MemberKey getKey(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * Returns the member at an index.
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the member
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int index) {
+		return (V) values[index];
+	}
+
+	/**
+	 * Returns the index of a member or a negative number like
+	 * {@link Arrays#binarySearch(Object[], Object)}.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the index
+	 */
+	public int indexOf(MemberKey key) {
+
+		return Arrays.binarySearch(keys, key);
+
+	}
+
+	/**
+	 * Returns the member with a key or null.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the member
+	 */
+	public V get(MemberKey key) {
+
+		int index = indexOf(key);
+
+		return index >= 0 ? get(index) : null;
+
+	}
+
+	@Override
+	public Iterator<V> iterator() {
+
+		return new Iterator<V>() {
+
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < values.length;
+			}
+
+			@Override
+			public V next() {
+
+				if (index >= values.length)
+					throw new NoSuchElementException();
+
+				return get(index++);
+
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+		};
+
+	}
+
+	/**
+	 * Returns the table as a map from "name,desc" resp. "name" to the members.
+	 * The map is built on the first call.
+	 * 
+	 * @return the map
+	 */
+	public ImmutableSortedMap<String, V> asMap() {
+
+		ImmutableSortedMap<String, V> map = this.map;
+
+		if (map == null) {
+
+			ImmutableSortedMap.Builder<String, V> builder =
+					ImmutableSortedMap.naturalOrder();
+
+			for (int i = 0; i < keys.length; i++)
+				builder.put(keys[i].toString(), get(i));
+
+			map = builder.build();
+			this.map = map;
+
+		}
+
+		return map;
+
+	}
+
+	/**
+	 * Returns the members as a list.
+	 * 
+	 * @return the list
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+
+		return (List<V>) Collections.unmodifiableList(Arrays.asList(values));
+
+	}
+
+	@Override
+	public int hashCode() {
+
+		return 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+
+	}
+
+	@Override
+	public boolean equals(Object o) {
+
+		if (o == this)
+			return true;
+
+		if (!(o instanceof MemberTable))
+			return false;
+
+		MemberTable<?> other = (MemberTable<?>) o;
+
+		return Arrays.equals(keys, other.keys)
+				&& Arrays.equals(values, other.values);
+
+	}
+
+	@Override
+	public String toString() {
+
+		return asMap().toString();
+
+	}
+
+}
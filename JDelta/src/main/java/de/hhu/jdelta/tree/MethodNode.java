@@ -18,16 +18,9 @@
 
 package de.hhu.jdelta.tree;
 
-import java.util.SortedSet;
-import java.util.TreeSet;
-
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
-import org.objectweb.asm.AnnotationVisitor;
-import org.objectweb.asm.Attribute;
-import org.objectweb.asm.Label;
-import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
@@ -36,28 +29,28 @@ import com.google.common.collect.ImmutableSortedSet;
 /**
  * A node that represents a method.
  * 
- * Contained by ClassNodes.
+ * Contained by ClassNodes. MethodNodes are immutable.
  * 
  * @author Gian Perrone
  */
-public class MethodNode extends AbstractNode implements MethodVisitor {
+public class MethodNode extends AbstractNode {
 
-	private String name;
-	private String desc;
-	private String signature;
-	private SortedSet<String> exceptions = new TreeSet<String>();
+	private final String name;
+	private final String desc;
+	private final String signature;
+	private final ImmutableSortedSet<String> exceptions;
 
-	private SortedSet<String> annotations = new TreeSet<String>();
+	private final Visibility visibility;
+	private final boolean static_;
+	private final boolean final_;
+	private final boolean synchronized_;
+	private final boolean bridge;
+	private final boolean varargs;
+	private final boolean native_;
+	private final boolean abstract_;
+	private final boolean strictfp_;
 
-	private Visibility visibility;
-	private boolean static_ = false;
-	private boolean final_ = false;
-	private boolean synchronized_ = false;
-	private boolean bridge = false;
-	private boolean varargs = false;
-	private boolean native_ = false;
-	private boolean abstract_ = false;
-	private boolean strictfp_ = false;
+	private int hash;
 
 	/**
 	 * The empty method.
@@ -76,10 +69,12 @@ public class MethodNode extends AbstractNode implements MethodVisitor {
 		this.signature = signature;
 
 		if (exceptions != null) {
-			for (String exception : exceptions) {
-				this.exceptions.add(exception.replace('/', '.'));
-			}
-			this.exceptions = ImmutableSortedSet.copyOf(this.exceptions);
+			String[] names = new String[exceptions.length];
+			for (int i = 0; i < exceptions.length; i++)
+				names[i] = exceptions[i].replace('/', '.');
+			this.exceptions = ImmutableSortedSet.copyOf(names);
+		} else {
+			this.exceptions = ImmutableSortedSet.of();
 		}
 
 		if ((access & Opcodes.ACC_PRIVATE) != 0)
@@ -91,29 +86,14 @@ public class MethodNode extends AbstractNode implements MethodVisitor {
 		else
 			visibility = Visibility.PACKAGE;
 
-		if ((access & Opcodes.ACC_STATIC) != 0)
-			static_ = true;
-
-		if ((access & Opcodes.ACC_FINAL) != 0)
-			final_ = true;
-
-		if ((access & Opcodes.ACC_SYNCHRONIZED) != 0)
-			synchronized_ = true;
-
-		if ((access & Opcodes.ACC_BRIDGE) != 0)
-			bridge = true;
-
-		if ((access & Opcodes.ACC_VARARGS) != 0)
-			varargs = true;
-
-		if ((access & Opcodes.ACC_NATIVE) != 0)
-			native_ = true;
-
-		if ((access & Opcodes.ACC_ABSTRACT) != 0)
-			abstract_ = true;
-
-		if ((access & Opcodes.ACC_STRICT) != 0)
-			strictfp_ = true;
+		static_ = (access & Opcodes.ACC_STATIC) != 0;
+		final_ = (access & Opcodes.ACC_FINAL) != 0;
+		synchronized_ = (access & Opcodes.ACC_SYNCHRONIZED) != 0;
+		bridge = (access & Opcodes.ACC_BRIDGE) != 0;
+		varargs = (access & Opcodes.ACC_VARARGS) != 0;
+		native_ = (access & Opcodes.ACC_NATIVE) != 0;
+		abstract_ = (access & Opcodes.ACC_ABSTRACT) != 0;
+		strictfp_ = (access & Opcodes.ACC_STRICT) != 0;
 
 	}
 
@@ -174,7 +154,11 @@ public class MethodNode extends AbstractNode implements MethodVisitor {
 	@Override
 	public int hashCode() {
 
-		return new HashCodeBuilder()
+		// nodes are immutable, so the hash code is computed once
+		if (hash != 0)
+			return hash;
+
+		hash = new HashCodeBuilder()
 				.append(name)
 				.append(desc)
 				.append(signature)
@@ -190,6 +174,8 @@ public class MethodNode extends AbstractNode implements MethodVisitor {
 				.append(strictfp_)
 				.toHashCode();
 
+		return hash;
+
 	}
 
 	@Override
@@ -258,7 +244,7 @@ public class MethodNode extends AbstractNode implements MethodVisitor {
 	 * @return the exceptions
 	 */
 	public ImmutableSortedSet<String> getExceptions() {
-		return ImmutableSortedSet.copyOf(exceptions);
+		return exceptions;
 	}
 
 	/**
@@ -404,90 +390,4 @@ public class MethodNode extends AbstractNode implements MethodVisitor {
 
 	}
 
-	public AnnotationVisitor visitAnnotationDefault() {
-		return null;
-	}
-
-	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-
-		annotations.add(desc);
-
-		return null;
-
-	}
-
-	public AnnotationVisitor visitParameterAnnotation(int parameter,
-			String desc, boolean visible) {
-		return null;
-	}
-
-	public void visitAttribute(Attribute attr) {
-	}
-
-	public void visitCode() {
-	}
-
-	public void visitFrame(int type, int nLocal, Object[] local, int nStack,
-			Object[] stack) {
-	}
-
-	public void visitInsn(int opcode) {
-	}
-
-	public void visitIntInsn(int opcode, int operand) {
-	}
-
-	public void visitVarInsn(int opcode, int var) {
-	}
-
-	public void visitTypeInsn(int opcode, String type) {
-	}
-
-	public void visitFieldInsn(int opcode, String owner, String name,
-			String desc) {
-	}
-
-	public void visitMethodInsn(int opcode, String owner, String name,
-			String desc) {
-	}
-
-	public void visitJumpInsn(int opcode, Label label) {
-	}
-
-	public void visitLabel(Label label) {
-	}
-
-	public void visitLdcInsn(Object cst) {
-	}
-
-	public void visitIincInsn(int var, int increment) {
-	}
-
-	public void visitTableSwitchInsn(int min, int max, Label dflt,
-			Label[] labels) {
-	}
-
-	public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
-	}
-
-	public void visitMultiANewArrayInsn(String desc, int dims) {
-	}
-
-	public void visitTryCatchBlock(Label start, Label end, Label handler,
-			String type) {
-	}
-
-	public void visitLocalVariable(String name, String desc, String signature,
-			Label start, Label end, int index) {
-	}
-
-	public void visitLineNumber(int line, Label start) {
-	}
-
-	public void visitMaxs(int maxStack, int maxLocals) {
-	}
-
-	public void visitEnd() {
-	}
-
 }
@@ -0,0 +1,129 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Shares structurally equal nodes between JarNodes. When many versions of a
+ * library are loaded with the same interner, each unchanged field, method and
+ * class is only kept once, and equal nodes of different versions are the same
+ * object, so comparing them is a reference comparison.
+ * 
+ * The nodes are held weakly and are dropped with the last JarNode using them.
+ * The interner is thread-safe.
+ * 
+ * @author Gian Perrone
+ */
+public class NodeInterner {
+
+	private final Map<FieldNode, WeakReference<FieldNode>> fields =
+			new WeakHashMap<FieldNode, WeakReference<FieldNode>>();
+	private final Map<MethodNode, WeakReference<MethodNode>> methods =
+			new WeakHashMap<MethodNode, WeakReference<MethodNode>>();
+	private final Map<ClassNode, WeakReference<ClassNode>> classes =
+			new WeakHashMap<ClassNode, WeakReference<ClassNode>>();
+
+	private static <T> T intern(Map<T, WeakReference<T>> nodes, T node) {
+
+		synchronized (nodes) {
+
+			WeakReference<T> ref = nodes.get(node);
+			T interned = ref != null ? ref.get() : null;
+
+			if (interned != null)
+				return interned;
+
+			nodes.put(node, new WeakReference<T>(node));
+
+			return node;
+
+		}
+
+	}
+
+	/**
+	 * Returns the FieldNode equal to the given one which was interned first.
+	 * 
+	 * @param field
+	 *            the field
+	 * @return the shared field
+	 */
+	public FieldNode intern(FieldNode field) {
+
+		return intern(fields, field);
+
+	}
+
+	/**
+	 * Returns the MethodNode equal to the given one which was interned first.
+	 * 
+	 * @param method
+	 *            the method
+	 * @return the shared method
+	 */
+	public MethodNode intern(MethodNode method) {
+
+		return intern(methods, method);
+
+	}
+
+	/**
+	 * Returns the ClassNode equal to the given one which was interned first.
+	 * Its members should be interned already, so that equal classes are
+	 * found by comparing references.
+	 * 
+	 * @param classNode
+	 *            the class
+	 * @return the shared class
+	 */
+	public ClassNode intern(ClassNode classNode) {
+
+		return intern(classes, classNode);
+
+	}
+
+	/**
+	 * Returns the number of distinct nodes held, for statistics.
+	 * 
+	 * @return the number of fields, methods and classes
+	 */
+	public int size() {
+
+		int size = 0;
+
+		synchronized (fields) {
+			size += fields.size();
+		}
+
+		synchronized (methods) {
+			size += methods.size();
+		}
+
+		synchronized (classes) {
+			size += classes.size();
+		}
+
+		return size;
+
+	}
+
+}
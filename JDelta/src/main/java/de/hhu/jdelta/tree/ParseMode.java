@@ -0,0 +1,55 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Determines which members are kept when a class is parsed.
+ * 
+ * @author Gian Perrone
+ */
+public enum ParseMode {
+
+	/**
+	 * All fields and methods are kept.
+	 */
+	FULL,
+	/**
+	 * Only public and protected fields and methods are kept. Private and
+	 * package-private members are dropped while the class is visited.
+	 */
+	API;
+
+	/**
+	 * Returns true if a member with the given access flags is kept in this
+	 * mode.
+	 * 
+	 * @param access
+	 *            the access flags of the member
+	 * @return the keep flag
+	 */
+	public boolean keeps(int access) {
+
+		return this == FULL
+				|| (access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) != 0;
+
+	}
+
+}
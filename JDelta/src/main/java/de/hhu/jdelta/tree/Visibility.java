@@ -52,6 +52,18 @@ public enum Visibility {
 
 	}
 
+	/**
+	 * Returns true if entities with this visibility can be part of the API,
+	 * i.e. if the visibility is public or protected.
+	 * 
+	 * @return the API flag
+	 */
+	public boolean isApi() {
+
+		return this == PUBLIC || this == PROTECTED;
+
+	}
+
 	/**
 	 * Returns a string description of the visibility. It is formatted like
 	 * a visibility modifier in a declaration.
@@ -0,0 +1,51 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta;
+
+import java.io.File;
+
+/**
+ * Removes the files the tests write below the temporary directory.
+ * 
+ * @author Gian Perrone
+ */
+public final class TestFiles {
+
+	private TestFiles() {
+	}
+
+	/**
+	 * Deletes a file or a directory with everything below it.
+	 * 
+	 * @param file
+	 *            the file or directory
+	 */
+	public static void delete(File file) {
+
+		File[] children = file.listFiles();
+
+		if (children != null)
+			for (File child : children)
+				delete(child);
+
+		file.delete();
+
+	}
+
+}
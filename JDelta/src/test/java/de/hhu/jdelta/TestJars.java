@@ -0,0 +1,80 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * The jars of the test dependencies, which the tests read as fixtures.
+ * 
+ * @author Gian Perrone
+ */
+public final class TestJars {
+
+	private TestJars() {
+	}
+
+	/**
+	 * Returns the jar a class was loaded from.
+	 * 
+	 * @param member
+	 *            a class of the jar
+	 * @return the jar file
+	 * @throws URISyntaxException
+	 */
+	public static File jarOf(Class<?> member) throws URISyntaxException {
+
+		return new File(member
+				.getProtectionDomain()
+				.getCodeSource()
+				.getLocation()
+				.toURI());
+
+	}
+
+	/**
+	 * Returns the guava jar.
+	 * 
+	 * @return the jar file
+	 * @throws URISyntaxException
+	 */
+	public static File guava() throws URISyntaxException {
+
+		return jarOf(ImmutableSortedMap.class);
+
+	}
+
+	/**
+	 * Returns the commons-lang jar.
+	 * 
+	 * @return the jar file
+	 * @throws URISyntaxException
+	 */
+	public static File commonsLang() throws URISyntaxException {
+
+		return jarOf(StringUtils.class);
+
+	}
+
+}
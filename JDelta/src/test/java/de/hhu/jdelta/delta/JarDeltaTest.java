@@ -0,0 +1,308 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.delta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.TestFiles;
+import de.hhu.jdelta.TestJars;
+import de.hhu.jdelta.io.ClassDirectoryWatcher;
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.tree.ClassNode;
+import de.hhu.jdelta.tree.JarNode;
+import de.hhu.jdelta.tree.Visibility;
+
+public class JarDeltaTest {
+
+	@Test
+	public void updateReusesUnchangedClasses() throws IOException,
+			URISyntaxException {
+
+		File jar = TestJars.guava();
+
+		JarNode from = new JarNode(jar);
+		JarNode to = new JarNode(jar);
+		JarDelta delta = new JarDelta(from, to);
+
+		JarNode updatedTo = to.update(jar, ProgressListener.SILENT);
+		JarDelta updated = delta.update(updatedTo, ProgressListener.SILENT);
+
+		assertEquals(updatedTo.getClasses().keySet(), to
+				.getClasses()
+				.keySet());
+
+		for (String key : to.getClasses().keySet())
+			assertSame(updatedTo.getClasses().get(key), to.getClasses().get(
+					key));
+
+		for (String key : delta.getClassDeltas().keySet())
+			assertSame(updated.getClassDeltas().get(key), delta
+					.getClassDeltas()
+					.get(key));
+
+		assertEquals(updated.isChanged(), delta.isChanged());
+
+	}
+
+	private static byte[] generateClass(String name, String... methods) {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT,
+				name, null, "java/lang/Object", null);
+
+		for (String method : methods)
+			cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method,
+					"()V", null, null).visitEnd();
+
+		cw.visitEnd();
+
+		return cw.toByteArray();
+
+	}
+
+	@Test
+	public void updateFollowsWatchedClassFiles() throws IOException,
+			InterruptedException {
+
+		File directory = Files.createTempDirectory("classes").toFile();
+
+		try {
+
+			File c0 = new File(directory, "p/C0.class");
+			File c1 = new File(directory, "p/C1.class");
+			c0.getParentFile().mkdirs();
+			Files.write(c0.toPath(), generateClass("p/C0", "a"));
+			Files.write(c1.toPath(), generateClass("p/C1", "b"));
+
+			JarNode from = new JarNode(directory);
+			JarNode to = new JarNode(directory);
+			JarDelta delta = new JarDelta(from, to);
+			ClassDirectoryWatcher watcher =
+					new ClassDirectoryWatcher(directory);
+
+			try {
+
+				// a method of the second class is deleted in place
+				FileTime modified = Files.getLastModifiedTime(c1.toPath());
+				Files.write(c1.toPath(), generateClass("p/C1"));
+				Files.setLastModifiedTime(c1.toPath(), modified);
+
+				SortedSet<String> changed = watcher.awaitChanges(50);
+
+				JarNode previousTo = to;
+				JarDelta previous = delta;
+				to = to.update(directory, changed, ProgressListener.SILENT);
+				delta = delta.update(to, ProgressListener.SILENT);
+
+				assertEquals(changed, ImmutableSortedSet.of("p/C1.class"));
+				assertSame(to.getClasses().get("p/C0.class"), previousTo
+						.getClasses()
+						.get("p/C0.class"));
+				assertSame(delta.getClassDeltas().get("p/C0.class"), previous
+						.getClassDeltas()
+						.get("p/C0.class"));
+				assertFalse(delta
+						.getClassDeltas()
+						.get("p/C1.class")
+						.isDeepUnchanged());
+
+				// the method is back and the first class is replaced
+				c0.delete();
+				Files.write(new File(directory, "p/C2.class").toPath(),
+						generateClass("p/C2"));
+				Files.write(c1.toPath(), generateClass("p/C1", "b"));
+
+				changed = watcher.awaitChanges(50);
+				to = to.update(directory, changed, ProgressListener.SILENT);
+				delta = delta.update(to, ProgressListener.SILENT);
+
+				assertEquals(changed.size(), 3);
+				assertEquals(to.getClasses().keySet(), ImmutableSortedSet.of(
+						"p/C1.class", "p/C2.class"));
+				assertTrue(delta.getClassDeltas().get("p/C0.class").isDeleted());
+				assertTrue(delta.getClassDeltas().get("p/C2.class").isAdded());
+				assertTrue(delta
+						.getClassDeltas()
+						.get("p/C1.class")
+						.isDeepUnchanged());
+
+			} finally {
+				watcher.close();
+			}
+
+		} finally {
+			TestFiles.delete(directory);
+		}
+
+	}
+
+	@Test
+	public void dispatcherRunsVisitorsInOnePass() throws IOException,
+			URISyntaxException {
+
+		JarNode from = new JarNode(TestJars.guava());
+		JarNode to = new JarNode(TestJars.commonsLang());
+		JarDelta delta = new JarDelta(from, to);
+
+		DeclarationsDiffWriter writer = new DeclarationsDiffWriter();
+		DeltaStatistics statistics = new DeltaStatistics();
+		new DeltaDispatcher(writer, statistics).dispatch(delta);
+
+		StringBuilder expected = new StringBuilder();
+		int added = 0, deleted = 0;
+
+		for (ClassDelta classDelta : delta.getClassDeltas().values()) {
+
+			expected.append(classDelta.getDeepDeclarationsDiff()).append("\n");
+
+			if (classDelta.isAdded())
+				added++;
+			if (classDelta.isDeleted())
+				deleted++;
+
+		}
+
+		assertEquals(writer.toString(), expected.toString());
+		assertEquals(statistics.getAddedClasses(), added);
+		assertEquals(statistics.getDeletedClasses(), deleted);
+		assertEquals(statistics.getAddedClasses()
+				+ statistics.getDeletedClasses(), delta
+				.getClassDeltas()
+				.size());
+
+	}
+
+	@Test
+	public void unchangedDeltasAreShared() throws IOException,
+			URISyntaxException {
+
+		File jar = TestJars.guava();
+
+		JarDelta delta = new JarDelta(new JarNode(jar), new JarNode(jar));
+		ShallowDelta<?> publicDelta = null;
+		ShallowDelta<?> voidDelta = null;
+		Map<?, ?> serializableDeltas = null;
+
+		for (ClassDelta classDelta : delta.getClassDeltas().values()) {
+
+			// the interface sets of both jars are equal, but not the same
+			if (classDelta.getInterfaceDeltas().keySet().equals(
+					Collections.singleton("java/io/Serializable"))) {
+
+				if (serializableDeltas == null)
+					serializableDeltas = classDelta.getInterfaceDeltas();
+
+				assertSame(classDelta.getInterfaceDeltas(), serializableDeltas);
+
+			}
+
+			for (MethodDelta methodDelta : classDelta
+					.getMethodDeltas()
+					.values()) {
+
+				assertSame(methodDelta.getStaticDelta(), BooleanDelta
+						.valueOf(methodDelta.getFrom().isStatic(), methodDelta
+								.getTo()
+								.isStatic()));
+
+				if (methodDelta.getVisibilityDelta().getFrom() == Visibility.PUBLIC) {
+
+					if (publicDelta == null)
+						publicDelta = methodDelta.getVisibilityDelta();
+
+					assertSame(methodDelta.getVisibilityDelta(), publicDelta);
+
+				}
+
+				if (methodDelta.getDescDelta().getFrom().equals("()V")) {
+
+					if (voidDelta == null)
+						voidDelta = methodDelta.getDescDelta();
+
+					assertSame(methodDelta.getDescDelta(), voidDelta);
+
+				}
+
+			}
+
+		}
+
+		assertNotNull(voidDelta);
+		assertNotNull(serializableDeltas);
+
+	}
+
+
+	@Test
+	public void identicalNodesShareTheirDeltas() throws IOException,
+			URISyntaxException {
+
+		JarNode jar = new JarNode(TestJars.guava());
+
+		JarDelta first = new JarDelta(jar, jar);
+		JarDelta second = new JarDelta(jar, jar);
+
+		assertFalse(first.isChanged());
+
+		for (String key : jar.getClasses().keySet()) {
+
+			ClassDelta classDelta = first.getClassDeltas().get(key);
+
+			assertTrue(classDelta.isDeepUnchanged());
+			assertSame(second.getClassDeltas().get(key), classDelta);
+
+			// the member deltas of a new delta of the class are shared, too
+			ClassNode classNode = jar.getClasses().get(key);
+			ClassDelta copy = new ClassDelta(classNode, classNode);
+
+			assertTrue(copy.isDeepUnchanged());
+			assertEquals(copy.getMethodDeltas().keySet(), classDelta
+					.getMethodDeltas()
+					.keySet());
+
+			for (Map.Entry<String, MethodDelta> entry : copy
+					.getMethodDeltas()
+					.entrySet())
+				assertSame(entry.getValue(), classDelta.getMethodDeltas().get(
+						entry.getKey()));
+
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.SortedSet;
+
+import org.testng.annotations.Test;
+
+import de.hhu.jdelta.TestFiles;
+
+public class ClassDirectoryWatcherTest {
+
+	private static void write(File root, String name) throws IOException {
+
+		File file = new File(root, name);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), new byte[] { 1 });
+
+	}
+
+	@Test
+	public void returnsChangedClassFiles() throws IOException,
+			InterruptedException {
+
+		File root = Files.createTempDirectory("classes").toFile();
+		write(root, "p/A.class");
+		write(root, "p/B.class");
+
+		ClassDirectoryWatcher watcher = new ClassDirectoryWatcher(root);
+
+		try {
+
+			write(root, "p/A.class");
+			write(root, "p/readme.txt");
+			new File(root, "p/B.class").delete();
+
+			SortedSet<String> changed = watcher.awaitChanges(50);
+
+			assertEquals(changed.size(), 2);
+			assertEquals(changed.first(), "p/A.class");
+			assertEquals(changed.last(), "p/B.class");
+			assertFalse(watcher.isOverflow());
+
+		} finally {
+			watcher.close();
+			TestFiles.delete(root);
+		}
+
+	}
+
+	@Test
+	public void newDirectoryIsReportedAsOverflow() throws IOException,
+			InterruptedException {
+
+		File root = Files.createTempDirectory("classes").toFile();
+		ClassDirectoryWatcher watcher = new ClassDirectoryWatcher(root);
+
+		try {
+
+			write(root, "q/A.class");
+			watcher.awaitChanges(50);
+
+			assertTrue(watcher.isOverflow());
+
+			// the new directory is watched from now on
+			write(root, "q/B.class");
+
+			assertEquals(watcher.awaitChanges(50).first(), "q/B.class");
+
+		} finally {
+			watcher.close();
+			TestFiles.delete(root);
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import de.hhu.jdelta.TestFiles;
+
+public class ClassPathArchiveTest {
+
+	private static File write(File root, String name, String content)
+			throws IOException {
+
+		File file = new File(root, name);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes("UTF-8"));
+
+		return file;
+
+	}
+
+	private static String read(Archive archive, String name)
+			throws IOException {
+
+		ByteBuffer buffer = archive.read(archive.getEntry(name));
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+
+		return new String(bytes, "UTF-8");
+
+	}
+
+	@Test
+	public void firstArchiveShadowsLaterOnes() throws IOException {
+
+		File first = Files.createTempDirectory("first").toFile();
+		File second = Files.createTempDirectory("second").toFile();
+
+		try {
+
+			write(first, "p/A.class", "first");
+			write(second, "p/A.class", "second");
+			write(second, "p/q/B.class", "second");
+
+			Archive archive =
+					Archive.open(new File(first.getPath() + File.pathSeparator
+							+ second.getPath()));
+
+			List<String> names = new ArrayList<String>();
+
+			for (Archive.Entry entry : archive.getEntries())
+				names.add(entry.getName());
+
+			assertEquals(names.size(), 2);
+			assertEquals(names.get(0), "p/A.class");
+			assertEquals(names.get(1), "p/q/B.class");
+			assertEquals(read(archive, "p/A.class"), "first");
+			assertEquals(read(archive, "p/q/B.class"), "second");
+
+		} finally {
+			TestFiles.delete(first);
+			TestFiles.delete(second);
+		}
+
+	}
+
+}
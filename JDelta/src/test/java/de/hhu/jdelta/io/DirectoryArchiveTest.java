@@ -0,0 +1,104 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import de.hhu.jdelta.TestFiles;
+
+public class DirectoryArchiveTest {
+
+	private static File write(File root, String name, String content)
+			throws IOException {
+
+		File file = new File(root, name);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes("UTF-8"));
+
+		return file;
+
+	}
+
+	@Test
+	public void stampIsTheModificationTime() throws IOException {
+
+		File root = Files.createTempDirectory("classes").toFile();
+
+		try {
+
+			File file = write(root, "p/A.class", "a");
+			FileTime modified = FileTime.fromMillis(1000000000000L);
+			Files.setLastModifiedTime(file.toPath(), modified);
+
+			Archive.Entry before =
+					new DirectoryArchive(root).getEntry("p/A.class");
+
+			// a rewrite with a different size within the same time
+			write(root, "p/A.class", "ab");
+			Files.setLastModifiedTime(file.toPath(), modified);
+
+			Archive.Entry after =
+					new DirectoryArchive(root).getEntry("p/A.class");
+
+			assertEquals(before.getStamp(), after.getStamp());
+			assertFalse(before.getSize() == after.getSize());
+
+		} finally {
+			TestFiles.delete(root);
+		}
+
+	}
+
+	@Test
+	public void readsOnlyTheGivenEntries() throws IOException {
+
+		File root = Files.createTempDirectory("classes").toFile();
+
+		try {
+
+			write(root, "p/A.class", "a");
+			write(root, "p/B.class", "bb");
+
+			DirectoryArchive archive =
+					new DirectoryArchive(root, Arrays.asList("p/B.class",
+							"p/C.class"));
+
+			assertEquals(archive.size(), 1);
+			assertEquals(archive.length(), 2);
+			assertNull(archive.getEntry("p/A.class"));
+			assertNull(archive.getEntry("p/C.class"));
+			assertEquals(archive.getEntries().get(0).getName(), "p/B.class");
+
+		} finally {
+			TestFiles.delete(root);
+		}
+
+	}
+
+}
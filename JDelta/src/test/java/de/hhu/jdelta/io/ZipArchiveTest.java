@@ -0,0 +1,186 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.io;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassReader;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import de.hhu.jdelta.TestJars;
+
+public class ZipArchiveTest {
+
+	@DataProvider
+	public Object[][] jars() throws URISyntaxException {
+
+		return new Object[][] { { TestJars.jarOf(ClassReader.class) },
+				{ TestJars.guava() }, { TestJars.commonsLang() } };
+
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+
+		return bytes;
+
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+
+		for (int n; (n = in.read(buffer)) != -1;)
+			out.write(buffer, 0, n);
+
+		in.close();
+
+		return out.toByteArray();
+
+	}
+
+	@Test(dataProvider = "jars")
+	public void readsLikeZipFile(File file) throws IOException {
+
+		ZipArchive archive = ZipArchive.open(file);
+		ZipFile zip = new ZipFile(file);
+
+		try {
+
+			assertEquals(archive.size(), zip.size());
+
+			int i = 0;
+
+			for (Enumeration<? extends ZipEntry> e = zip.entries(); e
+					.hasMoreElements(); i++) {
+
+				ZipEntry expected = e.nextElement();
+				ZipArchive.Entry entry = archive.getEntries().get(i);
+
+				assertEquals(entry.getName(), expected.getName());
+				assertEquals(entry.getCrc(), expected.getCrc());
+				assertEquals(archive.getEntry(expected.getName()), entry);
+				assertEquals(toArray(archive.read(entry)),
+						readFully(zip.getInputStream(expected)));
+
+			}
+
+		} finally {
+			zip.close();
+			archive.close();
+		}
+
+	}
+
+	@Test
+	public void readsStoredEntries() throws IOException {
+
+		byte[] content = "stored".getBytes("UTF-8");
+		CRC32 crc = new CRC32();
+		crc.update(content);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ZipOutputStream out = new ZipOutputStream(bytes);
+
+		ZipEntry stored = new ZipEntry("a/stored.txt");
+		stored.setMethod(ZipEntry.STORED);
+		stored.setSize(content.length);
+		stored.setCrc(crc.getValue());
+		out.putNextEntry(stored);
+		out.write(content);
+		out.closeEntry();
+
+		out.putNextEntry(new ZipEntry("a/deflated.txt"));
+		out.write(content);
+		out.closeEntry();
+		out.close();
+
+		ZipArchive archive =
+				new ZipArchive(ByteBuffer.wrap(bytes.toByteArray()), "memory");
+
+		assertEquals(archive.size(), 2);
+		assertEquals(toArray(archive.read(archive.getEntry("a/stored.txt"))),
+				content);
+		assertEquals(
+				toArray(archive.read(archive.getEntry("a/deflated.txt"))),
+				content);
+		assertNull(archive.getEntry("a/missing.txt"));
+
+	}
+
+	@Test
+	public void buffersStayReadableAfterClose() throws IOException {
+
+		File file = File.createTempFile("archive", ".jar");
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+		ZipEntry entry = new ZipEntry("a.txt");
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(7);
+		CRC32 crc = new CRC32();
+		crc.update("content".getBytes("UTF-8"));
+		entry.setCrc(crc.getValue());
+		out.putNextEntry(entry);
+		out.write("content".getBytes("UTF-8"));
+		out.close();
+
+		ZipArchive archive = ZipArchive.open(file);
+
+		try {
+
+			// a stored entry is a slice of the mapping of the file
+			ByteBuffer data = archive.read(archive.getEntry("a.txt"));
+
+			archive.close();
+			archive.close();
+
+			assertEquals(toArray(data), "content".getBytes("UTF-8"));
+
+			try {
+				archive.read(archive.getEntry("a.txt"));
+				fail("read from a closed archive");
+			} catch (IOException e) {
+				// expected
+			}
+
+		} finally {
+			file.delete();
+		}
+
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.progress;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import de.hhu.jdelta.progress.ProgressListener.Phase;
+
+public class ThrottledProgressListenerTest {
+
+	private static final class RecordingListener implements ProgressListener {
+
+		private final List<String> calls = new ArrayList<String>();
+
+		public void phaseStarted(Phase phase, String subject, int total) {
+			calls.add("started " + subject + " " + total);
+		}
+
+		public void progress(Phase phase, int done, int total) {
+			calls.add(done + "/" + total);
+		}
+
+		public void phaseFinished(Phase phase) {
+			calls.add("finished");
+		}
+
+	}
+
+	@Test
+	public void forwardsTheEndsOfAPhase() {
+
+		RecordingListener recording = new RecordingListener();
+		ProgressListener listener =
+				new ThrottledProgressListener(recording, 3600000);
+
+		listener.phaseStarted(Phase.LOADING, "a.jar", 3);
+		listener.progress(Phase.LOADING, 1, 3);
+		listener.progress(Phase.LOADING, 2, 3);
+		listener.progress(Phase.LOADING, 3, 3);
+		listener.phaseFinished(Phase.LOADING);
+
+		assertEquals(recording.calls,
+				Arrays.asList("started a.jar 3", "3/3", "finished"));
+
+	}
+
+	@Test
+	public void forwardsAllProgressAfterTheInterval() {
+
+		RecordingListener recording = new RecordingListener();
+		ProgressListener listener = new ThrottledProgressListener(recording, 0);
+
+		listener.phaseStarted(Phase.DIFFING, null, 2);
+		listener.progress(Phase.DIFFING, 1, 2);
+		listener.progress(Phase.DIFFING, 2, 2);
+
+		assertEquals(recording.calls,
+				Arrays.asList("started null 2", "1/2", "2/2"));
+
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.TestJars;
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.tree.ClassNode.ClassType;
+
+public class ApiDumpTest {
+
+	@Test
+	public void roundTrips() throws IOException, URISyntaxException {
+
+		File jar = TestJars.guava();
+
+		ApiSnapshot snapshot =
+				new ApiSnapshot(new JarNode(jar, null, ParseMode.API,
+						ProgressListener.SILENT));
+
+		StringWriter dump = new StringWriter();
+		ApiDump.write(snapshot, dump);
+
+		ApiSnapshot read = ApiDump.read(new StringReader(dump.toString()));
+
+		assertEquals(read.getClasses(), snapshot.getClasses());
+		assertEquals(read.getFingerprint(), snapshot.getFingerprint());
+
+		StringWriter again = new StringWriter();
+		ApiDump.write(read, again);
+
+		assertEquals(again.toString(), dump.toString());
+
+	}
+
+	@Test
+	public void namesAreEscaped() throws IOException {
+
+		MethodNode method =
+				new MethodNode("a b", "(La,b;)V", null, ImmutableSortedSet
+						.of("x y", "-"), Visibility.PUBLIC, false, false,
+						false, false, false, false, true, false);
+		FieldNode field =
+				new FieldNode("-", "La b;", null, "c d", Visibility.PUBLIC,
+						true, true, false, false, false, false);
+		ClassNode classNode =
+				new ClassNode(ImmutableSortedMap.of(field.getName(), field),
+						ImmutableSortedMap.of("m", method), ImmutableSortedSet
+								.of("p/I J"), ImmutableSortedSet.of("La b;"),
+						50, "p/A B", null, "-", Visibility.PUBLIC,
+						ClassType.ABSTRACT_CLASS, false, true);
+		ApiSnapshot snapshot =
+				new ApiSnapshot(ImmutableSortedMap.of("p/A B.class",
+						classNode));
+
+		StringWriter dump = new StringWriter();
+		ApiDump.write(snapshot, dump);
+
+		ApiSnapshot read = ApiDump.read(new StringReader(dump.toString()));
+
+		assertEquals(read.getClasses(), snapshot.getClasses());
+
+	}
+
+	@Test
+	public void duplicateClassesAreRejected() {
+
+		String dump =
+				ApiDump.HEADER + "\n"
+						+ "class p/A 50 public class super java/lang/Object -\n"
+						+ " method m ()V public - - -\n"
+						+ "class p/A 50 public class super java/lang/Object -\n";
+
+		try {
+			ApiDump.read(new StringReader(dump));
+			fail("read a duplicate class");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("line 4"), e.getMessage());
+		}
+
+	}
+
+}
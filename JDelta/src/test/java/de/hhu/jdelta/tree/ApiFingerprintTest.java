@@ -0,0 +1,200 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+public class ApiFingerprintTest {
+
+	/**
+	 * The change applied to the generated classes.
+	 */
+	enum Change {
+		NONE, METHOD_BODY, PRIVATE_MEMBERS, PACKAGE_CLASS, CLASS_VISIBILITY,
+		CLASS_FINAL, CLASS_ANNOTATION, SUPER_NAME, INTERFACE,
+		FIELD_VISIBILITY, FIELD_DESC, FIELD_VALUE, FIELD_STATIC, FIELD_FINAL,
+		FIELD_ENUM, METHOD_VISIBILITY, METHOD_DESC, METHOD_STATIC,
+		METHOD_FINAL, METHOD_EXCEPTION, METHOD_VARARGS, METHOD_ABSTRACT
+	}
+
+	private static ClassNode generatePublicClass(Change change) {
+
+		int classAccess = Opcodes.ACC_PUBLIC;
+		String superName = "java/lang/Object";
+		String[] interfaces = null;
+
+		if (change == Change.CLASS_VISIBILITY)
+			classAccess = 0;
+		else if (change == Change.CLASS_FINAL)
+			classAccess |= Opcodes.ACC_FINAL;
+		else if (change == Change.SUPER_NAME)
+			superName = "java/lang/Number";
+		else if (change == Change.INTERFACE)
+			interfaces = new String[] { "java/io/Serializable" };
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_6, classAccess, "p/A", null, superName,
+				interfaces);
+
+		if (change == Change.CLASS_ANNOTATION)
+			cw.visitAnnotation("Ljava/lang/Deprecated;", true).visitEnd();
+
+		int fieldAccess =
+				Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL;
+		String fieldDesc = "I";
+		Object value = Integer.valueOf(1);
+
+		if (change == Change.FIELD_VISIBILITY)
+			fieldAccess ^= Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED;
+		else if (change == Change.FIELD_STATIC)
+			fieldAccess ^= Opcodes.ACC_STATIC;
+		else if (change == Change.FIELD_FINAL)
+			fieldAccess ^= Opcodes.ACC_FINAL;
+		else if (change == Change.FIELD_ENUM)
+			fieldAccess |= Opcodes.ACC_ENUM;
+		else if (change == Change.FIELD_DESC)
+			fieldDesc = "J";
+		else if (change == Change.FIELD_VALUE)
+			value = Integer.valueOf(2);
+
+		cw.visitField(fieldAccess, "f", fieldDesc, null, value).visitEnd();
+
+		int methodAccess = Opcodes.ACC_PUBLIC;
+		String methodDesc = "()I";
+		String[] exceptions = null;
+
+		if (change == Change.METHOD_VISIBILITY)
+			methodAccess = Opcodes.ACC_PROTECTED;
+		else if (change == Change.METHOD_STATIC)
+			methodAccess |= Opcodes.ACC_STATIC;
+		else if (change == Change.METHOD_FINAL)
+			methodAccess |= Opcodes.ACC_FINAL;
+		else if (change == Change.METHOD_DESC)
+			methodDesc = "()Z";
+		else if (change == Change.METHOD_EXCEPTION)
+			exceptions = new String[] { "java/io/IOException" };
+
+		MethodVisitor mv =
+				cw.visitMethod(methodAccess, "m", methodDesc, null, exceptions);
+		mv.visitCode();
+		mv.visitInsn(change == Change.METHOD_BODY ? Opcodes.ICONST_1
+				: Opcodes.ICONST_0);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+
+		int varargsAccess = Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT;
+
+		if (change == Change.METHOD_VARARGS)
+			varargsAccess |= Opcodes.ACC_VARARGS;
+		else if (change == Change.METHOD_ABSTRACT)
+			varargsAccess ^= Opcodes.ACC_ABSTRACT;
+
+		cw.visitMethod(varargsAccess, "n", "([Ljava/lang/Object;)V", null,
+				null).visitEnd();
+
+		if (change == Change.PRIVATE_MEMBERS) {
+			cw.visitField(Opcodes.ACC_PRIVATE, "g", "I", null, null)
+					.visitEnd();
+			cw.visitMethod(Opcodes.ACC_PRIVATE, "o", "()V", null, null)
+					.visitEnd();
+		}
+
+		cw.visitEnd();
+
+		return new ClassNode(new ClassReader(cw.toByteArray()));
+
+	}
+
+	private static ClassNode generatePackageClass(Change change) {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_6, 0, "p/B", null, "java/lang/Object", null);
+		cw.visitField(Opcodes.ACC_PUBLIC, "f",
+				change == Change.PACKAGE_CLASS ? "J" : "I", null, null)
+				.visitEnd();
+		cw.visitEnd();
+
+		return new ClassNode(new ClassReader(cw.toByteArray()));
+
+	}
+
+	private static ApiFingerprint fingerprint(Change change) {
+
+		return new ApiFingerprint(ImmutableSortedMap.of("p/A.class",
+				generatePublicClass(change), "p/B.class",
+				generatePackageClass(change)));
+
+	}
+
+	@Test
+	public void ignoresImplementationAndPrivateChanges() {
+
+		ApiFingerprint fingerprint = fingerprint(Change.NONE);
+
+		assertEquals(fingerprint(Change.NONE), fingerprint);
+		assertEquals(fingerprint(Change.METHOD_BODY), fingerprint);
+		assertEquals(fingerprint(Change.PRIVATE_MEMBERS), fingerprint);
+		assertEquals(fingerprint(Change.PACKAGE_CLASS), fingerprint);
+		assertEquals(ApiFingerprint.valueOf(fingerprint.toString()),
+				fingerprint);
+
+	}
+
+	@DataProvider
+	public Object[][] apiChanges() {
+
+		Change[] changes =
+				{ Change.CLASS_VISIBILITY, Change.CLASS_FINAL,
+						Change.CLASS_ANNOTATION, Change.SUPER_NAME,
+						Change.INTERFACE, Change.FIELD_VISIBILITY,
+						Change.FIELD_DESC, Change.FIELD_VALUE,
+						Change.FIELD_STATIC, Change.FIELD_FINAL,
+						Change.FIELD_ENUM, Change.METHOD_VISIBILITY,
+						Change.METHOD_DESC, Change.METHOD_STATIC,
+						Change.METHOD_FINAL, Change.METHOD_EXCEPTION,
+						Change.METHOD_VARARGS, Change.METHOD_ABSTRACT };
+		Object[][] data = new Object[changes.length][];
+
+		for (int i = 0; i < changes.length; i++)
+			data[i] = new Object[] { changes[i] };
+
+		return data;
+
+	}
+
+	@Test(dataProvider = "apiChanges")
+	public void changesWithTheApi(Change change) {
+
+		assertFalse(fingerprint(change).equals(fingerprint(Change.NONE)),
+				change.toString());
+
+	}
+
+}
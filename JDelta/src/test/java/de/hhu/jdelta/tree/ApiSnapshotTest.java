@@ -0,0 +1,237 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.TestJars;
+import de.hhu.jdelta.delta.JarDelta;
+import de.hhu.jdelta.io.ZipArchive;
+import de.hhu.jdelta.progress.ProgressListener;
+
+public class ApiSnapshotTest {
+
+	@Test
+	public void mappedClassesEqualReadClasses() throws IOException,
+			URISyntaxException {
+
+		ApiSnapshot snapshot =
+				new ApiSnapshot(new JarNode(TestJars.guava(), null,
+						ParseMode.API, ProgressListener.SILENT));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(out);
+
+		ApiSnapshot read =
+				ApiSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+		ApiSnapshot mapped = ApiSnapshot.map(ByteBuffer.wrap(out.toByteArray()));
+
+		assertEquals(mapped.getClasses().keySet(), read.getClasses().keySet());
+
+		for (String key : read.getClasses().keySet()) {
+
+			ClassNode view = mapped.getClasses().get(key);
+			ClassNode classNode = read.getClasses().get(key);
+
+			assertTrue(view instanceof ClassNodeView);
+			assertEquals(view, classNode);
+			assertEquals(classNode, view);
+			assertEquals(view.hashCode(), classNode.hashCode());
+
+		}
+
+		// the full parse adds the private members to each class
+		JarNode to = new JarNode(TestJars.guava());
+		JarDelta mappedDelta =
+				new JarDelta(new JarNode("mapped", mapped), to);
+		JarDelta readDelta = new JarDelta(new JarNode("read", read), to);
+
+		assertEquals(mappedDelta.getDeepDeclarationsDiff(), readDelta
+				.getDeepDeclarationsDiff());
+		assertTrue(mappedDelta.getDeepDeclarationsDiff().length() > 0);
+
+	}
+
+	@Test
+	public void stampKeepsThePrefixAndStoredEntries() throws IOException {
+
+		byte[] prefix = "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n"
+				.getBytes("UTF-8");
+		// an empty zip archive
+		byte[] nested = Arrays.copyOf(new byte[] { 'P', 'K', 5, 6 }, 22);
+		byte[] extra = new byte[] { 0x42, 0x42, 2, 0, 1, 2 };
+
+		CRC32 crc = new CRC32();
+		crc.update(nested);
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, "p/A", null,
+				"java/lang/Object", null);
+		cw.visitEnd();
+
+		File jar = File.createTempFile("launcher", ".jar");
+
+		try {
+
+			OutputStream os = new FileOutputStream(jar);
+			os.write(prefix);
+
+			ZipOutputStream zos = new ZipOutputStream(os);
+			zos.putNextEntry(new ZipEntry("BOOT-INF/classes/p/A.class"));
+			zos.write(cw.toByteArray());
+
+			ZipEntry entry = new ZipEntry("BOOT-INF/lib/x.jar");
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(nested.length);
+			entry.setCrc(crc.getValue());
+			entry.setComment("nested");
+			entry.setExtra(extra);
+			zos.putNextEntry(entry);
+			zos.write(nested);
+			zos.close();
+
+			ApiSnapshot snapshot = ApiSnapshot.stamp(jar, jar);
+
+			byte[] bytes = Files.readAllBytes(jar.toPath());
+			assertEquals(Arrays.copyOf(bytes, prefix.length), prefix);
+
+			ZipFile zip = new ZipFile(jar);
+
+			try {
+
+				ZipEntry copy = zip.getEntry("BOOT-INF/lib/x.jar");
+
+				assertEquals(copy.getMethod(), ZipEntry.STORED);
+				assertEquals(copy.getComment(), "nested");
+				assertEquals(copy.getExtra(), extra);
+
+			} finally {
+				zip.close();
+			}
+
+			ZipArchive archive = ZipArchive.open(jar);
+
+			try {
+				assertEquals(ApiSnapshot.readEmbedded(archive).getClasses()
+						.keySet(), snapshot.getClasses().keySet());
+			} finally {
+				archive.close();
+			}
+
+			assertEquals(snapshot.getClasses().keySet(), ImmutableSortedSet
+					.of("p/A.class"));
+
+		} finally {
+			jar.delete();
+		}
+
+	}
+
+
+	private static byte[] generateClass(String... methods) {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "p/A",
+				null, "java/lang/Object", null);
+
+		for (String method : methods)
+			cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method,
+					"()V", null, null).visitEnd();
+
+		cw.visitEnd();
+
+		return cw.toByteArray();
+
+	}
+
+	@Test
+	public void stampRecordsTheRelease() throws IOException {
+
+		File jar = File.createTempFile("release", ".jar");
+
+		try {
+
+			ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+			out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+			out.write("Manifest-Version: 1.0\r\nMulti-Release: true\r\n\r\n"
+					.getBytes("UTF-8"));
+			out.putNextEntry(new ZipEntry("p/A.class"));
+			out.write(generateClass("a"));
+			out.putNextEntry(new ZipEntry("META-INF/versions/11/p/A.class"));
+			out.write(generateClass("a", "b"));
+			out.close();
+
+			ApiSnapshot snapshot = ApiSnapshot.stamp(jar, 11, jar);
+
+			assertTrue(snapshot.isMultiRelease());
+			assertEquals(snapshot.getRelease(), 11);
+
+			JarNode stamped =
+					JarNode.forBaseline(jar, 11, false, ProgressListener.SILENT);
+
+			assertTrue(stamped.isApiSnapshot());
+			assertEquals(stamped.getRelease(), 11);
+			assertEquals(stamped.getFingerprint(), snapshot.getFingerprint());
+
+			try {
+				stamped.forRelease(0);
+				fail("resolved another release");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+
+			// the snapshot of release 11 does not hold the base layer
+			JarNode base =
+					JarNode.forBaseline(jar, 0, false, ProgressListener.SILENT);
+
+			assertFalse(base.isApiSnapshot());
+			assertEquals(base.getClasses().get("p/A.class").getMethods()
+					.size(), 1);
+
+		} finally {
+			jar.delete();
+		}
+
+	}
+
+}
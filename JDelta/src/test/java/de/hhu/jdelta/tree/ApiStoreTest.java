@@ -0,0 +1,117 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.TestFiles;
+import de.hhu.jdelta.TestJars;
+import de.hhu.jdelta.progress.ProgressListener;
+
+public class ApiStoreTest {
+
+	@Test
+	public void sharesUnchangedClasses() throws IOException,
+			URISyntaxException {
+
+		File jar = TestJars.guava();
+		File directory = Files.createTempDirectory("store").toFile();
+
+		try {
+
+			ApiSnapshot snapshot =
+					new ApiSnapshot(new JarNode(jar, null, ParseMode.API,
+							ProgressListener.SILENT));
+
+			ApiStore store = new ApiStore(directory);
+			store.add("1.0", snapshot);
+			store.add("1.1", snapshot);
+			store.close();
+
+			store = new ApiStore(directory);
+
+			try {
+
+				JarNode first = store.getJarNode("1.0");
+				JarNode second = store.getJarNode("1.1");
+
+				assertEquals(store.getVersions(), ImmutableSortedSet.of("1.0",
+						"1.1"));
+				assertEquals(store.getRecordCount(), snapshot
+						.getClasses()
+						.size());
+				assertEquals(store.getFingerprint("1.1"), snapshot
+						.getFingerprint());
+				assertEquals(first.getClasses(), snapshot.getClasses());
+				assertEquals(new ApiFingerprint(first.getClasses()), snapshot
+						.getFingerprint());
+
+				for (String key : first.getClasses().keySet())
+					assertSame(second.getClasses().get(key), first
+							.getClasses()
+							.get(key));
+
+			} finally {
+				store.close();
+			}
+
+		} finally {
+			TestFiles.delete(directory);
+		}
+
+	}
+
+	@Test
+	public void storeIsLockedWhileOpen() throws IOException {
+
+		File directory = Files.createTempDirectory("store").toFile();
+
+		try {
+
+			ApiStore store = new ApiStore(directory);
+
+			try {
+				new ApiStore(directory).close();
+				fail("opened twice");
+			} catch (IOException e) {
+				// expected
+			} finally {
+				store.close();
+			}
+
+			new ApiStore(directory).close();
+
+		} finally {
+			TestFiles.delete(directory);
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.objectweb.asm.ClassReader;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * Compares the time needed to build ClassNodes with ASM's ClassReader and
+ * with the ClassFileParser. Run the main method, optionally with the number
+ * of rounds as argument.
+ * 
+ * @author Gian Perrone
+ */
+public class ClassFileParserBenchmark {
+
+	private static final int WARMUP_ROUNDS = 10;
+
+	public static void main(String[] args) throws Exception {
+
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+		List<byte[]> classes =
+				ClassFileParserTest.readClasses(ImmutableSortedMap.class);
+		classes.addAll(ClassFileParserTest.readClasses(StringUtils.class));
+		classes.addAll(ClassFileParserTest.readClasses(ClassReader.class));
+
+		System.out.println(classes.size() + " classes, " + rounds
+				+ " rounds");
+
+		for (ParseMode parseMode : ParseMode.values()) {
+
+			for (int i = 0; i < WARMUP_ROUNDS; i++) {
+				runClassReader(classes, parseMode);
+				runClassFileParser(classes, parseMode);
+			}
+
+			long classReader = 0;
+			long classFileParser = 0;
+
+			for (int i = 0; i < rounds; i++) {
+				classReader += runClassReader(classes, parseMode);
+				classFileParser += runClassFileParser(classes, parseMode);
+			}
+
+			System.out.printf("%-4s ClassReader:     %8.2f ms/round%n",
+					parseMode, classReader / 1e6 / rounds);
+			System.out.printf("%-4s ClassFileParser: %8.2f ms/round%n",
+					parseMode, classFileParser / 1e6 / rounds);
+
+		}
+
+	}
+
+	private static long runClassReader(List<byte[]> classes,
+			ParseMode parseMode) {
+
+		long start = System.nanoTime();
+
+		for (byte[] bytes : classes)
+			new ClassNode(new ClassReader(bytes), parseMode);
+
+		return System.nanoTime() - start;
+
+	}
+
+	private static long runClassFileParser(List<byte[]> classes,
+			ParseMode parseMode) {
+
+		long start = System.nanoTime();
+
+		for (byte[] bytes : classes)
+			new ClassNode(new ClassFileParser(bytes), parseMode);
+
+		return System.nanoTime() - start;
+
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.commons.lang3.StringUtils;
+import org.objectweb.asm.ClassReader;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import de.hhu.jdelta.TestJars;
+
+public class ClassFileParserTest {
+
+	static List<byte[]> readClasses(Class<?> member) throws IOException,
+			URISyntaxException {
+
+		File file = TestJars.jarOf(member);
+
+		List<byte[]> classes = new ArrayList<byte[]>();
+		JarFile jar = new JarFile(file);
+
+		try {
+
+			for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
+
+				JarEntry entry = e.nextElement();
+
+				if (!entry.getName().endsWith(".class"))
+					continue;
+
+				InputStream in = jar.getInputStream(entry);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+
+				for (int n; (n = in.read(buffer)) != -1;)
+					out.write(buffer, 0, n);
+
+				in.close();
+				classes.add(out.toByteArray());
+
+			}
+
+		} finally {
+			jar.close();
+		}
+
+		return classes;
+
+	}
+
+	@DataProvider
+	public Object[][] jars() {
+
+		return new Object[][] { { ClassReader.class },
+				{ ImmutableSortedMap.class }, { StringUtils.class } };
+
+	}
+
+	@Test(dataProvider = "jars")
+	public void sameTreeAsClassReaderTest(Class<?> member) throws Exception {
+
+		for (byte[] bytes : readClasses(member)) {
+
+			for (ParseMode parseMode : ParseMode.values()) {
+
+				ClassNode expected =
+						new ClassNode(new ClassReader(bytes), parseMode);
+				ClassNode actual =
+						new ClassNode(new ClassFileParser(bytes), parseMode);
+
+				assertEquals(actual, expected);
+				assertEquals(actual.getAnnotations(), expected.getAnnotations());
+				assertEquals(actual.getDeepDeclarationsString(),
+						expected.getDeepDeclarationsString());
+
+			}
+
+		}
+
+	}
+
+	@Test(dataProvider = "jars")
+	public void memberTablesKeepStringOrderTest(Class<?> member)
+			throws Exception {
+
+		for (byte[] bytes : readClasses(member)) {
+
+			MemberTable<MethodNode> methods =
+					new ClassNode(new ClassFileParser(bytes), ParseMode.FULL)
+							.getMethodTable();
+			List<String> keys = new ArrayList<String>();
+
+			for (int i = 0; i < methods.size(); i++) {
+
+				MemberKey key = methods.getKey(i);
+
+				assertEquals(key.hashCode(), key.toString().hashCode());
+				assertEquals(methods.indexOf(key), i);
+				keys.add(key.toString());
+
+			}
+
+			List<String> sorted = new ArrayList<String>(keys);
+			Collections.sort(sorted);
+
+			assertEquals(keys, sorted);
+
+		}
+
+	}
+
+}
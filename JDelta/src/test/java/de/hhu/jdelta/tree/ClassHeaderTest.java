@@ -0,0 +1,92 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+public class ClassHeaderTest {
+
+	@Test
+	public void readsTheAccessFlagsAfterTheConstantPool() throws IOException {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, "p/A",
+				null, "java/lang/Object", null);
+		cw.visitField(Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "l", "J", null,
+				Long.valueOf(1)).visitEnd();
+
+		// long and double constants take two slots of the constant pool
+		MethodVisitor mv =
+				cw.visitMethod(Opcodes.ACC_STATIC, "m", "()D", null, null);
+		mv.visitCode();
+		mv.visitLdcInsn(Long.valueOf(2));
+		mv.visitInsn(Opcodes.POP2);
+		mv.visitLdcInsn("s");
+		mv.visitInsn(Opcodes.POP);
+		mv.visitLdcInsn(Float.valueOf(3));
+		mv.visitInsn(Opcodes.POP);
+		mv.visitLdcInsn(Double.valueOf(4));
+		mv.visitInsn(Opcodes.DRETURN);
+		mv.visitMaxs(2, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+
+		byte[] bytes = cw.toByteArray();
+		ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+
+		assertEquals(ClassHeader.readAccess(in), Opcodes.ACC_FINAL
+				| Opcodes.ACC_SUPER);
+		assertEquals(in.available(), bytes.length
+				- new ClassReader(bytes).header - 2);
+
+	}
+
+	@Test
+	public void readsTheClassesOfAJar() throws Exception {
+
+		List<byte[]> classes =
+				ClassFileParserTest.readClasses(ImmutableSortedMap.class);
+
+		for (byte[] bytes : classes)
+			assertEquals(ClassHeader.readAccess(new ByteArrayInputStream(
+					bytes)), new ClassReader(bytes).getAccess());
+
+	}
+
+	@Test(expectedExceptions = IOException.class)
+	public void rejectsOtherFiles() throws IOException {
+
+		ClassHeader.readAccess(new ByteArrayInputStream(new byte[] { 'P',
+				'K', 3, 4, 0, 0, 0, 0 }));
+
+	}
+
+}
@@ -0,0 +1,379 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.jar.JarInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.TestFiles;
+import de.hhu.jdelta.TestJars;
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.progress.ProgressListener.Phase;
+
+public class JarNodeTest {
+
+	@Test
+	public void readsJarsFromMemoryAndStreams() throws IOException,
+			URISyntaxException {
+
+		File file = TestJars.guava();
+
+		JarNode expected = new JarNode(file);
+
+		JarNode fromBytes =
+				new JarNode(Files.readAllBytes(file.toPath()), file.getPath());
+
+		JarInputStream in = new JarInputStream(new FileInputStream(file));
+		JarNode fromStream;
+
+		try {
+			fromStream =
+					new JarNode(in, file.getPath(), null, ParseMode.FULL,
+							ProgressListener.SILENT);
+		} finally {
+			in.close();
+		}
+
+		InputStream raw = new FileInputStream(file);
+		JarNode fromRawStream;
+
+		try {
+			fromRawStream =
+					new JarNode(raw, file.getPath(), null, ParseMode.FULL,
+							ProgressListener.SILENT);
+		} finally {
+			raw.close();
+		}
+
+		assertEquals(fromBytes.getClasses(), expected.getClasses());
+		assertEquals(fromRawStream.getClasses(), expected.getClasses());
+		assertEquals(fromStream.getClasses(), expected.getClasses());
+		assertEquals(fromStream.getDeepDeclarationsString(), expected
+				.getDeepDeclarationsString());
+
+	}
+
+	@Test
+	public void readsStreamsWithDataDescriptors() throws IOException,
+			URISyntaxException {
+
+		File file = TestJars.guava();
+
+		// ZipOutputStream writes a data descriptor after each deflated entry
+		ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		ZipOutputStream out = new ZipOutputStream(copy);
+		ZipFile zip = new ZipFile(file);
+
+		try {
+
+			for (Enumeration<? extends ZipEntry> e = zip.entries(); e
+					.hasMoreElements();) {
+
+				ZipEntry entry = e.nextElement();
+				out.putNextEntry(new ZipEntry(entry.getName()));
+
+				InputStream in = zip.getInputStream(entry);
+				byte[] buffer = new byte[8192];
+
+				for (int n; (n = in.read(buffer)) != -1;)
+					out.write(buffer, 0, n);
+
+				in.close();
+				out.closeEntry();
+
+			}
+
+		} finally {
+			zip.close();
+			out.close();
+		}
+
+		byte[] bytes = copy.toByteArray();
+		Set<String> entries =
+				ImmutableSortedSet.of("com/google/common/base/Joiner.class");
+
+		JarNode expected = new JarNode(bytes, file.getPath());
+
+		JarNode all =
+				new JarNode(new ByteArrayInputStream(bytes), file.getPath(),
+						null, ParseMode.FULL, ProgressListener.SILENT);
+		JarNode some =
+				new JarNode(new ByteArrayInputStream(bytes), file.getPath(),
+						entries, ParseMode.FULL, ProgressListener.SILENT);
+
+		assertEquals(all.getClasses(), expected.getClasses());
+		assertEquals(some.getClasses().keySet(), entries);
+
+	}
+
+	@Test
+	public void readsNestedJarsOfFatJars() throws IOException,
+			URISyntaxException {
+
+		File lib = TestJars.guava();
+		byte[] libBytes = Files.readAllBytes(lib.toPath());
+		byte[] classBytes =
+				ClassFileParserTest.readClasses(ImmutableSortedMap.class).get(0);
+
+		File fatJar = File.createTempFile("fat", ".jar");
+		fatJar.deleteOnExit();
+
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(fatJar));
+
+		try {
+
+			out.putNextEntry(new ZipEntry("BOOT-INF/classes/app/App.class"));
+			out.write(classBytes);
+			out.closeEntry();
+
+			CRC32 crc = new CRC32();
+			crc.update(libBytes);
+
+			ZipEntry stored = new ZipEntry("BOOT-INF/lib/lib.jar");
+			stored.setMethod(ZipEntry.STORED);
+			stored.setSize(libBytes.length);
+			stored.setCrc(crc.getValue());
+			out.putNextEntry(stored);
+			out.write(libBytes);
+			out.closeEntry();
+
+		} finally {
+			out.close();
+		}
+
+		SortedMap<String, JarNode> artifacts =
+				JarNode.forArtifacts(fatJar, ParseMode.FULL,
+						ProgressListener.SILENT);
+		JarNode merged = new JarNode(fatJar);
+		JarNode expected = new JarNode(lib);
+
+		assertEquals(artifacts.keySet(), ImmutableSortedSet.of(
+				"BOOT-INF/classes/", "BOOT-INF/lib/lib.jar"));
+		assertEquals(artifacts.get("BOOT-INF/lib/lib.jar").getClasses(),
+				expected.getClasses());
+		assertTrue(merged.getClasses().containsKey("app/App.class"));
+		assertEquals(merged.getClasses().size(),
+				expected.getClasses().size() + 1);
+
+	}
+
+	@Test
+	public void resolvesMultiReleaseJars() throws IOException,
+			URISyntaxException {
+
+		List<byte[]> classes =
+				ClassFileParserTest.readClasses(ImmutableSortedMap.class);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ZipOutputStream out = new ZipOutputStream(bytes);
+
+		out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+		out.write("Manifest-Version: 1.0\r\nMulti-Release: true\r\n\r\n"
+				.getBytes("UTF-8"));
+		out.putNextEntry(new ZipEntry("a/X.class"));
+		out.write(classes.get(0));
+		out.putNextEntry(new ZipEntry("META-INF/versions/11/a/X.class"));
+		out.write(classes.get(1));
+		out.putNextEntry(new ZipEntry("META-INF/versions/17/a/X.class"));
+		out.write(classes.get(2));
+		out.close();
+
+		JarNode base = new JarNode(bytes.toByteArray(), "mr.jar");
+
+		assertTrue(base.isMultiRelease());
+		assertEquals(base.getClasses().keySet(), ImmutableSortedSet
+				.of("a/X.class"));
+
+		String[] names = new String[3];
+		for (int i = 0; i < 3; i++)
+			names[i] =
+					new ClassNode(new ClassFileParser(classes.get(i)),
+							ParseMode.FULL).getName();
+
+		assertEquals(base.getClasses().get("a/X.class").getName(), names[0]);
+		assertEquals(base.forRelease(9).getClasses().get("a/X.class")
+				.getName(), names[0]);
+		assertEquals(base.forRelease(11).getClasses().get("a/X.class")
+				.getName(), names[1]);
+		assertEquals(base.forRelease(21).getClasses().get("a/X.class")
+				.getName(), names[2]);
+		assertSame(base.forRelease(11).getClasses().get("a/X.class"), base
+				.forRelease(12)
+				.getClasses()
+				.get("a/X.class"));
+
+	}
+
+	@Test
+	public void reportsLoadingProgressInOrder() throws IOException,
+			URISyntaxException {
+
+		final List<Integer> counts = new ArrayList<Integer>();
+		final int[] total = new int[1];
+
+		JarNode node =
+				new JarNode(TestJars.guava(), null, ParseMode.FULL,
+						new NodeInterner(), new ProgressListener() {
+
+							public void phaseStarted(Phase phase,
+									String subject, int t) {
+							}
+
+							public void progress(Phase phase, int done, int t) {
+								counts.add(done);
+								total[0] = t;
+							}
+
+							public void phaseFinished(Phase phase) {
+							}
+
+						});
+
+		for (int i = 1; i < counts.size(); i++)
+			assertTrue(counts.get(i - 1) < counts.get(i), counts.toString());
+
+		assertEquals(counts.get(counts.size() - 1).intValue(), total[0]);
+		assertEquals(total[0], node.getClasses().size());
+
+	}
+
+	@Test
+	public void parsesPublicClassesAndIncludesOthers() throws IOException {
+
+		File jar = File.createTempFile("classes", ".jar");
+
+		try {
+
+			ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+
+			for (String name : new String[] { "p/A", "p/B" }) {
+
+				ClassWriter cw = new ClassWriter(0);
+				cw.visit(Opcodes.V1_6, name.equals("p/A") ? Opcodes.ACC_PUBLIC
+						: 0, name, null, "java/lang/Object", null);
+				cw.visitEnd();
+
+				out.putNextEntry(new ZipEntry(name + ".class"));
+				out.write(cw.toByteArray());
+
+			}
+
+			out.close();
+
+			JarNode api = JarNode.forApi(jar, ProgressListener.SILENT);
+
+			assertEquals(api.getClasses().keySet(), ImmutableSortedSet
+					.of("p/A.class"));
+
+			JarNode all =
+					api.include(jar, ImmutableSortedSet.of("p/B.class"),
+							ProgressListener.SILENT);
+
+			assertEquals(all.getClasses().keySet(), ImmutableSortedSet.of(
+					"p/A.class", "p/B.class"));
+			assertSame(all.getClasses().get("p/A.class"), api.getClasses()
+					.get("p/A.class"));
+			assertEquals(all.getClasses().get("p/B.class").getVisibility(),
+					Visibility.PACKAGE);
+
+		} finally {
+			jar.delete();
+		}
+
+	}
+
+
+	private static byte[] generateClass(String name, String... methods) {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT,
+				name, null, "java/lang/Object", null);
+
+		for (String method : methods)
+			cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method,
+					"()V", null, null).visitEnd();
+
+		cw.visitEnd();
+
+		return cw.toByteArray();
+
+	}
+
+	@Test
+	public void updateComparesSizeAndModificationTime() throws IOException {
+
+		File directory = Files.createTempDirectory("classes").toFile();
+
+		try {
+
+			File c0 = new File(directory, "p/C0.class");
+			c0.getParentFile().mkdirs();
+			Files.write(c0.toPath(), generateClass("p/C0", "a"));
+			FileTime modified = Files.getLastModifiedTime(c0.toPath());
+
+			JarNode jarNode = new JarNode(directory);
+
+			// a rewrite with a different size within the same time
+			Files.write(c0.toPath(), generateClass("p/C0", "a", "b"));
+			Files.setLastModifiedTime(c0.toPath(), modified);
+
+			jarNode = jarNode.update(directory, ProgressListener.SILENT);
+
+			assertEquals(jarNode
+					.getClasses()
+					.get("p/C0.class")
+					.getMethods()
+					.size(), 2);
+
+		} finally {
+			TestFiles.delete(directory);
+		}
+
+	}
+
+}
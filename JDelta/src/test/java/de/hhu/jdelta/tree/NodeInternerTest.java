@@ -0,0 +1,89 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jdelta.tree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.hhu.jdelta.TestJars;
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.tree.ClassNode.ClassType;
+
+public class NodeInternerTest {
+
+	private static ClassNode generateClassNode(String... annotations) {
+
+		return new ClassNode(ImmutableSortedMap.<String, FieldNode> of(),
+				ImmutableSortedMap.<String, MethodNode> of(), ImmutableSortedSet
+						.<String> of(), ImmutableSortedSet.copyOf(annotations),
+				50, "p/A", null, "java/lang/Object", Visibility.PUBLIC,
+				ClassType.CLASS, false, true);
+
+	}
+
+	@Test
+	public void keepsAnnotationChanges() {
+
+		NodeInterner interner = new NodeInterner();
+
+		ClassNode plain = interner.intern(generateClassNode());
+		ClassNode deprecated =
+				interner.intern(generateClassNode("Ljava/lang/Deprecated;"));
+
+		assertFalse(plain.equals(deprecated));
+		assertNotSame(deprecated, plain);
+		assertSame(interner.intern(generateClassNode()), plain);
+		assertSame(interner.intern(generateClassNode("Ljava/lang/Deprecated;")),
+				deprecated);
+
+	}
+
+	@Test
+	public void sharesEqualNodes() throws IOException, URISyntaxException {
+
+		File jar = TestJars.guava();
+
+		NodeInterner interner = new NodeInterner();
+		JarNode first =
+				new JarNode(jar, null, ParseMode.FULL, interner,
+						ProgressListener.SILENT);
+		JarNode second =
+				new JarNode(jar, null, ParseMode.FULL, interner,
+						ProgressListener.SILENT);
+
+		assertEquals(first.getClasses(), new JarNode(jar).getClasses());
+
+		for (String key : first.getClasses().keySet())
+			assertSame(second.getClasses().get(key), first.getClasses().get(
+					key));
+
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+/**
+ * The bits of the change masks the CompatibilityRules are evaluated against.
+ * 
+ * A mask describes the changes of a single class, field or method as seen by
+ * a client. Bits which are not meaningful for an entity are never set.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+final class ChangeMask {
+
+	/** The entity became visible to clients. */
+	static final int ADDED = 1 << 0;
+	/** The entity is no longer visible to clients. */
+	static final int DELETED = 1 << 1;
+	/** The class may be extended or implemented by clients. */
+	static final int CLIENT_EXTENDABLE = 1 << 2;
+
+	/** The generic signature is added, deleted or changed. */
+	static final int SIGNATURE_CHANGED = 1 << 3;
+	/** The static modifier is added or deleted. */
+	static final int STATIC_CHANGED = 1 << 4;
+	/** The entity is static in the new version. */
+	static final int STATIC = 1 << 5;
+	/** The final modifier is added. */
+	static final int FINAL_ADDED = 1 << 6;
+	/** The final modifier is deleted. */
+	static final int FINAL_DELETED = 1 << 7;
+
+	/** The class type is changed. */
+	static final int CLASS_TYPE_CHANGED = 1 << 8;
+	/** An abstract class became a concrete class. */
+	static final int ABSTRACT_TO_CLASS = 1 << 9;
+	/** The super class is changed. */
+	static final int SUPER_NAME_CHANGED = 1 << 10;
+	/** An interface is added. */
+	static final int INTERFACE_ADDED = 1 << 11;
+	/** An interface is deleted. */
+	static final int INTERFACE_DELETED = 1 << 12;
+
+	/** The type of the field is changed. */
+	static final int DESC_CHANGED = 1 << 13;
+	/** The constant value of the field is added, deleted or changed. */
+	static final int VALUE_CHANGED = 1 << 14;
+	/** The field became an enum constant. */
+	static final int ENUM_ADDED = 1 << 15;
+	/** The field is no longer an enum constant. */
+	static final int ENUM_DELETED = 1 << 16;
+
+	/** A thrown exception is added. */
+	static final int EXCEPTION_ADDED = 1 << 17;
+	/** The varargs modifier is added. */
+	static final int VARARGS_ADDED = 1 << 18;
+	/** The varargs modifier is deleted. */
+	static final int VARARGS_DELETED = 1 << 19;
+	/** The abstract modifier is added. */
+	static final int ABSTRACT_ADDED = 1 << 20;
+
+	/** The bits which describe the entity rather than a change of it. */
+	static final int STATE = CLIENT_EXTENDABLE | STATIC;
+
+	private ChangeMask() {
+
+	}
+
+}
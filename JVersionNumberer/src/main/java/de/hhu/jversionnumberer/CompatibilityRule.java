@@ -0,0 +1,142 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+import static de.hhu.jversionnumberer.ChangeMask.ABSTRACT_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.ABSTRACT_TO_CLASS;
+import static de.hhu.jversionnumberer.ChangeMask.ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.CLIENT_EXTENDABLE;
+import static de.hhu.jversionnumberer.ChangeMask.DELETED;
+import static de.hhu.jversionnumberer.ChangeMask.DESC_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.ENUM_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.ENUM_DELETED;
+import static de.hhu.jversionnumberer.ChangeMask.EXCEPTION_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.FINAL_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.FINAL_DELETED;
+import static de.hhu.jversionnumberer.ChangeMask.INTERFACE_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.INTERFACE_DELETED;
+import static de.hhu.jversionnumberer.ChangeMask.SIGNATURE_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.STATIC;
+import static de.hhu.jversionnumberer.ChangeMask.STATIC_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.SUPER_NAME_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.VALUE_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.VARARGS_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.VARARGS_DELETED;
+
+/**
+ * The rules of the evolution of an API which decide whether a change of a
+ * class, field or method requires a minor or a major version increment.
+ * 
+ * A rule applies to a change if all of its required bits and none of its
+ * forbidden bits are set in the change mask of the entity.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+public enum CompatibilityRule {
+
+	CLASS_ADDED(Entity.CLASS, ADDED, 0, false),
+	CLASS_DELETED(Entity.CLASS, DELETED, 0, true),
+	CLASS_ABSTRACT_TO_CLASS(Entity.CLASS, ChangeMask.CLASS_TYPE_CHANGED
+			| ABSTRACT_TO_CLASS, 0, false),
+	CLASS_TYPE_CHANGED(Entity.CLASS, ChangeMask.CLASS_TYPE_CHANGED,
+			ABSTRACT_TO_CLASS, true),
+	CLASS_FINAL_ADDED(Entity.CLASS, FINAL_ADDED, 0, true),
+	CLASS_SIGNATURE_CHANGED(Entity.CLASS, SIGNATURE_CHANGED, 0, true),
+	CLASS_SUPER_NAME_CHANGED(Entity.CLASS, SUPER_NAME_CHANGED, 0, true),
+	CLASS_INTERFACE_DELETED(Entity.CLASS, INTERFACE_DELETED, 0, true),
+	CLASS_INTERFACE_ADDED(Entity.CLASS, INTERFACE_ADDED, CLIENT_EXTENDABLE,
+			false),
+	EXTENDABLE_CLASS_INTERFACE_ADDED(Entity.CLASS, INTERFACE_ADDED
+			| CLIENT_EXTENDABLE, 0, true),
+
+	FIELD_ADDED(Entity.FIELD, ADDED, CLIENT_EXTENDABLE, false),
+	EXTENDABLE_CLASS_FIELD_ADDED(Entity.FIELD, ADDED | CLIENT_EXTENDABLE, 0,
+			true),
+	FIELD_DELETED(Entity.FIELD, DELETED, 0, true),
+	FIELD_DESC_CHANGED(Entity.FIELD, DESC_CHANGED, 0, true),
+	FIELD_VALUE_CHANGED(Entity.FIELD, VALUE_CHANGED, 0, true),
+	FIELD_STATIC_CHANGED(Entity.FIELD, STATIC_CHANGED, 0, true),
+	FIELD_FINAL_ADDED(Entity.FIELD, FINAL_ADDED, 0, true),
+	STATIC_FIELD_FINAL_DELETED(Entity.FIELD, FINAL_DELETED | STATIC, 0, true),
+	FIELD_FINAL_DELETED(Entity.FIELD, FINAL_DELETED, STATIC, false),
+	FIELD_ENUM_ADDED(Entity.FIELD, ENUM_ADDED, 0, false),
+	FIELD_ENUM_DELETED(Entity.FIELD, ENUM_DELETED, 0, true),
+
+	METHOD_ADDED(Entity.METHOD, ADDED, 0, false),
+	METHOD_DELETED(Entity.METHOD, DELETED, 0, true),
+	METHOD_EXCEPTION_ADDED(Entity.METHOD, EXCEPTION_ADDED, 0, true),
+	METHOD_SIGNATURE_CHANGED(Entity.METHOD, SIGNATURE_CHANGED, 0, true),
+	METHOD_STATIC_CHANGED(Entity.METHOD, STATIC_CHANGED, 0, true),
+	EXTENDABLE_CLASS_METHOD_FINAL_ADDED(Entity.METHOD, FINAL_ADDED
+			| CLIENT_EXTENDABLE, 0, true),
+	METHOD_VARARGS_ADDED(Entity.METHOD, VARARGS_ADDED, 0, false),
+	METHOD_VARARGS_DELETED(Entity.METHOD, VARARGS_DELETED, 0, true),
+	METHOD_ABSTRACT_ADDED(Entity.METHOD, ABSTRACT_ADDED, 0, true);
+
+	/**
+	 * The kinds of entities the rules apply to.
+	 */
+	public enum Entity {
+		CLASS, FIELD, METHOD
+	}
+
+	private final Entity entity;
+	private final int required;
+	private final int forbidden;
+	private final boolean major;
+
+	private CompatibilityRule(Entity entity, int required, int forbidden,
+			boolean major) {
+
+		this.entity = entity;
+		this.required = required;
+		this.forbidden = forbidden;
+		this.major = major;
+
+	}
+
+	/**
+	 * Returns the kind of entity the rule applies to.
+	 * 
+	 * @return the entity
+	 */
+	public Entity getEntity() {
+		return entity;
+	}
+
+	/**
+	 * Returns true if the rule requires a major increment, otherwise it
+	 * requires a minor increment.
+	 * 
+	 * @return the major flag
+	 */
+	public boolean isMajor() {
+		return major;
+	}
+
+	int getRequired() {
+		return required;
+	}
+
+	int getForbidden() {
+		return forbidden;
+	}
+
+}
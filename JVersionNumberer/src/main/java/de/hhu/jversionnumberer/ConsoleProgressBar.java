@@ -0,0 +1,111 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+import java.io.PrintStream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import de.hhu.jdelta.progress.ProgressListener;
+
+/**
+ * A ProgressListener which draws a single-line progress bar, e.g. on stderr.
+ * 
+ * @author Gian Perrone
+ */
+public class ConsoleProgressBar implements ProgressListener {
+
+	private static final int WIDTH = 30;
+
+	private final PrintStream out;
+
+	private String label;
+	private int lastLength = 0;
+
+	/**
+	 * Creates a progress bar printing to the given stream.
+	 * 
+	 * @param out
+	 *            the stream
+	 */
+	public ConsoleProgressBar(PrintStream out) {
+
+		this.out = out;
+
+	}
+
+	public void phaseStarted(Phase phase, String subject, int total) {
+
+		label = subject != null ? phase + " " + subject : phase.toString();
+
+		progress(phase, 0, total);
+
+	}
+
+	public void progress(Phase phase, int done, int total) {
+
+		StringBuilder str = new StringBuilder(label);
+
+		if (total > 0) {
+
+			int filled = (int) ((long) WIDTH * done / total);
+
+			str.append(" [")
+					.append(StringUtils.repeat('#', filled))
+					.append(StringUtils.repeat(' ', WIDTH - filled))
+					.append("] ")
+					.append(100L * done / total)
+					.append("% (")
+					.append(done)
+					.append("/")
+					.append(total)
+					.append(")");
+
+		} else {
+
+			str.append(" ").append(done);
+
+		}
+
+		print(str.toString());
+
+	}
+
+	public void phaseFinished(Phase phase) {
+
+		out.println();
+		out.flush();
+		lastLength = 0;
+
+	}
+
+	private void print(String line) {
+
+		out.print("\r");
+		out.print(line);
+
+		if (line.length() < lastLength)
+			out.print(StringUtils.repeat(' ', lastLength - line.length()));
+
+		out.flush();
+		lastLength = line.length();
+
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.hhu.jversionnumberer.CompatibilityRule.Entity;
+
+/**
+ * The CompatibilityRules of a kind of entity compiled into parallel arrays.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+final class DecisionTable {
+
+	/** The verdict bit of a minor increment. */
+	static final int MINOR = 1;
+	/** The verdict bit of a major increment. */
+	static final int MAJOR = 2;
+
+	private final int[] ordinals;
+	private final int[] required;
+	private final int[] forbidden;
+	private final int[] verdicts;
+
+	// the change bits of which each rule requires at least one
+	private int changes = 0;
+
+	DecisionTable(Entity entity) {
+
+		List<CompatibilityRule> rules = new ArrayList<CompatibilityRule>();
+
+		for (CompatibilityRule rule : CompatibilityRule.values())
+			if (rule.getEntity() == entity)
+				rules.add(rule);
+
+		ordinals = new int[rules.size()];
+		required = new int[rules.size()];
+		forbidden = new int[rules.size()];
+		verdicts = new int[rules.size()];
+
+		for (int i = 0; i < rules.size(); i++) {
+
+			CompatibilityRule rule = rules.get(i);
+
+			ordinals[i] = rule.ordinal();
+			required[i] = rule.getRequired();
+			forbidden[i] = rule.getForbidden();
+			verdicts[i] = rule.isMajor() ? MAJOR : MINOR;
+
+			changes |= rule.getRequired() & ~ChangeMask.STATE;
+
+		}
+
+	}
+
+	/**
+	 * Evaluates the rules against a change mask.
+	 * 
+	 * @param mask
+	 *            the change mask
+	 * @param hits
+	 *            the hit counters indexed by the ordinals of the rules
+	 * @return the verdict bits of the applying rules
+	 */
+	int evaluate(int mask, long[] hits) {
+
+		if ((mask & changes) == 0)
+			return 0;
+
+		int verdict = 0;
+
+		for (int i = 0; i < required.length; i++) {
+
+			if ((mask & required[i]) == required[i] && (mask & forbidden[i]) == 0) {
+				verdict |= verdicts[i];
+				hits[ordinals[i]]++;
+			}
+
+		}
+
+		return verdict;
+
+	}
+
+}
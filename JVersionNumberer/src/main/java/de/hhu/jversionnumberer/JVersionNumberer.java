@@ -23,14 +23,29 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.apache.commons.lang3.StringUtils;
 import org.objectweb.asm.ClassReader;
 
 import de.hhu.jdelta.delta.ClassDelta;
 import de.hhu.jdelta.delta.JarDelta;
+import de.hhu.jdelta.io.ClassDirectoryWatcher;
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.progress.ThrottledProgressListener;
+import de.hhu.jdelta.tree.ApiDump;
+import de.hhu.jdelta.tree.ApiFingerprint;
+import de.hhu.jdelta.tree.ApiSnapshot;
+import de.hhu.jdelta.tree.ApiStore;
 import de.hhu.jdelta.tree.ClassNode;
 import de.hhu.jdelta.tree.JarNode;
+import de.hhu.jdelta.tree.ParseMode;
 
 /**
  * 
@@ -42,8 +57,57 @@ import de.hhu.jdelta.tree.JarNode;
  */
 public class JVersionNumberer {
 
+	private static final long WATCH_QUIET_MILLIS = 50;
+
+	private static ProgressListener listener = ProgressListener.SILENT;
+
+	private static int release = 0;
+
+	private static RuleProfile[] profiles = { RuleProfile.DEFAULT };
+
+	private static VerdictCache cache = null;
+
 	public static void main(String[] args) throws Exception {
 
+		List<String> argList = new ArrayList<String>(Arrays.asList(args));
+
+		if (argList.remove("--progress"))
+			listener =
+					new ThrottledProgressListener(new ConsoleProgressBar(
+							System.err));
+
+		if (argList.remove("--profiles"))
+			profiles =
+					new RuleProfile[] { RuleProfile.DEFAULT,
+							RuleProfile.CLIENT_IMPLEMENTS_ALL,
+							RuleProfile.SEMVER };
+
+		int releaseIndex = argList.indexOf("--release");
+
+		if (releaseIndex >= 0) {
+
+			if (releaseIndex + 1 >= argList.size())
+				printUsageAndExit();
+
+			release = Integer.parseInt(argList.remove(releaseIndex + 1));
+			argList.remove(releaseIndex);
+
+		}
+
+		int cacheIndex = argList.indexOf("--cache");
+
+		if (cacheIndex >= 0) {
+
+			if (cacheIndex + 1 >= argList.size())
+				printUsageAndExit();
+
+			cache = new VerdictCache(new File(argList.remove(cacheIndex + 1)));
+			argList.remove(cacheIndex);
+
+		}
+
+		args = argList.toArray(new String[argList.size()]);
+
 		if (args.length < 1)
 			printUsageAndExit();
 
@@ -84,24 +148,91 @@ public class JVersionNumberer {
 
 			doDiffJar(args[1], args[2]);
 
+		} else if (args[0].equals("fingerprint")) {
+
+			if (args.length != 2)
+				printUsageAndExit();
+
+			doFingerprint(args[1]);
+
+		} else if (args[0].equals("watch")) {
+
+			if (args.length != 4)
+				printUsageAndExit();
+
+			doWatch(args[1], args[2], args[3]);
+
+		} else if (args[0].equals("stamp")) {
+
+			if (args.length != 2 && args.length != 3)
+				printUsageAndExit();
+
+			doStamp(args[1], args.length == 3 ? args[2] : args[1]);
+
+		} else if (args[0].equals("dump")) {
+
+			if (args.length != 2 && args.length != 3)
+				printUsageAndExit();
+
+			doDump(args[1], args.length == 3 ? args[2] : null);
+
+		} else if (args[0].equals("store")) {
+
+			if (args.length != 4)
+				printUsageAndExit();
+
+			doStore(args[1], args[2], args[3]);
+
+		} else if (args[0].equals("diffStore")) {
+
+			if (args.length != 4)
+				printUsageAndExit();
+
+			doDiffStore(args[1], args[2], args[3]);
+
 		}
 
 	}
 
 	private static void printUsageAndExit() {
 
-		System.out.println("Usage:");
+		System.out
+				.println("Usage: [--progress] [--release {n}] [--profiles] [--cache {file}] command");
 		System.out.println(" show {class}");
 		System.out.println(" showJar {jar}");
 		System.out.println(" diff {fromClass} {toClass}");
 		System.out.println(" diffJar {fromJar} {toJar}");
+		System.out.println(" fingerprint {jar}");
+		System.out.println(" stamp {jar} [{outJar}]");
+		System.out.println(" dump {jar} [{outFile}]");
+		System.out.println(" store {storeDir} {version} {jar}");
+		System.out.println(" diffStore {storeDir} {fromVersion} {toVersion}");
 		System.out
 				.println(" versionnumber {fromJar} {toJar} {oldVersionNumber}");
+		System.out
+				.println(" watch {fromJar} {toClassDir} {oldVersionNumber}");
+		System.out.println();
+		System.out
+				.println(" --progress  draws a progress bar for jars on stderr");
+		System.out
+				.println(" --release   reads multi-release jars for release n");
+		System.out
+				.println(" --profiles  prints the versionnumber under each rule profile");
+		System.out
+				.println(" --cache     reuses the versionnumber of jars compared before");
 
 		System.exit(0);
 
 	}
 
+	private static void exitWithError(String message, Exception e) {
+
+		System.err.println(message + ": " + e.getMessage());
+
+		System.exit(1);
+
+	}
+
 	private static void doShow(String f) {
 
 		InputStream in;
@@ -134,7 +265,7 @@ public class JVersionNumberer {
 		JarNode jn;
 
 		try {
-			jn = new JarNode(new File(f));
+			jn = new JarNode(new File(f), listener).forRelease(release);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -194,7 +325,7 @@ public class JVersionNumberer {
 		JarNode jn1, jn2;
 
 		try {
-			jn1 = new JarNode(new File(from));
+			jn1 = new JarNode(new File(from), listener).forRelease(release);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -202,14 +333,14 @@ public class JVersionNumberer {
 		}
 
 		try {
-			jn2 = new JarNode(new File(to));
+			jn2 = new JarNode(new File(to), listener).forRelease(release);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 			return;
 		}
 
-		JarDelta jd = new JarDelta(jn1, jn2);
+		JarDelta jd = new JarDelta(jn1, jn2, listener);
 
 		System.out.println(jd.getDeepDeclarationsDiff());
 
@@ -219,26 +350,263 @@ public class JVersionNumberer {
 			String oldVersion) {
 
 		JarNode jn1, jn2;
+		String[] keys = null;
+
+		if (cache != null) {
+
+			try {
+				String fromDigest = VerdictCache.digest(new File(from));
+				String toDigest = VerdictCache.digest(new File(to));
+				keys = new String[profiles.length];
+				for (int i = 0; i < profiles.length; i++)
+					keys[i] =
+							VerdictCache.key(fromDigest, toDigest, release,
+									profiles[i]);
+			} catch (IOException e) {
+				// the versionnumber is still computed, just not cached
+				System.err.println("Cannot use the verdict cache: "
+						+ e.getMessage());
+				keys = null;
+			}
+
+		}
+
+		if (keys != null) {
+
+			VerdictCache.Verdict[] verdicts =
+					new VerdictCache.Verdict[profiles.length];
 
+			for (int i = 0; i < profiles.length; i++)
+				verdicts[i] = cache.get(keys[i]);
+
+			if (!Arrays.asList(verdicts).contains(null)) {
+				printVersions(oldVersion, verdicts);
+				return;
+			}
+
+			// only the verdicts which missed are put after computing them
+			for (int i = 0; i < profiles.length; i++)
+				if (verdicts[i] != null)
+					keys[i] = null;
+
+		}
+
+		// only the classes which are public are parsed at first
 		try {
-			jn1 = new JarNode(new File(from));
+			jn1 = JarNode.forBaseline(new File(from), release, true, listener);
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			exitWithError("Cannot read " + from, e);
 			return;
 		}
 
 		try {
-			jn2 = new JarNode(new File(to));
+			jn2 = JarNode.forApi(new File(to), listener).forRelease(release);
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			exitWithError("Cannot read " + to, e);
+			return;
+		}
+
+		// a class which is public in one jar is compared with the class of
+		// the other jar, whether that is public or not
+		if (!jn1.getFingerprint().equals(jn2.getFingerprint())) {
+
+			Set<String> fromOnly =
+					new TreeSet<String>(jn1.getClasses().keySet());
+			fromOnly.removeAll(jn2.getClasses().keySet());
+			Set<String> toOnly = new TreeSet<String>(jn2.getClasses().keySet());
+			toOnly.removeAll(jn1.getClasses().keySet());
+
+			try {
+				if (!jn1.isApiSnapshot() && !toOnly.isEmpty())
+					jn1 = jn1.include(new File(from), toOnly, listener);
+			} catch (IOException e) {
+				exitWithError("Cannot read " + from, e);
+				return;
+			}
+
+			try {
+				if (!fromOnly.isEmpty())
+					jn2 = jn2.include(new File(to), fromOnly, listener);
+			} catch (IOException e) {
+				exitWithError("Cannot read " + to, e);
+				return;
+			}
+
+		}
+
+		VerdictCache.Verdict[] verdicts =
+				examine(jn1, jn2, profiles, listener);
+
+		printVersions(oldVersion, verdicts);
+
+		if (keys != null)
+			cacheVerdicts(verdicts, keys);
+
+	}
+
+	/**
+	 * Decides the verdict of each profile. Jars with equal fingerprints are
+	 * neither diffed nor examined.
+	 * 
+	 * @param jn1
+	 *            the old jar
+	 * @param jn2
+	 *            the new jar
+	 * @param profiles
+	 *            the rule profiles
+	 * @param listener
+	 *            the listener of the diffing and examining phases
+	 * @return the verdicts in the order of the profiles
+	 */
+	static VerdictCache.Verdict[] examine(JarNode jn1, JarNode jn2,
+			RuleProfile[] profiles, ProgressListener listener) {
+
+		VerdictCache.Verdict[] verdicts =
+				new VerdictCache.Verdict[profiles.length];
+
+		if (jn1.getFingerprint().equals(jn2.getFingerprint())) {
+
+			for (int i = 0; i < profiles.length; i++)
+				verdicts[i] = new VerdictCache.Verdict(false, false);
+
+			return verdicts;
+
+		}
+
+		JarDelta jd = new JarDelta(jn1, jn2, listener);
+
+		VersionNumberWalker vnw =
+				new VersionNumberWalker(jd, listener, profiles);
+
+		for (int i = 0; i < profiles.length; i++)
+			verdicts[i] =
+					new VerdictCache.Verdict(vnw.isMinor(profiles[i]), vnw
+							.isMajor(profiles[i]));
+
+		return verdicts;
+
+	}
+
+	private static void printVersions(String oldVersion,
+			VerdictCache.Verdict[] verdicts) {
+
+		for (int i = 0; i < profiles.length; i++)
+			printVersion(profiles[i], nextVersion(oldVersion, verdicts[i]
+					.isMinor(), verdicts[i].isMajor()));
+
+	}
+
+	/**
+	 * Puts the verdicts whose key is not null into the cache. A failure is
+	 * reported, but does not change the printed versionnumber.
+	 */
+	private static void cacheVerdicts(VerdictCache.Verdict[] verdicts,
+			String[] keys) {
+
+		for (int i = 0; i < profiles.length; i++) {
+
+			if (keys[i] == null)
+				continue;
+
+			try {
+				cache.put(keys[i], verdicts[i]);
+			} catch (IOException e) {
+				System.err.println("Cannot write the verdict cache: "
+						+ e.getMessage());
+				return;
+			}
+
+		}
+
+	}
+
+	private static void printVersion(RuleProfile profile, String version) {
+
+		if (profiles.length == 1)
+			System.out.println(version);
+		else
+			System.out.println(profile + " " + version);
+
+	}
+
+	private static void doWatch(String from, String to, String oldVersion) {
+
+		ClassDirectoryWatcher watcher;
+
+		try {
+			watcher = new ClassDirectoryWatcher(new File(to));
+		} catch (IOException e) {
+			exitWithError("Cannot watch " + to, e);
 			return;
 		}
 
-		JarDelta jd = new JarDelta(jn1, jn2);
+		IOException error = null;
+
+		try {
+
+			JarNode jn1 =
+					JarNode.forBaseline(new File(from), release, false,
+							listener);
+			JarNode jn2 =
+					new JarNode(new File(to), null, ParseMode.API, listener)
+							.forRelease(release);
+
+			JarDelta jd = new JarDelta(jn1, jn2, listener);
+
+			VersionNumberWalker vnw = new VersionNumberWalker(jd, listener);
+
+			System.out.println(nextVersion(oldVersion, vnw.isMinor(), vnw
+					.isMajor()));
+
+			while (true) {
+
+				SortedSet<String> changed =
+						watcher.awaitChanges(WATCH_QUIET_MILLIS);
+
+				long start = System.nanoTime();
+
+				// dropped events leave only the stamps to find the changes
+				if (watcher.isOverflow())
+					jn2 = jn2.update(new File(to), ProgressListener.SILENT);
+				else
+					jn2 = jn2.update(new File(to), changed,
+							ProgressListener.SILENT);
+
+				jd = jd.update(jn2, ProgressListener.SILENT);
+				vnw.update(jd, ProgressListener.SILENT);
+
+				long millis = (System.nanoTime() - start) / 1000000;
+
+				System.out.println(nextVersion(oldVersion, vnw.isMinor(), vnw
+						.isMajor())
+						+ " ("
+						+ changed.size()
+						+ " changed classes, "
+						+ millis
+						+ " ms)");
+
+			}
+
+		} catch (IOException e) {
+			error = e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				System.err.println("Cannot stop watching " + to + ": "
+						+ e.getMessage());
+			}
+		}
+
+		if (error != null)
+			exitWithError("Cannot read " + to, error);
+
+	}
 
-		VersionNumberWalker vnw = new VersionNumberWalker(jd);
+	private static String nextVersion(String oldVersion, boolean minor,
+			boolean major) {
 
 		String[] strParts = oldVersion.split("\\.");
 		int[] parts = new int[strParts.length];
@@ -246,14 +614,14 @@ public class JVersionNumberer {
 		for (int i = 0; i < strParts.length; i++)
 			parts[i] = Integer.parseInt(strParts[i]);
 
-		if (vnw.isMajor()) {
+		if (major) {
 
 			parts[0]++;
 
 			for (int i = 1; i < parts.length; i++)
 				parts[i] = 0;
 
-		} else if (vnw.isMinor()) {
+		} else if (minor) {
 
 			parts[1]++;
 
@@ -265,8 +633,104 @@ public class JVersionNumberer {
 		for (int i = 0; i < parts.length; i++)
 			strParts[i] = Integer.toString(parts[i]);
 
-		String newVersion = StringUtils.join(strParts, ".");
-		System.out.println(newVersion);
+		return StringUtils.join(strParts, ".");
+
+	}
+
+	private static void doFingerprint(String f) {
+
+		JarNode jn;
+
+		try {
+			jn = JarNode.forApi(new File(f), listener).forRelease(release);
+		} catch (IOException e) {
+			exitWithError("Cannot read " + f, e);
+			return;
+		}
+
+		System.out.println(jn.getFingerprint());
+
+	}
+
+	private static void doStamp(String f, String out) {
+
+		ApiSnapshot snapshot;
+
+		try {
+			snapshot = ApiSnapshot.stamp(new File(f), release, new File(out));
+		} catch (IOException e) {
+			exitWithError("Cannot stamp " + f, e);
+			return;
+		}
+
+		System.out.println(snapshot.getFingerprint());
+
+	}
+
+	private static void doDump(String f, String out) {
+
+		try {
+			ApiSnapshot snapshot =
+					new ApiSnapshot(JarNode.forApi(new File(f), listener)
+							.forRelease(release));
+			if (out != null)
+				ApiDump.write(snapshot, new File(out));
+			else
+				ApiDump.write(snapshot, new OutputStreamWriter(System.out,
+						"UTF-8"));
+		} catch (IOException e) {
+			exitWithError("Cannot dump " + f, e);
+			return;
+		}
+
+	}
+
+	private static void doStore(String dir, String version, String f) {
+
+		ApiFingerprint fingerprint;
+
+		try {
+			ApiStore store = new ApiStore(new File(dir));
+			try {
+				fingerprint = store.add(version, new File(f), listener);
+			} finally {
+				store.close();
+			}
+		} catch (IOException e) {
+			exitWithError("Cannot store " + f + " in " + dir, e);
+			return;
+		}
+
+		System.out.println(fingerprint);
+
+	}
+
+	private static void doDiffStore(String dir, String from, String to) {
+
+		JarNode jn1, jn2;
+
+		try {
+			ApiStore store = new ApiStore(new File(dir));
+			try {
+				jn1 = store.getJarNode(from);
+				jn2 = store.getJarNode(to);
+			} finally {
+				store.close();
+			}
+		} catch (IOException e) {
+			exitWithError("Cannot read " + dir, e);
+			return;
+		}
+
+		if (jn1 == null || jn2 == null) {
+			System.err.println("Unknown version " + (jn1 == null ? from : to));
+			System.exit(1);
+			return;
+		}
+
+		JarDelta jd = new JarDelta(jn1, jn2, listener);
+
+		System.out.println(jd.getDeepDeclarationsDiff());
 
 	}
 
@@ -0,0 +1,113 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+/**
+ * A profile of the CompatibilityRules, which decides which classes clients
+ * may extend or implement and whether protected members are part of the API.
+ * 
+ * Several profiles can be evaluated in a single walk, see
+ * {@link VersionNumberWalker#VersionNumberWalker(de.hhu.jdelta.delta.JarDelta, de.hhu.jdelta.progress.ProgressListener, RuleProfile...)}.
+ * 
+ * @author Gian Perrone
+ * 
+ */
+public class RuleProfile {
+
+	/**
+	 * The default rules. Only classes annotated with ExtentableByClient or
+	 * ImplementableByClient may be extended by clients and only their
+	 * protected members are part of the API.
+	 */
+	public static final RuleProfile DEFAULT = new RuleProfile("default",
+			false, false);
+
+	/**
+	 * The stricter rules as if every class were annotated with
+	 * ImplementableByClient.
+	 */
+	public static final RuleProfile CLIENT_IMPLEMENTS_ALL = new RuleProfile(
+			"client-implements-all", true, true);
+
+	/**
+	 * Semantic versioning, which treats the protected members of all classes
+	 * as part of the API, while only annotated classes may be extended by
+	 * clients.
+	 */
+	public static final RuleProfile SEMVER = new RuleProfile("semver", false,
+			true);
+
+	private final String name;
+	private final boolean allClientExtendable;
+	private final boolean protectedApi;
+
+	/**
+	 * Creates a profile.
+	 * 
+	 * @param name
+	 *            the name
+	 * @param allClientExtendable
+	 *            true if clients may extend or implement every class
+	 * @param protectedApi
+	 *            true if the protected members of every class are part of the
+	 *            API
+	 */
+	public RuleProfile(String name, boolean allClientExtendable,
+			boolean protectedApi) {
+
+		this.name = name;
+		this.allClientExtendable = allClientExtendable;
+		this.protectedApi = protectedApi;
+
+	}
+
+	/**
+	 * Returns the name.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns true if clients may extend or implement every class.
+	 * 
+	 * @return the all client extendable flag
+	 */
+	public boolean isAllClientExtendable() {
+		return allClientExtendable;
+	}
+
+	/**
+	 * Returns true if the protected members of every class are part of the
+	 * API.
+	 * 
+	 * @return the protected API flag
+	 */
+	public boolean isProtectedApi() {
+		return protectedApi;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
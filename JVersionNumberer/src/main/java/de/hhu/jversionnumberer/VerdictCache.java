@@ -0,0 +1,333 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.hhu.jdelta.io.Archive;
+import de.hhu.jdelta.io.Archive.Entry;
+
+/**
+ * A persistent cache of the verdicts of the VersionNumberWalker. A verdict is
+ * keyed by the content digests of the baseline and the candidate, the
+ * release, the rule profile and {@link VersionNumberWalker#RULES_VERSION}, so
+ * a repeated comparison of the same jars is answered without parsing them.
+ * 
+ * The cache is a text file with one verdict per line, which is read when the
+ * cache is opened. New verdicts are appended, so several processes may share
+ * a cache file; lines which cannot be read, e.g. the incomplete last line of
+ * an interrupted process, are skipped.
+ * 
+ * @author Gian Perrone
+ */
+public class VerdictCache {
+
+	private static final String ALGORITHM = "SHA-256";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The verdict of a comparison under one rule profile.
+	 */
+	public static final class Verdict {
+
+		private final boolean minor;
+		private final boolean major;
+
+		/**
+		 * Creates a verdict.
+		 * 
+		 * @param minor
+		 *            true if the minor segment has to be incremented
+		 * @param major
+		 *            true if the major segment has to be incremented
+		 */
+		public Verdict(boolean minor, boolean major) {
+
+			this.minor = minor;
+			this.major = major;
+
+		}
+
+		/**
+		 * Returns true if the minor segment has to be incremented.
+		 * 
+		 * @return the minor flag
+		 */
+		public boolean isMinor() {
+			return minor;
+		}
+
+		/**
+		 * Returns true if the major segment has to be incremented.
+		 * 
+		 * @return the major flag
+		 */
+		public boolean isMajor() {
+			return major;
+		}
+
+	}
+
+	private final File file;
+	private final Map<String, Verdict> verdicts =
+			new HashMap<String, Verdict>();
+
+	/**
+	 * Opens a cache file, which is created by the first verdict put into the
+	 * cache.
+	 * 
+	 * @param file
+	 *            the cache file
+	 * @throws IOException
+	 */
+	public VerdictCache(File file) throws IOException {
+
+		this.file = file;
+
+		BufferedReader in;
+
+		try {
+			in =
+					new BufferedReader(new InputStreamReader(
+							new FileInputStream(file), UTF_8));
+		} catch (FileNotFoundException e) {
+			return;
+		}
+
+		try {
+
+			for (String line; (line = in.readLine()) != null;) {
+
+				// the key is followed by the minor and the major flag
+				int length = line.length();
+
+				if (length < 4 || line.charAt(length - 4) != ' '
+						|| line.charAt(length - 2) != ' ')
+					continue;
+
+				char minor = line.charAt(length - 3);
+				char major = line.charAt(length - 1);
+
+				if ((minor == '0' || minor == '1')
+						&& (major == '0' || major == '1'))
+					verdicts.put(line.substring(0, length - 4), new Verdict(
+							minor == '1', major == '1'));
+
+			}
+
+		} finally {
+			in.close();
+		}
+
+	}
+
+	/**
+	 * Returns the key of a comparison.
+	 * 
+	 * @param fromDigest
+	 *            the digest of the baseline, see {@link #digest(File)}
+	 * @param toDigest
+	 *            the digest of the candidate
+	 * @param release
+	 *            the release of multi-release jars or 0
+	 * @param profile
+	 *            the rule profile
+	 * @return the key
+	 */
+	public static String key(String fromDigest, String toDigest, int release,
+			RuleProfile profile) {
+
+		return VersionNumberWalker.RULES_VERSION + " " + release + " "
+				+ (profile.isAllClientExtendable() ? 'e' : '-')
+				+ (profile.isProtectedApi() ? 'p' : '-') + " " + fromDigest
+				+ " " + toDigest;
+
+	}
+
+	/**
+	 * Returns the cached verdict of a comparison.
+	 * 
+	 * @param key
+	 *            the key, see {@link #key(String, String, int, RuleProfile)}
+	 * @return the verdict or null if the comparison is not cached
+	 */
+	public synchronized Verdict get(String key) {
+
+		return verdicts.get(key);
+
+	}
+
+	/**
+	 * Adds the verdict of a comparison and appends it to the cache file.
+	 * 
+	 * @param key
+	 *            the key, see {@link #key(String, String, int, RuleProfile)}
+	 * @param verdict
+	 *            the verdict
+	 * @throws IOException
+	 */
+	public synchronized void put(String key, Verdict verdict)
+			throws IOException {
+
+		verdicts.put(key, verdict);
+
+		String line =
+				key + " " + (verdict.isMinor() ? 1 : 0) + " "
+						+ (verdict.isMajor() ? 1 : 0) + "\n";
+
+		if (!endsWithNewline())
+			line = "\n" + line;
+
+		// a single write, so lines of concurrent processes are not mixed
+		OutputStream out = new FileOutputStream(file, true);
+
+		try {
+			out.write(line.getBytes(UTF_8));
+		} finally {
+			out.close();
+		}
+
+	}
+
+	private boolean endsWithNewline() throws IOException {
+
+		RandomAccessFile in;
+
+		try {
+			in = new RandomAccessFile(file, "r");
+		} catch (FileNotFoundException e) {
+			return true;
+		}
+
+		try {
+
+			if (in.length() == 0)
+				return true;
+
+			in.seek(in.length() - 1);
+
+			return in.read() == '\n';
+
+		} finally {
+			in.close();
+		}
+
+	}
+
+	/**
+	 * Computes the content digest of a jar, an API dump, a directory or a
+	 * class path. Files are digested as a whole, directories and class paths
+	 * by the names and contents of their entries.
+	 * 
+	 * @param jar
+	 *            the file, directory or class path
+	 * @return the hex encoded digest
+	 * @throws IOException
+	 */
+	public static String digest(File jar) throws IOException {
+
+		MessageDigest md;
+
+		try {
+			md = MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+
+		if (jar.isFile()) {
+
+			InputStream in = new FileInputStream(jar);
+
+			try {
+
+				byte[] buffer = new byte[65536];
+
+				for (int n; (n = in.read(buffer)) != -1;)
+					md.update(buffer, 0, n);
+
+			} finally {
+				in.close();
+			}
+
+		} else {
+
+			Archive archive = Archive.open(jar);
+			List<Entry> entries = new ArrayList<Entry>(archive.getEntries());
+
+			Collections.sort(entries, new Comparator<Entry>() {
+
+				@Override
+				public int compare(Entry e1, Entry e2) {
+					return e1.getName().compareTo(e2.getName());
+				}
+
+			});
+
+			try {
+
+				for (Entry entry : entries) {
+
+					ByteBuffer data = archive.read(entry);
+
+					md.update(entry.getName().getBytes(UTF_8));
+					md.update((byte) 0);
+					md.update(ByteBuffer.allocate(8).putLong(
+							data.remaining()).array());
+					md.update(data);
+
+				}
+
+			} finally {
+				archive.close();
+			}
+
+		}
+
+		StringBuilder hex = new StringBuilder();
+
+		for (byte b : md.digest())
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(
+					Character.forDigit(b & 0xf, 16));
+
+		return hex.toString();
+
+	}
+
+}
@@ -18,28 +18,116 @@
 
 package de.hhu.jversionnumberer;
 
+import static de.hhu.jversionnumberer.ChangeMask.ABSTRACT_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.ABSTRACT_TO_CLASS;
+import static de.hhu.jversionnumberer.ChangeMask.ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.CLIENT_EXTENDABLE;
+import static de.hhu.jversionnumberer.ChangeMask.DELETED;
+import static de.hhu.jversionnumberer.ChangeMask.DESC_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.ENUM_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.ENUM_DELETED;
+import static de.hhu.jversionnumberer.ChangeMask.EXCEPTION_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.FINAL_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.FINAL_DELETED;
+import static de.hhu.jversionnumberer.ChangeMask.INTERFACE_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.INTERFACE_DELETED;
+import static de.hhu.jversionnumberer.ChangeMask.SIGNATURE_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.STATIC;
+import static de.hhu.jversionnumberer.ChangeMask.STATIC_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.SUPER_NAME_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.VALUE_CHANGED;
+import static de.hhu.jversionnumberer.ChangeMask.VARARGS_ADDED;
+import static de.hhu.jversionnumberer.ChangeMask.VARARGS_DELETED;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jdk.jfr.EventType;
+
 import de.hhu.jdelta.delta.ClassDelta;
+import de.hhu.jdelta.delta.DeltaDispatcher;
+import de.hhu.jdelta.delta.DeltaVisitor;
 import de.hhu.jdelta.delta.EntityDelta;
 import de.hhu.jdelta.delta.FieldDelta;
 import de.hhu.jdelta.delta.JarDelta;
 import de.hhu.jdelta.delta.MethodDelta;
 import de.hhu.jdelta.delta.ShallowDelta;
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.progress.ProgressListener.Phase;
 import de.hhu.jdelta.tree.Visibility;
 import de.hhu.jdelta.tree.ClassNode.ClassType;
+import de.hhu.jversionnumberer.CompatibilityRule.Entity;
+import de.hhu.jversionnumberer.jfr.ProcessClassEvent;
 
 /**
  * A tree walker which decides which segment of a version number has to be
  * incremented.
  * 
+ * The changes of each class, field and method are summarized in a change
+ * mask which is evaluated against a decision table of CompatibilityRules.
+ * Several RuleProfiles can be evaluated in the same walk, each member mask
+ * is computed once per distinct way the profiles see the class.
+ * 
+ * The walker is a DeltaVisitor, so it can share a traversal with other
+ * visitors, see {@link DeltaDispatcher}.
+ * 
  * @author Gian Perrone
  * 
  */
-public class VersionNumberWalker {
-
-	private boolean minor = false;
-	private boolean major = false;
+public class VersionNumberWalker implements DeltaVisitor {
 
-	private boolean clientExtendable = false;
+	/**
+	 * The version of the CompatibilityRules and the way they are applied. It
+	 * has to be incremented whenever a change may give a different verdict
+	 * for the same jars, so cached verdicts are not reused, see
+	 * {@link VerdictCache}.
+	 */
+	public static final int RULES_VERSION = 1;
+
+	private static final DecisionTable CLASS_RULES = new DecisionTable(
+			Entity.CLASS);
+	private static final DecisionTable FIELD_RULES = new DecisionTable(
+			Entity.FIELD);
+	private static final DecisionTable METHOD_RULES = new DecisionTable(
+			Entity.METHOD);
+
+	// the event is kept between visitClass and visitClassEnd, so it is only
+	// created while a recording enables it
+	private static final EventType PROCESS_CLASS_EVENT = EventType
+			.getEventType(ProcessClassEvent.class);
+
+	private final RuleProfile[] profiles;
+	private final long[][] hits;
+
+	// the classes of jar deltas by their entry keys, so a class can be
+	// examined again by update
+	private final Map<String, ClassDelta> examined =
+			new HashMap<String, ClassDelta>();
+	private final List<Set<String>> minorClasses =
+			new ArrayList<Set<String>>();
+	private final List<Set<String>> majorClasses =
+			new ArrayList<Set<String>>();
+	// the verdicts of class deltas examined on their own
+	private final boolean[] minor;
+	private final boolean[] major;
+
+	private Iterator<String> classKeys;
+	private String classKey;
+
+	// the state of each profile for the examined class
+	private final int[] verdicts;
+	private final boolean[] examining;
+	private final boolean[] clientExtendable;
+	private final boolean[] protectedApi;
+	private final int[] masks;
+
+	private ProcessClassEvent event;
 
 	/**
 	 * Examine a JarDelta.
@@ -49,10 +137,49 @@ public class VersionNumberWalker {
 	 */
 	public VersionNumberWalker(JarDelta delta) {
 
+		this(RuleProfile.DEFAULT);
+
 		processJar(delta);
 
 	}
 
+	/**
+	 * Examine a JarDelta and report the examined classes to a listener.
+	 * 
+	 * @param delta
+	 *            the jar delta
+	 * @param listener
+	 *            the progress listener
+	 */
+	public VersionNumberWalker(JarDelta delta, ProgressListener listener) {
+
+		this(RuleProfile.DEFAULT);
+
+		processJar(delta, listener);
+
+	}
+
+	/**
+	 * Examine a JarDelta under several rule profiles in a single walk and
+	 * report the examined classes to a listener.
+	 * 
+	 * @param delta
+	 *            the jar delta
+	 * @param listener
+	 *            the progress listener
+	 * @param profiles
+	 *            the rule profiles, the first one is used by
+	 *            {@link #isMinor()} and {@link #isMajor()}
+	 */
+	public VersionNumberWalker(JarDelta delta, ProgressListener listener,
+			RuleProfile... profiles) {
+
+		this(profiles);
+
+		processJar(delta, listener);
+
+	}
+
 	/**
 	 * Examine a ClassDelta.
 	 * 
@@ -61,17 +188,58 @@ public class VersionNumberWalker {
 	 */
 	public VersionNumberWalker(ClassDelta delta) {
 
+		this(RuleProfile.DEFAULT);
+
 		processClass(delta);
 
 	}
 
+	/**
+	 * Examine a ClassDelta under several rule profiles.
+	 * 
+	 * @param delta
+	 *            the class delta
+	 * @param profiles
+	 *            the rule profiles, the first one is used by
+	 *            {@link #isMinor()} and {@link #isMajor()}
+	 */
+	public VersionNumberWalker(ClassDelta delta, RuleProfile... profiles) {
+
+		this(profiles);
+
+		processClass(delta);
+
+	}
+
+	private VersionNumberWalker(RuleProfile... profiles) {
+
+		if (profiles.length == 0)
+			throw new IllegalArgumentException("no rule profile");
+
+		this.profiles = profiles.clone();
+		this.hits = new long[profiles.length][CompatibilityRule.values().length];
+		this.verdicts = new int[profiles.length];
+		this.examining = new boolean[profiles.length];
+		this.clientExtendable = new boolean[profiles.length];
+		this.protectedApi = new boolean[profiles.length];
+		this.masks = new int[profiles.length];
+		this.minor = new boolean[profiles.length];
+		this.major = new boolean[profiles.length];
+
+		for (int i = 0; i < profiles.length; i++) {
+			minorClasses.add(new HashSet<String>());
+			majorClasses.add(new HashSet<String>());
+		}
+
+	}
+
 	/**
 	 * Returns true if the minor segment has to be incremented.
 	 * 
 	 * @return the minor flag
 	 */
 	public boolean isMinor() {
-		return minor;
+		return isMinor(0);
 	}
 
 	/**
@@ -80,35 +248,356 @@ public class VersionNumberWalker {
 	 * @return the major flag
 	 */
 	public boolean isMajor() {
-		return major;
+		return isMajor(0);
+	}
+
+	/**
+	 * Returns true if the minor segment has to be incremented under a rule
+	 * profile.
+	 * 
+	 * @param profile
+	 *            one of the examined rule profiles
+	 * @return the minor flag
+	 */
+	public boolean isMinor(RuleProfile profile) {
+		return isMinor(indexOf(profile));
+	}
+
+	/**
+	 * Returns true if the major segment has to be incremented under a rule
+	 * profile.
+	 * 
+	 * @param profile
+	 *            one of the examined rule profiles
+	 * @return the major flag
+	 */
+	public boolean isMajor(RuleProfile profile) {
+		return isMajor(indexOf(profile));
+	}
+
+	private boolean isMinor(int profile) {
+		return minor[profile] || !minorClasses.get(profile).isEmpty();
+	}
+
+	private boolean isMajor(int profile) {
+		return major[profile] || !majorClasses.get(profile).isEmpty();
+	}
+
+	/**
+	 * Returns how often each CompatibilityRule applied to a change since the
+	 * walker was created, including repeated examinations by
+	 * {@link #update(JarDelta, ProgressListener)}.
+	 * 
+	 * @return the hit counters of the first rule profile
+	 */
+	public Map<CompatibilityRule, Long> getRuleHits() {
+
+		return getRuleHits(profiles[0]);
+
+	}
+
+	/**
+	 * Returns how often each CompatibilityRule applied to a change under a
+	 * rule profile.
+	 * 
+	 * @param profile
+	 *            one of the examined rule profiles
+	 * @return the hit counters
+	 */
+	public Map<CompatibilityRule, Long> getRuleHits(RuleProfile profile) {
+
+		long[] profileHits = hits[indexOf(profile)];
+		Map<CompatibilityRule, Long> ruleHits =
+				new EnumMap<CompatibilityRule, Long>(CompatibilityRule.class);
+
+		for (CompatibilityRule rule : CompatibilityRule.values())
+			ruleHits.put(rule, profileHits[rule.ordinal()]);
+
+		return ruleHits;
+
+	}
+
+	private int indexOf(RuleProfile profile) {
+
+		for (int i = 0; i < profiles.length; i++)
+			if (profiles[i] == profile)
+				return i;
+
+		throw new IllegalArgumentException("not examined: " + profile);
+
 	}
 
 	public void processJar(JarDelta delta) {
 
-		for (ClassDelta classDelta : delta.getClassDeltas().values()) {
+		processJar(delta, ProgressListener.SILENT);
+
+	}
+
+	public void processJar(JarDelta delta, ProgressListener listener) {
 
-			processClass(classDelta);
+		new DeltaDispatcher(this).dispatch(delta, listener);
+
+	}
+
+	/**
+	 * Examines the classes of a JarDelta which were not examined in the same
+	 * version before and forgets the classes which are no longer part of it.
+	 * With {@link JarDelta#update(de.hhu.jdelta.tree.JarNode, ProgressListener)}
+	 * only the changed classes are examined again.
+	 * 
+	 * @param delta
+	 *            the updated jar delta
+	 * @param listener
+	 *            the progress listener
+	 */
+	public void update(JarDelta delta, ProgressListener listener) {
+
+		DeltaDispatcher dispatcher = new DeltaDispatcher(this);
+		int total = delta.getClassDeltas().size();
+		int done = 0;
+
+		listener.phaseStarted(Phase.EXAMINING, null, total);
+
+		for (Map.Entry<String, ClassDelta> entry : delta.getClassDeltas()
+				.entrySet()) {
+
+			if (examined.get(entry.getKey()) != entry.getValue()) {
+				classKey = entry.getKey();
+				dispatcher.dispatch(entry.getValue());
+			}
+
+			listener.progress(Phase.EXAMINING, ++done, total);
 
 		}
 
+		for (Iterator<String> i = examined.keySet().iterator(); i.hasNext();) {
+
+			String key = i.next();
+
+			if (!delta.getClassDeltas().containsKey(key)) {
+
+				i.remove();
+
+				for (int p = 0; p < profiles.length; p++) {
+					minorClasses.get(p).remove(key);
+					majorClasses.get(p).remove(key);
+				}
+
+			}
+
+		}
+
+		listener.phaseFinished(Phase.EXAMINING);
+
 	}
 
 	public void processClass(ClassDelta delta) {
 
-		if (isEffectivelyIrrelevant(delta))
-			return;
+		new DeltaDispatcher(this).dispatch(delta);
+
+	}
+
+	/**
+	 * Takes the entry keys of the classes in the order they are visited.
+	 */
+	@Override
+	public void visitJar(JarDelta delta) {
+
+		classKeys = delta.getClassDeltas().keySet().iterator();
+
+	}
 
-		if (isEffectivelyAdded(delta)) {
-			minor = true;
+	@Override
+	public boolean visitClass(ClassDelta delta) {
+
+		if (classKeys != null)
+			classKey = classKeys.next();
+
+		if (PROCESS_CLASS_EVENT.isEnabled()) {
+			event = new ProcessClassEvent();
+			event.begin();
+		} else {
+			event = null;
+		}
+
+		boolean any = false;
+		boolean annotated = isAnnotatedClientExtendable(delta);
+
+		for (int i = 0; i < profiles.length; i++) {
+
+			verdicts[i] = 0;
+			examining[i] = false;
+			// set for this class only, unlike the original walker which kept
+			// it for all classes after an annotated one; a class must not
+			// depend on the classes before it, or update could not re-examine
+			// a single class
+			clientExtendable[i] =
+					profiles[i].isAllClientExtendable() || annotated;
+			protectedApi[i] =
+					profiles[i].isProtectedApi() || clientExtendable[i];
+
+			// no rule applies to a class without any change
+			if (delta.isDeepUnchanged()
+					|| isEffectivelyIrrelevant(delta, profiles[i]
+							.isProtectedApi()))
+				continue;
+
+			int mask =
+					getClassMask(delta, clientExtendable[i], profiles[i]
+							.isProtectedApi());
+			verdicts[i] |= CLASS_RULES.evaluate(mask, hits[i]);
+
+			examining[i] = (mask & (ADDED | DELETED)) == 0;
+			any |= examining[i];
+
+		}
+
+		return any;
+
+	}
+
+	@Override
+	public void visitField(FieldDelta delta) {
+
+		if (delta.isDeepUnchanged())
 			return;
+
+		boolean protectedMember = isProtected(delta);
+
+		for (int i = 0; i < profiles.length; i++) {
+
+			if (!examining[i])
+				continue;
+
+			int mask = findMask(i, protectedMember);
+
+			if (mask < 0)
+				mask =
+						isEffectivelyIrrelevant(delta, protectedApi[i]) ? 0
+								: getFieldMask(delta, protectedApi[i]);
+
+			masks[i] = mask;
+
+			if (mask != 0 && clientExtendable[i])
+				mask |= CLIENT_EXTENDABLE;
+
+			verdicts[i] |= FIELD_RULES.evaluate(mask, hits[i]);
+
 		}
 
-		if (isEffectivelyDeleted(delta)) {
-			major = true;
+	}
+
+	@Override
+	public void visitMethod(MethodDelta delta) {
+
+		if (delta.isDeepUnchanged())
 			return;
+
+		boolean protectedMember = isProtected(delta);
+
+		for (int i = 0; i < profiles.length; i++) {
+
+			if (!examining[i])
+				continue;
+
+			int mask = findMask(i, protectedMember);
+
+			if (mask < 0)
+				mask =
+						isEffectivelyIrrelevant(delta, protectedApi[i]) ? 0
+								: getMethodMask(delta, protectedApi[i]);
+
+			masks[i] = mask;
+
+			if (mask != 0 && clientExtendable[i])
+				mask |= CLIENT_EXTENDABLE;
+
+			verdicts[i] |= METHOD_RULES.evaluate(mask, hits[i]);
+
 		}
 
-		if (delta
+	}
+
+	/**
+	 * Returns the mask of the member computed for an earlier profile which
+	 * sees the member the same way or -1. The profiles only differ for
+	 * members which are protected in one of the versions.
+	 */
+	private int findMask(int profile, boolean protectedMember) {
+
+		for (int i = 0; i < profile; i++)
+			if (examining[i]
+					&& (!protectedMember || protectedApi[i] == protectedApi[profile]))
+				return masks[i];
+
+		return -1;
+
+	}
+
+	@Override
+	public void visitClassEnd(ClassDelta delta) {
+
+		if (classKey != null) {
+
+			examined.put(classKey, delta);
+
+			for (int i = 0; i < profiles.length; i++) {
+
+				if ((verdicts[i] & DecisionTable.MINOR) != 0)
+					minorClasses.get(i).add(classKey);
+				else
+					minorClasses.get(i).remove(classKey);
+
+				if ((verdicts[i] & DecisionTable.MAJOR) != 0)
+					majorClasses.get(i).add(classKey);
+				else
+					majorClasses.get(i).remove(classKey);
+
+			}
+
+			classKey = null;
+
+		} else {
+
+			for (int i = 0; i < profiles.length; i++) {
+				minor[i] |= (verdicts[i] & DecisionTable.MINOR) != 0;
+				major[i] |= (verdicts[i] & DecisionTable.MAJOR) != 0;
+			}
+
+		}
+
+		if (event != null && event.shouldCommit()) {
+			event.className = getClassName(delta);
+			event.memberCount = delta.getFieldDeltaTable().size()
+					+ delta.getMethodDeltaTable().size();
+			event.minor = (verdicts[0] & DecisionTable.MINOR) != 0;
+			event.major = (verdicts[0] & DecisionTable.MAJOR) != 0;
+			event.commit();
+		}
+
+	}
+
+	@Override
+	public void visitJarEnd(JarDelta delta) {
+
+		classKeys = null;
+
+	}
+
+	private static String getClassName(ClassDelta delta) {
+
+		return delta.getFrom() != null ? delta.getFrom().getName() : delta
+				.getTo()
+				.getName();
+
+	}
+
+	private static boolean isAnnotatedClientExtendable(ClassDelta delta) {
+
+		if (delta.getTo() == null)
+			return false;
+
+		return delta
 				.getTo()
 				.getAnnotations()
 				.contains(
@@ -116,152 +605,155 @@ public class VersionNumberWalker {
 				|| delta.getTo()
 						.getAnnotations()
 						.contains(
-								"Lde/hhu/jversionnumberer/annotations/ImplementableByClient;"))
-			clientExtendable = true;
+								"Lde/hhu/jversionnumberer/annotations/ImplementableByClient;");
+
+	}
+
+	private static int getClassMask(ClassDelta delta,
+			boolean clientExtendable, boolean protectedApi) {
+
+		if (isEffectivelyAdded(delta, protectedApi))
+			return ADDED;
+
+		if (isEffectivelyDeleted(delta, protectedApi))
+			return DELETED;
+
+		int mask = clientExtendable ? CLIENT_EXTENDABLE : 0;
 
 		if (delta.getClassTypeDelta().isChanged()) {
+			mask |= ChangeMask.CLASS_TYPE_CHANGED;
 			if (delta.getClassTypeDelta().getFrom() == ClassType.ABSTRACT_CLASS
 					&& delta.getClassTypeDelta().getTo() == ClassType.CLASS)
-				minor = true;
-			else
-				major = true;
+				mask |= ABSTRACT_TO_CLASS;
 		}
 
 		if (delta.getFinalDelta().isAdded())
-			major = true;
+			mask |= FINAL_ADDED;
 
 		if (!delta.getSignatureDelta().isUnchanged())
-			major = true;
+			mask |= SIGNATURE_CHANGED;
 
 		if (delta.getSuperNameDelta().isChanged())
-			major = true;
+			mask |= SUPER_NAME_CHANGED;
 
 		for (ShallowDelta<String> interfaceDelta : delta
 				.getInterfaceDeltas()
 				.values()) {
 
 			if (interfaceDelta.isDeleted())
-				major = true;
-
-			if (interfaceDelta.isAdded()) {
-				if (!clientExtendable)
-					minor = true;
-				else
-					major = true;
-			}
-
-		}
-
-		for (FieldDelta fieldDelta : delta.getFieldDeltas().values()) {
+				mask |= INTERFACE_DELETED;
 
-			processField(fieldDelta);
+			if (interfaceDelta.isAdded())
+				mask |= INTERFACE_ADDED;
 
 		}
 
-		for (MethodDelta methodDelta : delta.getMethodDeltas().values()) {
-
-			processMethod(methodDelta);
-
-		}
+		return mask;
 
 	}
 
-	private void processField(FieldDelta delta) {
+	/**
+	 * Returns the mask of the field without the CLIENT_EXTENDABLE bit.
+	 */
+	private static int getFieldMask(FieldDelta delta, boolean protectedApi) {
 
-		if (isEffectivelyIrrelevant(delta))
-			return;
+		if (isEffectivelyAdded(delta, protectedApi))
+			return ADDED;
 
-		if (isEffectivelyAdded(delta)) {
-			if (!clientExtendable)
-				minor = true;
-			else
-				major = true;
-			return;
-		}
+		if (isEffectivelyDeleted(delta, protectedApi))
+			return DELETED;
 
-		if (isEffectivelyDeleted(delta)) {
-			major = true;
-			return;
-		}
+		int mask = 0;
 
 		if (delta.getDescDelta().isChanged())
-			major = true;
+			mask |= DESC_CHANGED;
 
 		if (!delta.getValueDelta().isUnchanged())
-			major = true;
+			mask |= VALUE_CHANGED;
 
 		if (delta.getStaticDelta().isChanged())
-			major = true;
+			mask |= STATIC_CHANGED;
+
+		if (delta.getStaticDelta().getTo())
+			mask |= STATIC;
 
 		if (delta.getFinalDelta().isAdded())
-			major = true;
+			mask |= FINAL_ADDED;
 
-		if (delta.getFinalDelta().isDeleted()) {
-			if (delta.getStaticDelta().getTo())
-				major = true;
-			else
-				minor = true;
-		}
+		if (delta.getFinalDelta().isDeleted())
+			mask |= FINAL_DELETED;
 
 		if (delta.getEnumDelta().isAdded())
-			minor = true;
+			mask |= ENUM_ADDED;
 
 		if (delta.getEnumDelta().isDeleted())
-			major = true;
+			mask |= ENUM_DELETED;
+
+		return mask;
 
 	}
 
-	private void processMethod(MethodDelta delta) {
+	/**
+	 * Returns the mask of the method without the CLIENT_EXTENDABLE bit.
+	 */
+	private static int getMethodMask(MethodDelta delta, boolean protectedApi) {
 
-		if (isEffectivelyIrrelevant(delta))
-			return;
+		if (isEffectivelyAdded(delta, protectedApi))
+			return ADDED;
 
-		if (isEffectivelyAdded(delta)) {
-			minor = true;
-			return;
-		}
+		if (isEffectivelyDeleted(delta, protectedApi))
+			return DELETED;
 
-		if (isEffectivelyDeleted(delta)) {
-			major = true;
-			return;
-		}
+		int mask = 0;
 
 		for (ShallowDelta<String> exceptionDelta : delta
 				.getExceptionDeltas()
 				.values()) {
 
-			if (exceptionDelta.isAdded())
-				major = true;
+			if (exceptionDelta.isAdded()) {
+				mask |= EXCEPTION_ADDED;
+				break;
+			}
 
 		}
 
 		if (!delta.getSignatureDelta().isUnchanged())
-			major = true;
+			mask |= SIGNATURE_CHANGED;
 
 		if (delta.getStaticDelta().isChanged())
-			major = true;
+			mask |= STATIC_CHANGED;
 
-		if (delta.getFinalDelta().isAdded() && clientExtendable)
-			major = true;
+		if (delta.getFinalDelta().isAdded())
+			mask |= FINAL_ADDED;
 
 		if (delta.getVarargsDelta().isAdded())
-			minor = true;
+			mask |= VARARGS_ADDED;
 
 		if (delta.getVarargsDelta().isDeleted())
-			major = true;
+			mask |= VARARGS_DELETED;
 
 		if (delta.getAbstractDelta().isAdded())
-			major = true;
+			mask |= ABSTRACT_ADDED;
+
+		return mask;
+
+	}
+
+	private static boolean isProtected(EntityDelta<?> delta) {
+
+		return delta.getVisibilityDelta().getFrom() == Visibility.PROTECTED
+				|| delta.getVisibilityDelta().getTo() == Visibility.PROTECTED;
 
 	}
 
-	private boolean isEffectivelyIrrelevant(EntityDelta<?> delta) {
+	private static boolean isEffectivelyIrrelevant(EntityDelta<?> delta,
+			boolean protectedApi) {
 
 		if (delta.getVisibilityDelta().getFrom() == Visibility.PUBLIC
 				|| delta.getVisibilityDelta().getTo() == Visibility.PUBLIC)
 			return false;
 
-		if (clientExtendable)
+		if (protectedApi)
 			if (delta.getVisibilityDelta().getFrom() == Visibility.PROTECTED
 					|| delta.getVisibilityDelta().getTo() == Visibility.PROTECTED)
 				return false;
@@ -270,7 +762,8 @@ public class VersionNumberWalker {
 
 	}
 
-	private boolean isEffectivelyAdded(EntityDelta<?> delta) {
+	private static boolean isEffectivelyAdded(EntityDelta<?> delta,
+			boolean protectedApi) {
 
 		if (delta.isUnchanged())
 			return false;
@@ -281,7 +774,7 @@ public class VersionNumberWalker {
 				&& visibilityDelta.getTo() == Visibility.PUBLIC)
 			return true;
 
-		if (clientExtendable) {
+		if (protectedApi) {
 
 			if ((delta.isAdded() || visibilityDelta.getFrom() != Visibility.PROTECTED)
 					&& visibilityDelta.getTo() == Visibility.PROTECTED)
@@ -293,7 +786,8 @@ public class VersionNumberWalker {
 
 	}
 
-	private boolean isEffectivelyDeleted(EntityDelta<?> delta) {
+	private static boolean isEffectivelyDeleted(EntityDelta<?> delta,
+			boolean protectedApi) {
 
 		if (delta.isUnchanged())
 			return false;
@@ -304,7 +798,7 @@ public class VersionNumberWalker {
 				&& visibilityDelta.getFrom() == Visibility.PUBLIC)
 			return true;
 
-		if (clientExtendable) {
+		if (protectedApi) {
 
 			if ((delta.isDeleted() || visibilityDelta.getTo() != Visibility.PROTECTED)
 					&& visibilityDelta.getFrom() == Visibility.PROTECTED)
@@ -0,0 +1,63 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event covering the examination of a single ClassDelta by
+ * the VersionNumberWalker.
+ * 
+ * @author Gian Perrone
+ */
+@Name("de.hhu.jversionnumberer.ProcessClass")
+@Label("Process Class")
+@Category({ "JVersionNumberer" })
+@Description("Applying the version numbering rules to a class delta")
+public class ProcessClassEvent extends Event {
+
+	/**
+	 * The name of the examined class.
+	 */
+	@Label("Class Name")
+	public String className;
+
+	/**
+	 * The number of examined fields and methods.
+	 */
+	@Label("Member Count")
+	public int memberCount;
+
+	/**
+	 * True if the minor segment has to be incremented after this class.
+	 */
+	@Label("Minor")
+	public boolean minor;
+
+	/**
+	 * True if the major segment has to be incremented after this class.
+	 */
+	@Label("Major")
+	public boolean major;
+
+}
@@ -0,0 +1,72 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+
+import org.testng.annotations.Test;
+
+import de.hhu.jdelta.progress.ProgressListener.Phase;
+
+public class ConsoleProgressBarTest {
+
+	@Test
+	public void drawsTheBarOnOneLine() throws UnsupportedEncodingException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ConsoleProgressBar bar =
+				new ConsoleProgressBar(new PrintStream(bytes, false, "UTF-8"));
+
+		bar.phaseStarted(Phase.LOADING, "a.jar", 4);
+		bar.progress(Phase.LOADING, 3, 4);
+		bar.phaseFinished(Phase.LOADING);
+
+		assertEquals(bytes.toString("UTF-8"),
+				"\rloading a.jar [                              ] 0% (0/4)"
+						+ "\rloading a.jar [######################        ]"
+						+ " 75% (3/4)" + System.getProperty("line.separator"));
+
+	}
+
+	@Test
+	public void clearsTheRestOfALongerLine()
+			throws UnsupportedEncodingException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ConsoleProgressBar bar =
+				new ConsoleProgressBar(new PrintStream(bytes, false, "UTF-8"));
+
+		bar.phaseStarted(Phase.LOADING, null, -1);
+		bar.progress(Phase.LOADING, 1000, -1);
+		bar.phaseFinished(Phase.LOADING);
+		bar.phaseStarted(Phase.DIFFING, null, -1);
+		bar.progress(Phase.DIFFING, 10000, -1);
+		bar.progress(Phase.DIFFING, 7, -1);
+
+		assertEquals(bytes.toString("UTF-8"), "\rloading 0\rloading 1000"
+				+ System.getProperty("line.separator")
+				+ "\rdiffing 0\rdiffing 10000\rdiffing 7    ");
+
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.testng.annotations.Test;
+
+import de.hhu.jdelta.progress.ProgressListener;
+import de.hhu.jdelta.progress.ProgressListener.Phase;
+import de.hhu.jdelta.tree.JarNode;
+
+public class JVersionNumbererTest {
+
+	private static final RuleProfile[] PROFILES = { RuleProfile.DEFAULT,
+			RuleProfile.SEMVER };
+
+	private static final class PhaseRecorder implements ProgressListener {
+
+		private final Set<Phase> phases = EnumSet.noneOf(Phase.class);
+
+		public void phaseStarted(Phase phase, String subject, int total) {
+			phases.add(phase);
+		}
+
+		public void progress(Phase phase, int done, int total) {
+		}
+
+		public void phaseFinished(Phase phase) {
+		}
+
+	}
+
+	/**
+	 * Generates a jar with a public class whose methods return the given
+	 * constant.
+	 */
+	private static JarNode generateJar(int constant, String... methods)
+			throws IOException {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, "p/A", null,
+				"java/lang/Object", null);
+
+		for (String method : methods) {
+			MethodVisitor mv =
+					cw.visitMethod(Opcodes.ACC_PUBLIC, method, "()I", null,
+							null);
+			mv.visitCode();
+			mv.visitLdcInsn(Integer.valueOf(constant));
+			mv.visitInsn(Opcodes.IRETURN);
+			mv.visitMaxs(1, 1);
+			mv.visitEnd();
+		}
+
+		cw.visitEnd();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ZipOutputStream out = new ZipOutputStream(bytes);
+		out.putNextEntry(new ZipEntry("p/A.class"));
+		out.write(cw.toByteArray());
+		out.close();
+
+		return new JarNode(bytes.toByteArray(), "p.jar");
+
+	}
+
+	@Test
+	public void equalFingerprintsAreNotDiffed() throws IOException {
+
+		PhaseRecorder recorder = new PhaseRecorder();
+		VerdictCache.Verdict[] verdicts =
+				JVersionNumberer.examine(generateJar(1, "m"), generateJar(2,
+						"m"), PROFILES, recorder);
+
+		assertTrue(recorder.phases.isEmpty());
+
+		for (VerdictCache.Verdict verdict : verdicts) {
+			assertFalse(verdict.isMinor());
+			assertFalse(verdict.isMajor());
+		}
+
+		recorder = new PhaseRecorder();
+		verdicts =
+				JVersionNumberer.examine(generateJar(1, "m"), generateJar(1,
+						"m", "n"), PROFILES, recorder);
+
+		assertEquals(recorder.phases, EnumSet.of(Phase.DIFFING,
+				Phase.EXAMINING));
+
+		for (VerdictCache.Verdict verdict : verdicts) {
+			assertTrue(verdict.isMinor());
+			assertFalse(verdict.isMajor());
+		}
+
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ *   Copyright 2011 Gian Perrone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package de.hhu.jversionnumberer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.testng.annotations.Test;
+
+public class VerdictCacheTest {
+
+	@Test
+	public void verdictsSurviveReopening() throws IOException {
+
+		File jar = File.createTempFile("library", ".jar");
+		Files.write(jar.toPath(), new byte[] { 1, 2, 3 });
+		File file = File.createTempFile("verdicts", ".txt");
+		file.delete();
+
+		try {
+
+			String digest = VerdictCache.digest(jar);
+			String key =
+					VerdictCache.key(digest, digest, 0, RuleProfile.DEFAULT);
+
+			assertEquals(VerdictCache.digest(jar), digest);
+
+			VerdictCache cache = new VerdictCache(file);
+			assertNull(cache.get(key));
+			cache.put(key, new VerdictCache.Verdict(true, false));
+
+			// an interrupted write leaves an incomplete line
+			OutputStream out = new FileOutputStream(file, true);
+			out.write((VerdictCache.key(digest, digest, 0,
+					RuleProfile.SEMVER) + " 1").getBytes("UTF-8"));
+			out.close();
+
+			cache = new VerdictCache(file);
+			cache.put(VerdictCache.key(digest, digest, 0,
+					RuleProfile.CLIENT_IMPLEMENTS_ALL), new VerdictCache.Verdict(
+					true, true));
+
+			cache = new VerdictCache(file);
+			assertTrue(cache.get(key).isMinor());
+			assertFalse(cache.get(key).isMajor());
+			assertNull(cache.get(VerdictCache.key(digest, digest, 0,
+					RuleProfile.SEMVER)));
+			assertTrue(cache.get(
+					VerdictCache.key(digest, digest, 0,
+							RuleProfile.CLIENT_IMPLEMENTS_ALL)).isMajor());
+			assertNull(cache.get(VerdictCache.key(digest, digest, 9,
+					RuleProfile.DEFAULT)));
+
+		} finally {
+			file.delete();
+			jar.delete();
+		}
+
+	}
+
+}
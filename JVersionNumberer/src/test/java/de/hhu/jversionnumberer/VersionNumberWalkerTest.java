@@ -18,17 +18,34 @@
 
 package de.hhu.jversionnumberer;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 
 import de.hhu.jdelta.delta.ClassDelta;
+import de.hhu.jdelta.delta.JarDelta;
+import de.hhu.jdelta.io.ZipArchive;
+import de.hhu.jdelta.progress.ProgressListener;
 import de.hhu.jdelta.tree.ClassNode;
 import de.hhu.jdelta.tree.FieldNode;
+import de.hhu.jdelta.tree.JarNode;
 import de.hhu.jdelta.tree.MethodNode;
 import de.hhu.jdelta.tree.Visibility;
 import de.hhu.jdelta.tree.ClassNode.ClassType;
@@ -799,4 +816,218 @@ public class VersionNumberWalkerTest {
 
 	}
 
+	@Test
+	public void ruleHitsTest() {
+
+		MethodNode m1 =
+				new MethodNode(MNAME, MDESC1, null, NOSTRINGS,
+						Visibility.PUBLIC, false, false, false, false, false,
+						false, false, false);
+
+		MethodNode m2 =
+				new MethodNode(MNAME, MDESC1, null, THROWSEXCEPTION,
+						Visibility.PUBLIC, false, false, false, false, false,
+						false, false, false);
+
+		VersionNumberWalker vnw =
+				new VersionNumberWalker(generateClassDelta(m1, m2, false));
+
+		assertTrue(vnw.isMajor());
+
+		for (Map.Entry<CompatibilityRule, Long> hit : vnw
+				.getRuleHits()
+				.entrySet())
+			assertEquals(hit.getValue().longValue(),
+					hit.getKey() == CompatibilityRule.METHOD_EXCEPTION_ADDED ? 1
+							: 0);
+
+	}
+
+	@Test
+	public void ruleProfilesTest() {
+
+		RuleProfile[] profiles =
+				{ RuleProfile.DEFAULT, RuleProfile.CLIENT_IMPLEMENTS_ALL,
+						RuleProfile.SEMVER };
+
+		FieldNode f2 =
+				new FieldNode(FNAME, FDESC1, null, null, Visibility.PUBLIC,
+						false, false, false, false, false, false);
+
+		VersionNumberWalker vnw =
+				new VersionNumberWalker(generateClassDelta(null, f2, false),
+						profiles);
+
+		assertTrue(vnw.isMinor(RuleProfile.DEFAULT));
+		assertFalse(vnw.isMajor(RuleProfile.DEFAULT));
+		assertTrue(vnw.isMajor(RuleProfile.CLIENT_IMPLEMENTS_ALL));
+		assertTrue(vnw.isMinor(RuleProfile.SEMVER));
+		assertFalse(vnw.isMajor(RuleProfile.SEMVER));
+
+		MethodNode m2 =
+				new MethodNode(MNAME, MDESC1, null, NOSTRINGS,
+						Visibility.PROTECTED, false, false, false, false,
+						false, false, false, false);
+
+		vnw =
+				new VersionNumberWalker(generateClassDelta(null, m2, false),
+						profiles);
+
+		assertFalse(vnw.isMinor(RuleProfile.DEFAULT));
+		assertFalse(vnw.isMajor(RuleProfile.DEFAULT));
+		assertTrue(vnw.isMinor(RuleProfile.CLIENT_IMPLEMENTS_ALL));
+		assertTrue(vnw.isMinor(RuleProfile.SEMVER));
+
+	}
+
+	@Test
+	public void clientExtendableIsPerClassTest() {
+
+		MethodNode m1 =
+				new MethodNode(MNAME, MDESC1, null, NOSTRINGS,
+						Visibility.PUBLIC, false, false, false, false, false,
+						false, false, false);
+		MethodNode varargs =
+				new MethodNode(MNAME, MDESC1, null, NOSTRINGS,
+						Visibility.PUBLIC, false, false, false, false, true,
+						false, false, false);
+		MethodNode finalMethod =
+				new MethodNode(MNAME, MDESC1, null, NOSTRINGS,
+						Visibility.PUBLIC, false, true, false, false, false,
+						false, false, false);
+
+		// a minor change of an annotated class
+		ClassDelta annotated =
+				new ClassDelta(generateClassNode(m1, true), generateClassNode(
+						varargs, true));
+		// a change which only matters if clients may extend the class
+		ClassDelta plain =
+				new ClassDelta(generateClassNode(m1, false), generateClassNode(
+						finalMethod, false));
+
+		VersionNumberWalker vnw = new VersionNumberWalker(annotated);
+		vnw.processClass(plain);
+
+		assertTrue(vnw.isMinor());
+		assertFalse(vnw.isMajor());
+
+		vnw = new VersionNumberWalker(plain);
+		vnw.processClass(annotated);
+
+		assertTrue(vnw.isMinor());
+		assertFalse(vnw.isMajor());
+
+	}
+
+	private static byte[] generateClass(String name, String... methods) {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT,
+				name, null, CSUPERNAME, null);
+
+		for (String method : methods)
+			cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method,
+					"()V", null, null).visitEnd();
+
+		cw.visitEnd();
+
+		return cw.toByteArray();
+
+	}
+
+	private static byte[] generateJar(byte[]... classes) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ZipOutputStream out = new ZipOutputStream(bytes);
+
+		for (int i = 0; i < classes.length; i++) {
+			out.putNextEntry(new ZipEntry("p/C" + i + ".class"));
+			out.write(classes[i]);
+		}
+
+		out.close();
+
+		return bytes.toByteArray();
+
+	}
+
+	@Test
+	public void verdictsAreKeptPerEntryTest() throws IOException {
+
+		// two entries of the same class
+		byte[] a = generateClass("p/X", "a");
+		byte[] aWithout = generateClass("p/X");
+		byte[] aWith = generateClass("p/X", "a", "b");
+
+		JarDelta delta =
+				new JarDelta(new JarNode(generateJar(a, a), "1.0"),
+						new JarNode(generateJar(aWithout, aWith), "1.1"));
+
+		VersionNumberWalker vnw =
+				new VersionNumberWalker(delta, ProgressListener.SILENT);
+
+		assertTrue(vnw.isMinor());
+		assertTrue(vnw.isMajor());
+
+		vnw.update(delta, ProgressListener.SILENT);
+
+		assertTrue(vnw.isMinor());
+		assertTrue(vnw.isMajor());
+
+	}
+
+	@Test
+	public void updateFollowsChangedClassesTest() throws IOException {
+
+		byte[] a = generateClass("p/C0", "a");
+		byte[] b = generateClass("p/C1", "b");
+		byte[] bWithout = generateClass("p/C1");
+		byte[] aWith = generateClass("p/C0", "a", "c");
+
+		JarNode from = new JarNode(generateJar(a, b), "1.0");
+		JarNode to = new JarNode(generateJar(a, b), "1.1");
+		JarDelta delta = new JarDelta(from, to);
+
+		VersionNumberWalker vnw =
+				new VersionNumberWalker(delta, ProgressListener.SILENT);
+
+		assertFalse(vnw.isMinor());
+		assertFalse(vnw.isMajor());
+
+		// a method of the second class is deleted
+		JarNode previousTo = to;
+		JarDelta previous = delta;
+		to =
+				to.update(archive(generateJar(a, bWithout)),
+						ProgressListener.SILENT);
+		delta = delta.update(to, ProgressListener.SILENT);
+		vnw.update(delta, ProgressListener.SILENT);
+
+		assertTrue(vnw.isMajor());
+		assertSame(to.getClasses().get("p/C0.class"), previousTo
+				.getClasses()
+				.get("p/C0.class"));
+		assertSame(delta.getClassDeltas().get("p/C0.class"), previous
+				.getClassDeltas()
+				.get("p/C0.class"));
+		assertNotSame(delta.getClassDeltas().get("p/C1.class"), previous
+				.getClassDeltas()
+				.get("p/C1.class"));
+
+		// the method is back and the first class has a new one
+		to = to.update(archive(generateJar(aWith, b)), ProgressListener.SILENT);
+		delta = delta.update(to, ProgressListener.SILENT);
+		vnw.update(delta, ProgressListener.SILENT);
+
+		assertTrue(vnw.isMinor());
+		assertFalse(vnw.isMajor());
+
+	}
+
+	private static ZipArchive archive(byte[] jar) throws IOException {
+
+		return new ZipArchive(ByteBuffer.wrap(jar), "jar");
+
+	}
+
 }